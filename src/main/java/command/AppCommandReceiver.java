@@ -1,7 +1,13 @@
 package command;
 
+import data.collection.IPersonCollection;
+import data.query.PersonQuery;
+import data.struct.Person;
 import iostream.console.ConsoleManager;
 
+import java.nio.file.Path;
+import java.util.List;
+
 /**
  * Класс реализации получателя команд для работы с приложением на базе паттерна Команда и паттерна Одиночка
  * @author Антропов Никита
@@ -9,9 +15,11 @@ import iostream.console.ConsoleManager;
  * */
 public final class AppCommandReceiver {
     /** Поле receiver - единственный экземпляр данного класса */
-    private static AppCommandReceiver receiver;
+    private static volatile AppCommandReceiver receiver;
     /** Поле console - объект взаимодействия с консолью */
     private final ConsoleManager console;
+    /** Поле collection - коллекция данных, с которой работают команды, null - коллекция не задана */
+    private volatile IPersonCollection collection;
 
     /**
      * Конструктор класса с инициализацией поля console
@@ -19,6 +27,7 @@ public final class AppCommandReceiver {
      */
     private AppCommandReceiver() {
         this.console = ConsoleManager.getInstance();
+        this.collection = null;
     }
 
     /**
@@ -27,17 +36,22 @@ public final class AppCommandReceiver {
      * @return ссылка на объект класса
      */
     public static AppCommandReceiver getInstance() {
-        if (AppCommandReceiver.receiver == null)
-            AppCommandReceiver.receiver = new AppCommandReceiver();
+        if (AppCommandReceiver.receiver == null) {
+            synchronized (AppCommandReceiver.class) {
+                if (AppCommandReceiver.receiver == null)
+                    AppCommandReceiver.receiver = new AppCommandReceiver();
+            }
+        }
         return AppCommandReceiver.receiver;
     }
 
     /**
-     * Команда выполнения текстового
+     * Команда выполнения текстового скрипта
+     * @see ScriptEngine#execute(Path)
      * @param path - путь до выбранного скрипта в виде строки
      */
     public void executeScript(String path) {
-        console.write(path);
+        ScriptEngine.getInstance().execute(Path.of(path));
     }
 
     /**
@@ -62,4 +76,43 @@ public final class AppCommandReceiver {
     public void history(String history) {
         console.write(history);
     }
+
+    /**
+     * Команда вывода статистики выполнения команд
+     * @param stats - статистика команд в виде строки
+     */
+    public void stats(String stats) {
+        console.write(stats);
+    }
+
+    /**
+     * Задание коллекции данных, с которой работают команды
+     * @param collection - коллекция данных
+     */
+    public void setCollection(IPersonCollection collection) {
+        this.collection = collection;
+    }
+
+    /**
+     * Получение коллекции данных, с которой работают команды
+     * @see AppCommandReceiver#collection
+     * @return коллекция данных или null, если коллекция не задана
+     */
+    public IPersonCollection getCollection() { return this.collection; }
+
+    /**
+     * Команда вывода элементов коллекции, удовлетворяющих выражению фильтра
+     * @see IPersonCollection#filter(PersonQuery)
+     * @param expression - выражение фильтра
+     */
+    public void filter(String expression) throws IllegalArgumentException, IllegalStateException {
+        IPersonCollection collection = this.collection;
+        if (collection == null)
+            throw new IllegalStateException("Коллекция данных не задана\n");
+        List<Person> persons = collection.filter(PersonQuery.compile(expression));
+        StringBuilder result = new StringBuilder();
+        persons.forEach(person -> result.append(person).append('\n'));
+        result.append("Найдено элементов: ").append(persons.size()).append('\n');
+        console.write(result.toString());
+    }
 }
@@ -0,0 +1,201 @@
+package command;
+
+import data.collection.IPersonCollection;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Класс асинхронного выполнения команд.
+ * Изменяющие команды выполняются по очереди в порядке поступления, отдельная очередь заводится для каждой
+ * коллекции, над которой выполняется команда, поэтому изменения разных коллекций выполняются параллельно.
+ * Все изменяющие команды над коллекцией, включая выполнение скрипта, попадают в ее очередь, поэтому шаги
+ * скрипта не чередуются с другими изменениями этой коллекции. Общая очередь приложения используется
+ * только для изменяющих команд без заданной коллекции. Остальные команды выполняются параллельно пулом
+ * потоков чтения.
+ * Команда выполняется с историей сеанса, в котором она была отправлена
+ * @see ICommand#isMutating()
+ * @author Антропов Никита
+ * @version 1.0
+ */
+public final class AsyncCommandExecutor implements Closeable {
+    /** Поле INVOKER - отправитель команд */
+    private final CommandInvoker INVOKER;
+    /** Поле APPLICATION - ключ общей очереди изменяющих команд, выполняемых без заданной коллекции */
+    private static final Object APPLICATION = new Object();
+
+    /** Поле WRITERS - пул потоков выполнения очередей изменяющих команд */
+    private final ExecutorService WRITERS;
+    /** Поле QUEUES - очереди изменяющих команд по изменяемым коллекциям */
+    private final WeakHashMap<Object, SerialQueue> QUEUES;
+    /** Поле READERS - пул потоков выполнения остальных команд */
+    private final ExecutorService READERS;
+
+    /**
+     * Конструктор класса
+     * @param readers - количество потоков выполнения команд, не изменяющих данные
+     */
+    public AsyncCommandExecutor(int readers) throws IllegalArgumentException {
+        if (readers <= 0)
+            throw new IllegalArgumentException("Количество потоков должно быть больше 0\n");
+        this.INVOKER = CommandInvoker.getInstance();
+        AtomicInteger writer = new AtomicInteger(0);
+        // Поток нужен только очереди, в которой есть команды, поэтому потоков не больше изменяемых коллекций
+        this.WRITERS = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "command-writer-" + writer.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.QUEUES = new WeakHashMap<>();
+        AtomicInteger number = new AtomicInteger(0);
+        this.READERS = Executors.newFixedThreadPool(readers, runnable -> {
+            Thread thread = new Thread(runnable, "command-reader-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @see AsyncCommandExecutor#AsyncCommandExecutor(int)
+     */
+    public AsyncCommandExecutor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Асинхронный вызов команды по ее названию, введенному пользователем, над коллекцией получателя команд
+     * @see AppCommandReceiver#getCollection()
+     * @see AsyncCommandExecutor#executeCommand(String[], IPersonCollection)
+     */
+    public CompletableFuture<Void> executeCommand(String[] command_name) {
+        return this.executeCommand(command_name, AppCommandReceiver.getInstance().getCollection());
+    }
+
+    /**
+     * Асинхронный вызов команды по ее названию, введенному пользователем
+     * @see CommandInvoker#executeCommand(String[])
+     * @param command_name - название команды и ее аргументы
+     * @param collection - коллекция, над которой выполняется команда, null - коллекция не задана
+     * @return результат выполнения, завершается после выполнения команды или с ошибкой команды
+     */
+    public CompletableFuture<Void> executeCommand(String[] command_name, IPersonCollection collection) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        ICommand command;
+        try {
+            if (command_name == null || command_name.length == 0)
+                throw new IllegalArgumentException("Вы не ввели команду\n");
+            command = this.INVOKER.find(command_name[0]);
+        } catch (IllegalArgumentException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+
+        CommandHistory history = CommandHistory.current();
+        Executor executor = this.READERS;
+        if (command.isMutating())
+            executor = this.queue(collection != null ? collection : AsyncCommandExecutor.APPLICATION);
+        try {
+            executor.execute(() -> {
+                CommandHistory.bind(history);
+                try {
+                    this.INVOKER.executeCommand(command_name);
+                    result.complete(null);
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    CommandHistory.bind(null);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new IllegalStateException("Выполнение команд остановлено\n", e));
+        }
+        return result;
+    }
+
+    /**
+     * Ожидание выполнения принятых команд и остановка потоков
+     */
+    @Override
+    public void close() {
+        this.WRITERS.shutdown();
+        this.READERS.shutdown();
+        try {
+            while (!this.WRITERS.awaitTermination(1, TimeUnit.MINUTES));
+            while (!this.READERS.awaitTermination(1, TimeUnit.MINUTES));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Получение очереди изменяющих команд с созданием при первом обращении
+     * @param key - коллекция команды или ключ общей очереди приложения
+     * @return очередь изменяющих команд
+     */
+    private synchronized SerialQueue queue(Object key) {
+        return this.QUEUES.computeIfAbsent(key, k -> new SerialQueue(this.WRITERS));
+    }
+
+    /**
+     * Класс очереди команд, выполняемых по одной в порядке поступления потоками общего пула.
+     * Поток пула занимается, только пока в очереди есть команды, и выполняет их все,
+     * поэтому принятые команды выполняются и после остановки пула
+     * @author Антропов Никита
+     * @version 1.0
+     */
+    private static final class SerialQueue implements Executor {
+        /** Поле POOL - пул потоков выполнения */
+        private final ExecutorService POOL;
+        /** Поле TASKS - команды, ожидающие выполнения */
+        private final ArrayDeque<Runnable> TASKS;
+        /** Поле running - true, если поток пула выполняет команды очереди */
+        private boolean running;
+
+        /**
+         * Конструктор класса
+         * @param pool - пул потоков выполнения
+         */
+        private SerialQueue(ExecutorService pool) {
+            this.POOL = pool;
+            this.TASKS = new ArrayDeque<>();
+            this.running = false;
+        }
+
+        /**
+         * @see Executor#execute(Runnable)
+         */
+        @Override
+        public synchronized void execute(Runnable task) throws RejectedExecutionException {
+            if (!this.running) {
+                this.POOL.execute(this::drain);
+                this.running = true;
+            }
+            this.TASKS.add(task);
+        }
+
+        /**
+         * Выполнение команд очереди до ее опустошения. Выполняется потоком пула
+         */
+        private void drain() {
+            while (true) {
+                Runnable task;
+                synchronized (this) {
+                    task = this.TASKS.poll();
+                    if (task == null) {
+                        this.running = false;
+                        return;
+                    }
+                }
+                task.run();
+            }
+        }
+    }
+}
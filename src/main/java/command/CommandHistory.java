@@ -1,35 +1,157 @@
 package command;
 
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
- * Класс для работы с историей введенных команд
+ * Класс для работы с историей введенных команд сеанса.
+ * История хранится в кольцевом буфере заданного размера: запись команды занимает следующую ячейку буфера
+ * без блокировок, старые команды перезаписываются. Ячейка хранит команду вместе с ее порядковым номером,
+ * поэтому при выводе ячейка, которая еще не записана или уже перезаписана более новой командой, пропускается.
+ * История привязывается к потоку, выполняющему команды сеанса, потоки без привязанной истории используют
+ * общую историю консоли
  * @author Антропов Никита
  * @version 1.0
  */
 public final class CommandHistory {
-    /** Поле history - буфер названий введенных команд */
-    private final static Queue<String> history = new LinkedList<>();
-    /** Поле history_size - размер буфера */
-    private final static int history_size = 7;
+    /** Поле DEFAULT_CAPACITY - размер буфера по умолчанию */
+    public static final int DEFAULT_CAPACITY = 7;
+    /** Поле CONSOLE - история сеанса консоли */
+    private static final CommandHistory CONSOLE = new CommandHistory("console", CommandHistory.DEFAULT_CAPACITY);
+    /** Поле CURRENT - история сеанса, привязанная к потоку */
+    private static final ThreadLocal<CommandHistory> CURRENT = ThreadLocal.withInitial(() -> CommandHistory.CONSOLE);
+
+    /** Поле SESSION - название сеанса */
+    private final String SESSION;
+    /** Поле SLOTS - кольцевой буфер введенных команд с их порядковыми номерами */
+    private final AtomicReferenceArray<Entry> SLOTS;
+    /** Поле NEXT - порядковый номер следующей команды */
+    private final AtomicLong NEXT;
+    /** Поле audit - журнал аудита команд, null - без журнала */
+    private volatile HistoryAuditLog audit;
+
+    /**
+     * Конструктор класса
+     * @param session - название сеанса
+     * @param capacity - размер буфера
+     */
+    public CommandHistory(String session, int capacity) throws IllegalArgumentException {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Размер истории команд должен быть больше 0\n");
+        this.SESSION = session;
+        this.SLOTS = new AtomicReferenceArray<>(capacity);
+        this.NEXT = new AtomicLong(0);
+        this.audit = null;
+    }
+
+    /**
+     * Получение истории сеанса, привязанной к текущему потоку
+     * @return история команд сеанса
+     */
+    public static CommandHistory current() { return CommandHistory.CURRENT.get(); }
+
+    /**
+     * Привязка истории сеанса к текущему потоку
+     * @param history - история команд сеанса, null - общая история консоли
+     */
+    public static void bind(CommandHistory history) {
+        if (history == null)
+            CommandHistory.CURRENT.remove();
+        else
+            CommandHistory.CURRENT.set(history);
+    }
+
+    /**
+     * Подключение журнала аудита. Команды передаются журналу без ожидания записи в файл
+     * @param audit - журнал аудита команд, null - отключение журнала
+     */
+    public void setAudit(HistoryAuditLog audit) { this.audit = audit; }
+
+    /**
+     * Получение названия сеанса
+     * @see CommandHistory#SESSION
+     * @return название сеанса
+     */
+    public String getSession() { return this.SESSION; }
+
+    /**
+     * Получение размера буфера
+     * @return максимальное количество команд в истории
+     */
+    public int getCapacity() { return this.SLOTS.length(); }
 
     /**
      * Сохранение новой команды в истории
      * @param command - название команды в виде строки
      */
-    public static void push(String command) {
-        CommandHistory.history.add(command);
-        // Удаление старых команд, если размер истории превышает заданный
-        if (CommandHistory.history.size() > CommandHistory.history_size)
-            CommandHistory.history.remove();
+    public void push(String command) {
+        long number = this.NEXT.getAndIncrement();
+        this.SLOTS.set((int) (number % this.SLOTS.length()), new Entry(number, command));
+        HistoryAuditLog log = this.audit;
+        if (log != null)
+            log.append(this.SESSION, command);
+    }
+
+    /**
+     * Сохранение группы команд в истории. Команды, которые были бы сразу вытеснены, в буфер не записываются
+     * @param commands - названия команд в порядке выполнения
+     */
+    public void pushAll(List<String> commands) {
+        HistoryAuditLog log = this.audit;
+        if (log != null)
+            commands.forEach(command -> log.append(this.SESSION, command));
+        int from = Math.max(commands.size() - this.SLOTS.length(), 0);
+        long number = this.NEXT.getAndAdd(commands.size()) + from;
+        for (int i = from; i < commands.size(); i++, number++)
+            this.SLOTS.set((int) (number % this.SLOTS.length()), new Entry(number, commands.get(i)));
+    }
+
+    /**
+     * Вывод истории в заданный буфер, по одной команде в строке от старых к новым.
+     * Команды, записанные во время вывода, могут не попасть в вывод, команды из предыдущего круга буфера
+     * не выводятся
+     * @param out - буфер вывода
+     */
+    public void render(StringBuilder out) {
+        long end = this.NEXT.get();
+        for (long number = Math.max(end - this.SLOTS.length(), 0); number < end; number++) {
+            Entry entry = this.SLOTS.get((int) (number % this.SLOTS.length()));
+            if (entry != null && entry.NUMBER == number)
+                out.append(entry.COMMAND).append('\n');
+        }
     }
 
     /**
      * Получение истории
+     * @see CommandHistory#render(StringBuilder)
      * @return история в виде строки
      */
-    public static String getHistory() {
-        return CommandHistory.history.stream().reduce("",(str, e) -> str + e + "\n");
+    public String getHistory() {
+        StringBuilder out = new StringBuilder(this.SLOTS.length() * 16);
+        this.render(out);
+        return out.toString();
+    }
+
+    /**
+     * Класс ячейки истории
+     * @author Антропов Никита
+     * @version 1.0
+     */
+    private static final class Entry {
+        /** Поле NUMBER - порядковый номер команды */
+        private final long NUMBER;
+        /** Поле COMMAND - название команды */
+        private final String COMMAND;
+
+        /**
+         * Конструктор класса
+         * @param number - порядковый номер команды
+         * @param command - название команды
+         */
+        private Entry(long number, String command) {
+            this.NUMBER = number;
+            this.COMMAND = command;
+        }
     }
 }
@@ -1,25 +1,49 @@
 package command;
 
-import java.util.HashMap;
+import data.collection.IPersonCollection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * Класс реализации отправителя команд на базе паттерна Команда и паттерна Одиночка
+ * Класс реализации отправителя команд на базе паттерна Команда и паттерна Одиночка.
+ * Таблица поиска команд строится при регистрации: названия, заданные регулярным выражением вида
+ * ^name[ ]*, ищутся по точному совпадению в хэш-таблице, остальные выражения компилируются один раз
+ * и проверяются только при отсутствии точного совпадения. Регистрация и поиск команд допускают
+ * одновременный вызов из нескольких потоков
  * @author Антропов Никита
  * @version 1.0
  */
 public final class CommandInvoker {
+    /** Поле EXACT_NAME - шаблон регулярного выражения, задающего точное название команды */
+    private static final Pattern EXACT_NAME = Pattern.compile("\\^?([\\w-]+)(\\[ ]\\*|\\[\\\\s]\\*|\\\\s\\*)?");
     /** Поле invoker - единственный экземпляр данного класса */
-    private static CommandInvoker invoker;
+    private static volatile CommandInvoker invoker;
     /** Поле command_map - словарь с названиями команд и ссылками на их объекты */
-    private final HashMap<String, ICommand> command_map;
+    private final ConcurrentHashMap<String, ICommand> command_map;
+    /** Поле exact_map - команды по точному названию */
+    private final ConcurrentHashMap<String, ICommand> exact_map;
+    /** Поле pattern_list - команды, название которых нельзя свести к точному, со скомпилированными выражениями */
+    private final CopyOnWriteArrayList<Map.Entry<Pattern, ICommand>> pattern_list;
+    /** Поле stats_map - статистика выполнения по объектам команд */
+    private final ConcurrentHashMap<ICommand, CommandStats> stats_map;
 
     /**
      * Конструктор класса с инициализацией поля command_map
      * @see CommandInvoker#command_map
      */
     private CommandInvoker() {
-        this.command_map = new HashMap<>();
+        this.command_map = new ConcurrentHashMap<>();
+        this.exact_map = new ConcurrentHashMap<>();
+        this.pattern_list = new CopyOnWriteArrayList<>();
+        this.stats_map = new ConcurrentHashMap<>();
     }
 
     /**
@@ -28,8 +52,12 @@ public final class CommandInvoker {
      * @return ссылка на объект класса
      */
     public static CommandInvoker getInstance() {
-        if (CommandInvoker.invoker == null)
-            CommandInvoker.invoker = new CommandInvoker();
+        if (CommandInvoker.invoker == null) {
+            synchronized (CommandInvoker.class) {
+                if (CommandInvoker.invoker == null)
+                    CommandInvoker.invoker = new CommandInvoker();
+            }
+        }
 
         return CommandInvoker.invoker;
     }
@@ -41,6 +69,15 @@ public final class CommandInvoker {
      */
     public void register(String command_regex, ICommand command) {
         this.command_map.put(command_regex, command);
+        Matcher matcher = CommandInvoker.EXACT_NAME.matcher(command_regex);
+        String name = command_regex;
+        if (matcher.matches()) {
+            name = matcher.group(1);
+            this.exact_map.put(name, command);
+        }
+        else
+            this.pattern_list.add(Map.entry(Pattern.compile(command_regex), command));
+        this.stats_map.putIfAbsent(command, new CommandStats(name));
     }
 
     /**
@@ -50,20 +87,13 @@ public final class CommandInvoker {
     public void executeCommand(String[] command_name) throws IllegalArgumentException {
         if (command_name == null || command_name.length == 0)
             throw new IllegalArgumentException("Вы не ввели команду\n");
-        // Поиск команды в словаре
-        String find_command = this.command_map.keySet().stream().filter(e -> Pattern.compile(e).
-                matcher(command_name[0]).matches()).findAny().orElse(null);
-        if (find_command == null)
-            throw new IllegalArgumentException("Команды " + command_name[0] + " не существует. " +
-                    "Для справки воспользуйтесь командой help\n");
-        // Получение ссылки на объект команды и проверка кол-ва аргументов
-        ICommand command = this.command_map.get(find_command);
+        ICommand command = this.find(command_name[0]);
         if (!command.checkArg(command_name.length - 1))
             throw new IllegalArgumentException("Неверное количество аргументов команды " + command_name[0] +
                     ". Для справки воспользуйтесь командой help\n");
 
-        CommandHistory.push(command_name[0]);
-        command.execute(command_name[1]);
+        CommandHistory.current().push(command_name[0]);
+        this.execute(command, command_name.length > 1 ? command_name[1] : "");
     }
 
     /**
@@ -73,25 +103,194 @@ public final class CommandInvoker {
     public void executeCommand(String command_name) throws IllegalArgumentException {
         if (command_name.length() == 0)
             throw new IllegalArgumentException("Вы не ввели команду\n");
-        // Поиск команды в словаре
-        String find_command = this.command_map.keySet().stream().filter(e -> Pattern.compile(e).
-                matcher(command_name).matches()).findAny().orElse(null);
-        if (find_command == null)
-            throw new IllegalArgumentException("Команды " + command_name + " не существует. " +
-                    "Для справки воспользуйтесь командой help\n");
-        // Получение ссылки на объект команды и проверка кол-ва аргументов
-        ICommand command = this.command_map.get(find_command);
+        ICommand command = this.find(command_name);
         if (!command.checkArg(0))
             throw new IllegalArgumentException("Неверное количество аргументов команды " + command_name +
                     ". Повторите ввод\n");
 
-        CommandHistory.push(command_name);
-        command.execute("");
+        CommandHistory.current().push(command_name);
+        this.execute(command, "");
+    }
+
+    /**
+     * Класс результата выполнения команды из группы
+     * @author Антропов Никита
+     * @version 1.0
+     */
+    public static final class Result {
+        /** Поле COMMAND - название команды */
+        private final String COMMAND;
+        /** Поле STATUS - состояние выполнения команды */
+        private final EStatus STATUS;
+        /** Поле ERROR - сообщение об ошибке, null - команда выполнена */
+        private final String ERROR;
+
+        /**
+         * Конструктор класса
+         * @param command - название команды
+         * @param status - состояние выполнения команды
+         * @param error - сообщение об ошибке, null - команда выполнена
+         */
+        private Result(String command, EStatus status, String error) {
+            this.COMMAND = command;
+            this.STATUS = status;
+            this.ERROR = error;
+        }
+
+        /**
+         * Получение названия команды
+         * @see Result#COMMAND
+         * @return название команды
+         */
+        public String getCommand() { return this.COMMAND; }
+
+        /**
+         * Получение состояния выполнения команды
+         * @see Result#STATUS
+         * @return состояние выполнения команды
+         */
+        public EStatus getStatus() { return this.STATUS; }
+
+        /**
+         * Проверка успешного выполнения команды
+         * @return true, если команда выполнена без ошибок
+         */
+        public boolean isSuccess() { return this.STATUS == EStatus.SUCCESS; }
+
+        /**
+         * Получение сообщения об ошибке
+         * @see Result#ERROR
+         * @return сообщение об ошибке или null, если команда выполнена
+         */
+        public String getError() { return this.ERROR; }
+
+        /**
+         * Перечисление состояний выполнения команды из группы
+         * @author Антропов Никита
+         * @version 1.0
+         */
+        public enum EStatus {
+            /** Команда выполнена */
+            SUCCESS,
+            /** Команда не введена или не существует, команда не выполнялась */
+            UNKNOWN_COMMAND,
+            /** Команда не только изменяет коллекцию и не может выполняться в группе, команда не выполнялась */
+            NOT_BATCHABLE,
+            /** Неверное количество аргументов, команда не выполнялась */
+            WRONG_ARGUMENTS,
+            /** Команда завершилась с ошибкой во время выполнения */
+            FAILED
+        }
+    }
+
+    /**
+     * Выполнение группы команд под одной блокировкой записи коллекции.
+     * Команды проверяются до захвата блокировки: в группе выполняются только команды, которые лишь изменяют
+     * коллекцию, поэтому под блокировкой не выполняются вывод в консоль, скрипты и завершение приложения.
+     * Информация о коллекции и слушатели изменений обновляются один раз после выполнения всей группы,
+     * история команд дополняется одним вызовом. Ошибка одной команды не прерывает выполнение группы
+     * @see IPersonCollection#batch(Runnable)
+     * @see ICommand#changesCollection()
+     * @param commands - названия команд и их аргументы
+     * @param collection - коллекция данных, которую изменяют команды группы
+     * @return результаты выполнения команд в порядке их следования
+     */
+    public List<Result> executeBatch(List<String[]> commands, IPersonCollection collection) {
+        Result[] results = new Result[commands.size()];
+        ICommand[] found = new ICommand[commands.size()];
+        List<String> executed = new ArrayList<>(commands.size());
+        for (int i = 0; i < results.length; i++) {
+            String[] command_name = commands.get(i);
+            String name = command_name == null || command_name.length == 0 ? "" : command_name[0];
+            ICommand command;
+            try {
+                if (name.length() == 0)
+                    throw new IllegalArgumentException("Вы не ввели команду\n");
+                command = this.find(name);
+            } catch (IllegalArgumentException e) {
+                results[i] = new Result(name, Result.EStatus.UNKNOWN_COMMAND, e.getMessage());
+                continue;
+            }
+            if (!command.changesCollection())
+                results[i] = new Result(name, Result.EStatus.NOT_BATCHABLE, "Команда " + name +
+                        " не изменяет коллекцию и не может выполняться в группе\n");
+            else if (!command.checkArg(command_name.length - 1))
+                results[i] = new Result(name, Result.EStatus.WRONG_ARGUMENTS, "Неверное количество аргументов " +
+                        "команды " + name + ". Для справки воспользуйтесь командой help\n");
+            else {
+                found[i] = command;
+                executed.add(name);
+            }
+        }
+        if (executed.isEmpty())
+            return Arrays.asList(results);
+
+        collection.batch(() -> {
+            for (int i = 0; i < results.length; i++) {
+                if (found[i] == null)
+                    continue;
+                String[] command_name = commands.get(i);
+                try {
+                    this.execute(found[i], command_name.length > 1 ? command_name[1] : "");
+                    results[i] = new Result(command_name[0], Result.EStatus.SUCCESS, null);
+                } catch (RuntimeException e) {
+                    results[i] = new Result(command_name[0], Result.EStatus.FAILED, e.getMessage());
+                }
+            }
+        });
+        CommandHistory.current().pushAll(executed);
+        return Arrays.asList(results);
     }
 
     /**
      * Получение словаря с командами
      * @return словарь с командами
      */
-    public HashMap<String, ICommand> getCommandMap() { return this.command_map; }
+    public Map<String, ICommand> getCommandMap() { return this.command_map; }
+
+    /**
+     * Получение статистики выполнения команд
+     * @see CommandStats
+     * @return статистика по каждой зарегистрированной команде
+     */
+    public Collection<CommandStats> getStats() { return this.stats_map.values(); }
+
+    /**
+     * Выполнение команды с учетом времени выполнения и ошибок в статистике команды
+     * @param command - ссылка на объект команды
+     * @param arg - аргумент команды
+     */
+    void execute(ICommand command, String arg) {
+        CommandStats stats = this.stats_map.get(command);
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            command.execute(arg);
+            failed = false;
+        } finally {
+            if (stats != null)
+                stats.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    /**
+     * Поиск команды по названию: сначала по точному совпадению, затем по скомпилированным выражениям
+     * @param name - название команды, введенное пользователем
+     * @return ссылка на объект команды
+     */
+    ICommand find(String name) throws IllegalArgumentException {
+        ICommand command = this.exact_map.get(name);
+        // Выражения вида ^name[ ]* допускают пробелы после названия
+        if (command == null && !name.isEmpty() && Character.isWhitespace(name.charAt(name.length() - 1)))
+            command = this.exact_map.get(name.stripTrailing());
+        if (command == null) {
+            for (Map.Entry<Pattern, ICommand> entry : this.pattern_list) {
+                if (entry.getKey().matcher(name).matches())
+                    return entry.getValue();
+            }
+            throw new IllegalArgumentException("Команды " + name + " не существует. " +
+                    "Для справки воспользуйтесь командой help\n");
+        }
+        return command;
+    }
 }
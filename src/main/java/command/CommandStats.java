@@ -0,0 +1,170 @@
+package command;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Класс статистики выполнения команды: количество вызовов, количество ошибок и гистограмма времени выполнения.
+ * Гистограмма хранит счетчики по логарифмическим интервалам с SUB_BUCKETS подынтервалами на каждую степень двойки,
+ * поэтому относительная погрешность процентилей не превышает 1/SUB_BUCKETS. Счетчики не требуют блокировок,
+ * сброс статистики во время выполнения команд может не учесть часть одновременных вызовов
+ * @author Антропов Никита
+ * @version 1.0
+ */
+public final class CommandStats {
+    /** Поле SUB_BITS - количество бит номера подынтервала */
+    private static final int SUB_BITS = 3;
+    /** Поле SUB_BUCKETS - количество подынтервалов на степень двойки */
+    private static final int SUB_BUCKETS = 1 << CommandStats.SUB_BITS;
+    /** Поле BUCKETS - количество интервалов для значений до Long.MAX_VALUE наносекунд */
+    private static final int BUCKETS = (64 - CommandStats.SUB_BITS) * CommandStats.SUB_BUCKETS;
+
+    /** Поле NAME - название команды */
+    private final String NAME;
+    /** Поле CALLS - количество вызовов */
+    private final LongAdder CALLS;
+    /** Поле ERRORS - количество вызовов, завершившихся ошибкой */
+    private final LongAdder ERRORS;
+    /** Поле HISTOGRAM - количество вызовов по интервалам времени выполнения */
+    private final LongAdder[] HISTOGRAM;
+    /** Поле MAX - максимальное время выполнения в наносекундах */
+    private final LongAccumulator MAX;
+
+    /**
+     * Конструктор класса
+     * @param name - название команды
+     */
+    CommandStats(String name) {
+        this.NAME = name;
+        this.CALLS = new LongAdder();
+        this.ERRORS = new LongAdder();
+        this.HISTOGRAM = new LongAdder[CommandStats.BUCKETS];
+        for (int i = 0; i < CommandStats.BUCKETS; i++)
+            this.HISTOGRAM[i] = new LongAdder();
+        this.MAX = new LongAccumulator(Math::max, 0);
+    }
+
+    /**
+     * Учет вызова команды
+     * @param nanos - время выполнения в наносекундах
+     * @param failed - true, если команда завершилась ошибкой
+     */
+    void record(long nanos, boolean failed) {
+        long value = Math.max(nanos, 0);
+        this.CALLS.increment();
+        if (failed)
+            this.ERRORS.increment();
+        this.HISTOGRAM[CommandStats.bucket(value)].increment();
+        this.MAX.accumulate(value);
+    }
+
+    /**
+     * Сброс статистики
+     */
+    public void reset() {
+        this.CALLS.reset();
+        this.ERRORS.reset();
+        for (LongAdder counter : this.HISTOGRAM)
+            counter.reset();
+        this.MAX.reset();
+    }
+
+    /**
+     * Получение названия команды
+     * @see CommandStats#NAME
+     * @return название команды
+     */
+    public String getName() { return this.NAME; }
+
+    /**
+     * Получение количества вызовов
+     * @return количество вызовов
+     */
+    public long getCalls() { return this.CALLS.sum(); }
+
+    /**
+     * Получение количества ошибок
+     * @return количество вызовов, завершившихся ошибкой
+     */
+    public long getErrors() { return this.ERRORS.sum(); }
+
+    /**
+     * Получение максимального времени выполнения
+     * @return время в наносекундах
+     */
+    public long getMax() { return this.MAX.get(); }
+
+    /**
+     * Получение процентиля времени выполнения по верхней границе интервала гистограммы
+     * @param percentile - процентиль от 0 до 100
+     * @return время в наносекундах, 0 - команда не вызывалась
+     */
+    public long getPercentile(double percentile) throws IllegalArgumentException {
+        if (percentile < 0 || percentile > 100)
+            throw new IllegalArgumentException("Процентиль должен быть от 0 до 100\n");
+        long[] counts = new long[CommandStats.BUCKETS];
+        long total = 0;
+        for (int i = 0; i < CommandStats.BUCKETS; i++) {
+            counts[i] = this.HISTOGRAM[i].sum();
+            total += counts[i];
+        }
+        if (total == 0)
+            return 0;
+
+        long rank = Math.max((long) Math.ceil(total * percentile / 100), 1);
+        long seen = 0;
+        for (int i = 0; i < CommandStats.BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return Math.min(CommandStats.upperBound(i), this.getMax());
+        }
+        return this.getMax();
+    }
+
+    /**
+     * Получение статистики в виде строки
+     * @return статистика команды
+     */
+    @Override
+    public String toString() {
+        return this.NAME + ": вызовов " + this.getCalls() + ", ошибок " + this.getErrors() +
+                ", p50 " + CommandStats.micros(this.getPercentile(50)) +
+                ", p99 " + CommandStats.micros(this.getPercentile(99)) +
+                ", max " + CommandStats.micros(this.getMax()) + "\n";
+    }
+
+    /**
+     * Получение номера интервала гистограммы
+     * @param value - время выполнения в наносекундах
+     * @return номер интервала
+     */
+    private static int bucket(long value) {
+        int exponent = 63 - Long.numberOfLeadingZeros(value | 1);
+        if (exponent < CommandStats.SUB_BITS)
+            return (int) value;
+        int shift = exponent - CommandStats.SUB_BITS;
+        return (shift + 1) * CommandStats.SUB_BUCKETS + (int) ((value >>> shift) & (CommandStats.SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Получение верхней границы интервала гистограммы
+     * @param bucket - номер интервала
+     * @return наибольшее время выполнения в интервале в наносекундах
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < CommandStats.SUB_BUCKETS)
+            return bucket;
+        int shift = bucket / CommandStats.SUB_BUCKETS - 1;
+        long lower = (long) (CommandStats.SUB_BUCKETS + bucket % CommandStats.SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    /**
+     * Преобразование времени в строку в микросекундах
+     * @param nanos - время в наносекундах
+     * @return время в виде строки
+     */
+    private static String micros(long nanos) {
+        return String.format("%.1f мкс", nanos / 1000.0);
+    }
+}
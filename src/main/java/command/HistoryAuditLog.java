@@ -0,0 +1,188 @@
+package command;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Класс журнала аудита введенных команд.
+ * Команды помещаются в очередь без ожидания записи, отдельный поток дописывает накопленные команды в конец
+ * файла журнала и сбрасывает буфер после каждой группы, строка журнала содержит время, сеанс и название команды.
+ * Очередь ограничена: при ее переполнении, после закрытия журнала или после ошибки записи команды
+ * отбрасываются и учитываются в счетчике отброшенных команд
+ * @author Антропов Никита
+ * @version 1.0
+ */
+public final class HistoryAuditLog implements Closeable {
+    /** Поле DEFAULT_CAPACITY - размер очереди записи по умолчанию */
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+    /** Поле CLOSED - признак остановки журнала в очереди записи */
+    private static final Entry CLOSED = new Entry(0, null, null);
+
+    /** Поле WRITER - буфер записи файла журнала */
+    private final BufferedWriter WRITER;
+    /** Поле QUEUE - очередь команд для записи */
+    private final LinkedBlockingQueue<Entry> QUEUE;
+    /** Поле THREAD - поток записи журнала */
+    private final Thread THREAD;
+    /** Поле DROPPED - количество отброшенных команд */
+    private final AtomicLong DROPPED;
+    /** Поле closed - true, если журнал закрывается или закрыт */
+    private volatile boolean closed;
+    /** Поле error - ошибка записи журнала */
+    private volatile IOException error;
+
+    /**
+     * Класс записи журнала
+     * @author Антропов Никита
+     * @version 1.0
+     */
+    private static final class Entry {
+        /** Поле TIME - время выполнения команды в миллисекундах */
+        private final long TIME;
+        /** Поле SESSION - название сеанса */
+        private final String SESSION;
+        /** Поле COMMAND - название команды */
+        private final String COMMAND;
+
+        /**
+         * Конструктор класса
+         * @param time - время выполнения команды в миллисекундах
+         * @param session - название сеанса
+         * @param command - название команды
+         */
+        private Entry(long time, String session, String command) {
+            this.TIME = time;
+            this.SESSION = session;
+            this.COMMAND = command;
+        }
+    }
+
+    /**
+     * Конструктор класса
+     * @param writer - буфер записи файла журнала
+     * @param capacity - размер очереди записи
+     */
+    private HistoryAuditLog(BufferedWriter writer, int capacity) {
+        this.WRITER = writer;
+        this.QUEUE = new LinkedBlockingQueue<>(capacity);
+        this.THREAD = new Thread(this::run, "history-audit");
+        this.THREAD.setDaemon(true);
+        this.DROPPED = new AtomicLong(0);
+        this.closed = false;
+        this.error = null;
+    }
+
+    /**
+     * Открытие журнала с дописыванием в конец файла
+     * @param path - путь до файла журнала
+     * @param capacity - размер очереди записи
+     * @return журнал аудита
+     */
+    public static HistoryAuditLog open(Path path, int capacity) throws IOException, IllegalArgumentException {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Размер очереди журнала аудита должен быть больше 0\n");
+        HistoryAuditLog log = new HistoryAuditLog(Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), capacity);
+        log.THREAD.start();
+        return log;
+    }
+
+    /**
+     * @see HistoryAuditLog#open(Path, int)
+     */
+    public static HistoryAuditLog open(Path path) throws IOException {
+        return HistoryAuditLog.open(path, HistoryAuditLog.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Добавление команды в очередь записи без ожидания. Команда отбрасывается, если очередь заполнена,
+     * журнал закрыт или поток записи завершился с ошибкой
+     * @param session - название сеанса
+     * @param command - название команды
+     */
+    public void append(String session, String command) {
+        Entry entry = new Entry(System.currentTimeMillis(), session, command);
+        if (this.closed || this.error != null || !this.QUEUE.offer(entry))
+            this.DROPPED.incrementAndGet();
+        // Журнал закрыт во время добавления: команда учитывается здесь, если ее еще не забрал close
+        else if (this.closed && this.QUEUE.remove(entry))
+            this.DROPPED.incrementAndGet();
+    }
+
+    /**
+     * Получение количества отброшенных команд
+     * @see HistoryAuditLog#DROPPED
+     * @return количество команд, не попавших в журнал из-за переполнения очереди, закрытия или ошибки журнала
+     */
+    public long getDropped() { return this.DROPPED.get(); }
+
+    /**
+     * Запись оставшихся команд и закрытие файла журнала
+     */
+    @Override
+    public void close() throws IOException {
+        this.closed = true;
+        try {
+            // Очередь может быть заполнена, а поток записи - завершен с ошибкой и больше ее не разбирать
+            while (this.THREAD.isAlive() && !this.QUEUE.offer(HistoryAuditLog.CLOSED, 10, TimeUnit.MILLISECONDS));
+            this.THREAD.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Команда, добавленная между проверкой closed в append и постановкой признака остановки,
+        // оказывается в очереди после него и уже не будет записана
+        List<Entry> left = new ArrayList<>();
+        this.QUEUE.drainTo(left);
+        left.remove(HistoryAuditLog.CLOSED);
+        this.DROPPED.addAndGet(left.size());
+        this.WRITER.close();
+        if (this.error != null)
+            throw new IOException("Не удалось записать журнал аудита команд\n", this.error);
+    }
+
+    /**
+     * Запись команд из очереди. Выполняется потоком записи журнала
+     */
+    private void run() {
+        List<Entry> entries = new ArrayList<>();
+        try {
+            while (true) {
+                entries.add(this.QUEUE.take());
+                this.QUEUE.drainTo(entries);
+                for (int i = 0; i < entries.size(); i++) {
+                    Entry entry = entries.get(i);
+                    if (entry == HistoryAuditLog.CLOSED) {
+                        // Команды, добавленные после признака остановки, не записываются
+                        this.DROPPED.addAndGet(entries.size() - i - 1);
+                        this.WRITER.flush();
+                        return;
+                    }
+                    this.WRITER.write(Instant.ofEpochMilli(entry.TIME) + "\t" + entry.SESSION + "\t" +
+                            entry.COMMAND);
+                    this.WRITER.newLine();
+                }
+                this.WRITER.flush();
+                entries.clear();
+            }
+        } catch (IOException e) {
+            this.error = e;
+            // Команды в очереди уже не будут записаны
+            this.QUEUE.drainTo(entries);
+            entries.remove(HistoryAuditLog.CLOSED);
+            this.DROPPED.addAndGet(entries.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -24,4 +24,21 @@ public interface ICommand {
      * @return описание команды в виде строки
      */
     String getInfo();
+
+    /**
+     * Проверка, изменяет ли команда данные приложения. Изменяющие команды при асинхронном выполнении
+     * выполняются по очереди, остальные - параллельно
+     * @see AsyncCommandExecutor
+     * @return true, если команда изменяет данные, по умолчанию - если она изменяет коллекцию
+     */
+    default boolean isMutating() { return this.changesCollection(); }
+
+    /**
+     * Проверка, что команда только изменяет коллекцию данных через получателя: не пишет в консоль,
+     * не выполняет другие команды и не завершает приложение. Только такие команды выполняются группой
+     * под блокировкой записи коллекции
+     * @see CommandInvoker#executeBatch(java.util.List, data.collection.IPersonCollection)
+     * @return true, если команда только изменяет коллекцию
+     */
+    default boolean changesCollection() { return false; }
 }
@@ -0,0 +1,224 @@
+package command;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Класс выполнения скриптов команд на базе паттерна Одиночка.
+ * Файл скрипта читается потоком один раз и компилируется в список команд с найденными объектами команд
+ * и проверенным количеством аргументов. Скомпилированный скрипт хранится в кэше по пути до файла
+ * и повторно используется, пока не изменятся время изменения и размер файла.
+ * Рекурсивный вызов скрипта определяется по стеку выполняемых скриптов текущего потока без чтения файлов
+ * @author Антропов Никита
+ * @version 1.0
+ */
+public final class ScriptEngine {
+    /** Поле CACHE_SIZE - количество скомпилированных скриптов в кэше */
+    private static final int CACHE_SIZE = 16;
+    /** Поле BUFFER_SIZE - размер буфера чтения файла скрипта */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Поле engine - единственный экземпляр данного класса */
+    private static volatile ScriptEngine engine;
+    /** Поле CACHE - скомпилированные скрипты в порядке последнего обращения */
+    private final LinkedHashMap<Path, Script> CACHE;
+    /** Поле RUNNING - стек скриптов, выполняемых текущим потоком */
+    private final ThreadLocal<ArrayDeque<Path>> RUNNING;
+
+    /**
+     * Конструктор класса
+     */
+    private ScriptEngine() {
+        this.CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, Script> eldest) {
+                return this.size() > ScriptEngine.CACHE_SIZE;
+            }
+        };
+        this.RUNNING = ThreadLocal.withInitial(ArrayDeque::new);
+    }
+
+    /**
+     * Метод инициализации и получения единственного экземпляра данного класса
+     * @see ScriptEngine#engine
+     * @return ссылка на объект класса
+     */
+    public static ScriptEngine getInstance() {
+        if (ScriptEngine.engine == null) {
+            synchronized (ScriptEngine.class) {
+                if (ScriptEngine.engine == null)
+                    ScriptEngine.engine = new ScriptEngine();
+            }
+        }
+        return ScriptEngine.engine;
+    }
+
+    /**
+     * Класс строки скрипта с найденной командой
+     * @author Антропов Никита
+     * @version 1.0
+     */
+    private static final class Line {
+        /** Поле NUMBER - номер строки в файле скрипта */
+        private final int NUMBER;
+        /** Поле NAME - название команды */
+        private final String NAME;
+        /** Поле ARG - аргумент команды, пустая строка - без аргумента */
+        private final String ARG;
+        /** Поле COMMAND - ссылка на объект команды */
+        private final ICommand COMMAND;
+
+        /**
+         * Конструктор класса
+         * @param number - номер строки в файле скрипта
+         * @param name - название команды
+         * @param arg - аргумент команды
+         * @param command - ссылка на объект команды
+         */
+        private Line(int number, String name, String arg, ICommand command) {
+            this.NUMBER = number;
+            this.NAME = name;
+            this.ARG = arg;
+            this.COMMAND = command;
+        }
+    }
+
+    /**
+     * Класс скомпилированного скрипта
+     * @author Антропов Никита
+     * @version 1.0
+     */
+    private static final class Script {
+        /** Поле MODIFIED - время изменения файла при компиляции */
+        private final FileTime MODIFIED;
+        /** Поле SIZE - размер файла при компиляции */
+        private final long SIZE;
+        /** Поле LINES - команды скрипта */
+        private final List<Line> LINES;
+
+        /**
+         * Конструктор класса
+         * @param attributes - атрибуты файла при компиляции
+         * @param lines - команды скрипта
+         */
+        private Script(BasicFileAttributes attributes, List<Line> lines) {
+            this.MODIFIED = attributes.lastModifiedTime();
+            this.SIZE = attributes.size();
+            this.LINES = lines;
+        }
+
+        /**
+         * Проверка соответствия скомпилированного скрипта файлу
+         * @param attributes - текущие атрибуты файла
+         * @return true, если файл не изменялся после компиляции
+         */
+        private boolean isValid(BasicFileAttributes attributes) {
+            return this.MODIFIED.equals(attributes.lastModifiedTime()) && this.SIZE == attributes.size();
+        }
+    }
+
+    /**
+     * Выполнение скрипта из файла. Ошибка компиляции отменяет выполнение всего скрипта,
+     * ошибка выполнения команды прерывает скрипт на этой команде
+     * @param path - путь до файла скрипта
+     */
+    public void execute(Path path) throws IllegalArgumentException, UncheckedIOException {
+        Path real_path;
+        BasicFileAttributes attributes;
+        try {
+            real_path = path.toRealPath();
+            attributes = Files.readAttributes(real_path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть файл скрипта " + path + "\n", e);
+        }
+        ArrayDeque<Path> running = this.RUNNING.get();
+        if (running.contains(real_path))
+            throw new IllegalArgumentException("Рекурсивный вызов скрипта " + path + "\n");
+
+        Script script = this.compiled(real_path, attributes);
+        running.push(real_path);
+        try {
+            for (Line line : script.LINES) {
+                CommandHistory.current().push(line.NAME);
+                try {
+                    CommandInvoker.getInstance().execute(line.COMMAND, line.ARG);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Скрипт " + path + ", строка " + line.NUMBER + ": " +
+                            e.getMessage(), e);
+                }
+            }
+        } finally {
+            running.pop();
+        }
+    }
+
+    /**
+     * Получение скомпилированного скрипта из кэша или компиляция файла
+     * @param path - абсолютный путь до файла скрипта
+     * @param attributes - текущие атрибуты файла
+     * @return скомпилированный скрипт
+     */
+    private Script compiled(Path path, BasicFileAttributes attributes) throws UncheckedIOException {
+        synchronized (this.CACHE) {
+            Script script = this.CACHE.get(path);
+            if (script != null && script.isValid(attributes))
+                return script;
+        }
+
+        Script script = new Script(attributes, ScriptEngine.compile(path));
+        synchronized (this.CACHE) {
+            this.CACHE.put(path, script);
+        }
+        return script;
+    }
+
+    /**
+     * Чтение и компиляция файла скрипта. Пустые строки пропускаются
+     * @param path - путь до файла скрипта
+     * @return команды скрипта
+     */
+    private static List<Line> compile(Path path) throws IllegalArgumentException, UncheckedIOException {
+        CommandInvoker invoker = CommandInvoker.getInstance();
+        List<Line> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(Files.newBufferedReader(path, StandardCharsets.UTF_8),
+                ScriptEngine.BUFFER_SIZE)) {
+            int number = 0;
+            for (String text = reader.readLine(); text != null; text = reader.readLine()) {
+                number++;
+                String line = text.strip();
+                if (line.isEmpty())
+                    continue;
+                // Название команды отделяется от аргумента первым пробельным символом
+                int split = 0;
+                while (split < line.length() && !Character.isWhitespace(line.charAt(split)))
+                    split++;
+                String name = line.substring(0, split);
+                String arg = line.substring(split).strip();
+                try {
+                    ICommand command = invoker.find(name);
+                    if (!command.checkArg(arg.isEmpty() ? 0 : 1))
+                        throw new IllegalArgumentException("Неверное количество аргументов команды " + name + "\n");
+                    lines.add(new Line(number, name, arg, command));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Скрипт " + path + ", строка " + number + ": " +
+                            e.getMessage(), e);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать файл скрипта " + path + "\n", e);
+        }
+        return Collections.unmodifiableList(lines);
+    }
+}
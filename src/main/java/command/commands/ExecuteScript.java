@@ -11,7 +11,7 @@ import command.ICommand;
  */
 public class ExecuteScript implements ICommand {
     /** Поле command - единственный экземпляр данного класса */
-    private static ExecuteScript command;
+    private static volatile ExecuteScript command;
     /** Поле receiver - ссылка на объект получателя для выполнения команд*/
     private final AppCommandReceiver receiver;
     /** Поле arg_count - количество аргументов команды*/
@@ -34,8 +34,12 @@ public class ExecuteScript implements ICommand {
      * @return ссылку на объект класса
      */
     public static ExecuteScript getInstance() {
-        if (ExecuteScript.command == null)
-            ExecuteScript.command = new ExecuteScript();
+        if (ExecuteScript.command == null) {
+            synchronized (ExecuteScript.class) {
+                if (ExecuteScript.command == null)
+                    ExecuteScript.command = new ExecuteScript();
+            }
+        }
         return ExecuteScript.command;
     }
     /**
@@ -55,6 +59,12 @@ public class ExecuteScript implements ICommand {
             this.receiver.executeScript(arg);
     }
 
+    /**
+     * @see ICommand#isMutating()
+     */
+    @Override
+    public boolean isMutating() { return true; }
+
     /**
      * @see ICommand#getInfo()
      */
@@ -11,7 +11,7 @@ import command.ICommand;
  */
 public class Exit implements ICommand {
     /** Поле command - единственный экземпляр данного класса */
-    private static Exit command;
+    private static volatile Exit command;
     /** Поле receiver - ссылка на объект получателя для выполнения команд*/
     private final AppCommandReceiver receiver;
     /** Поле arg_count - количество аргументов команды*/
@@ -34,8 +34,12 @@ public class Exit implements ICommand {
      * @return ссылку на объект класса
      */
     public static Exit getInstance() {
-        if (Exit.command == null)
-            Exit.command = new Exit();
+        if (Exit.command == null) {
+            synchronized (Exit.class) {
+                if (Exit.command == null)
+                    Exit.command = new Exit();
+            }
+        }
         return Exit.command;
     }
 
@@ -55,6 +59,12 @@ public class Exit implements ICommand {
         this.receiver.exit();
     }
 
+    /**
+     * @see ICommand#isMutating()
+     */
+    @Override
+    public boolean isMutating() { return true; }
+
     /**
      * @see ICommand#getInfo()
      */
@@ -0,0 +1,70 @@
+package command.commands;
+
+import command.AppCommandReceiver;
+import command.CommandInvoker;
+import command.ICommand;
+
+/**
+ * Класс реализации команды вывода элементов коллекции, удовлетворяющих выражению фильтра
+ * @author Антропов Никита
+ * @version 1.0
+ */
+public class Filter implements ICommand {
+    /** Поле command - единственный экземпляр данного класса */
+    private static volatile Filter command;
+    /** Поле receiver - ссылка на объект получателя для выполнения команд*/
+    private final AppCommandReceiver receiver;
+    /** Поле arg_count - количество аргументов команды*/
+    private final int arg_count;
+
+    /**
+     * Конструктор класса
+     */
+    private Filter() {
+        this.receiver = AppCommandReceiver.getInstance();
+        String command_regex = "^filter[\s]*";
+        this.arg_count = 1;
+
+        CommandInvoker.getInstance().register(command_regex, this);
+    }
+
+    /**
+     * Метод инициализации и получения единственного экземпляра данного класса
+     * @see Filter#command
+     * @return ссылку на объект класса
+     */
+    public static Filter getInstance() {
+        if (Filter.command == null) {
+            synchronized (Filter.class) {
+                if (Filter.command == null)
+                    Filter.command = new Filter();
+            }
+        }
+        return Filter.command;
+    }
+    /**
+     * @see ICommand#checkArg(int)
+     */
+    @Override
+    public boolean checkArg(int arg_count) {
+        return this.arg_count == arg_count;
+    }
+
+    /**
+     * @see ICommand#execute(String)
+     */
+    @Override
+    public void execute(String arg) {
+        if (arg != null)
+            this.receiver.filter(arg);
+    }
+
+    /**
+     * @see ICommand#getInfo()
+     */
+    @Override
+    public String getInfo() {
+        return "filter expression - вывод элементов, удовлетворяющих выражению, например: " +
+                "height >= 170 and hair_color = Черные and name ^= \"Ив\"";
+    }
+}
@@ -14,7 +14,7 @@ import java.util.Set;
  */
 public class Help implements ICommand{
     /** Поле command - единственный экземпляр данного класса */
-    private static Help command;
+    private static volatile Help command;
     /** Поле receiver - ссылка на объект получателя для выполнения команд*/
     private final AppCommandReceiver receiver;
     /** Поле arg_count - количество аргументов команды*/
@@ -37,8 +37,12 @@ public class Help implements ICommand{
      * @return ссылку на объект класса
      */
     public static Help getInstance() {
-        if (Help.command == null)
-            Help.command = new Help();
+        if (Help.command == null) {
+            synchronized (Help.class) {
+                if (Help.command == null)
+                    Help.command = new Help();
+            }
+        }
         return Help.command;
     }
 
@@ -58,7 +62,7 @@ public class Help implements ICommand{
         Set<String> keys = CommandInvoker.getInstance().getCommandMap().keySet();
         String info = keys.stream().sorted(Comparator.naturalOrder()).reduce("", (str, e) -> str +
                 CommandInvoker.getInstance().getCommandMap().get(e).getInfo() + "\n");
-        this.receiver.executeScript(info);
+        this.receiver.help(info);
     }
 
     /**
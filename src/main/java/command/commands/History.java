@@ -15,7 +15,7 @@ import java.util.Set;
  */
 public class History implements ICommand{
     /** Поле command - единственный экземпляр данного класса */
-    private static History command;
+    private static volatile History command;
     /** Поле receiver - ссылка на объект получателя для выполнения команд*/
     private final AppCommandReceiver receiver;
     /** Поле arg_count - количество аргументов команды*/
@@ -38,8 +38,12 @@ public class History implements ICommand{
      * @return ссылку на объект класса
      */
     public static History getInstance() {
-        if (History.command == null)
-            History.command = new History();
+        if (History.command == null) {
+            synchronized (History.class) {
+                if (History.command == null)
+                    History.command = new History();
+            }
+        }
         return History.command;
     }
 
@@ -56,7 +60,7 @@ public class History implements ICommand{
      */
     @Override
     public void execute(String arg) {
-        this.receiver.executeScript(CommandHistory.getHistory());
+        this.receiver.history(CommandHistory.current().getHistory());
     }
 
     /**
@@ -64,6 +68,6 @@ public class History implements ICommand{
      */
     @Override
     public String getInfo() {
-        return "history - вывод последних 7 команд";
+        return "history - вывод последних команд текущего сеанса";
     }
 }
@@ -0,0 +1,83 @@
+package command.commands;
+
+import command.AppCommandReceiver;
+import command.CommandInvoker;
+import command.CommandStats;
+import command.ICommand;
+
+import java.util.Comparator;
+
+/**
+ * Класс реализации команды вывода и сброса статистики выполнения команд
+ * @author Антропов Никита
+ * @version 1.0
+ */
+public class Stats implements ICommand{
+    /** Поле command - единственный экземпляр данного класса */
+    private static volatile Stats command;
+    /** Поле receiver - ссылка на объект получателя для выполнения команд*/
+    private final AppCommandReceiver receiver;
+    /** Поле arg_count - количество аргументов команды*/
+    private final int arg_count;
+
+    /**
+     * Конструктор класса
+     */
+    private Stats() {
+        this.receiver = AppCommandReceiver.getInstance();
+        String command_regex = "^stats[\s]*";
+        this.arg_count = 1;
+
+        CommandInvoker.getInstance().register(command_regex, this);
+    }
+
+    /**
+     * Метод инициализации и получения единственного экземпляра данного класса
+     * @see Stats#command
+     * @return ссылку на объект класса
+     */
+    public static Stats getInstance() {
+        if (Stats.command == null) {
+            synchronized (Stats.class) {
+                if (Stats.command == null)
+                    Stats.command = new Stats();
+            }
+        }
+        return Stats.command;
+    }
+
+    /**
+     * @see ICommand#checkArg(int)
+     */
+    @Override
+    public boolean checkArg(int arg_count) {
+        return arg_count <= this.arg_count;
+    }
+
+    /**
+     * @see ICommand#execute(String)
+     */
+    @Override
+    public void execute(String arg) throws IllegalArgumentException {
+        if (arg.equals("reset")) {
+            CommandInvoker.getInstance().getStats().forEach(CommandStats::reset);
+            this.receiver.stats("Статистика команд сброшена\n");
+            return;
+        }
+        if (!arg.isEmpty())
+            throw new IllegalArgumentException("Неизвестный аргумент команды stats: " + arg + "\n");
+
+        StringBuilder stats = new StringBuilder();
+        CommandInvoker.getInstance().getStats().stream().sorted(Comparator.comparing(CommandStats::getName))
+                .forEach(stats::append);
+        this.receiver.stats(stats.toString());
+    }
+
+    /**
+     * @see ICommand#getInfo()
+     */
+    @Override
+    public String getInfo() {
+        return "stats [reset] - вывод статистики выполнения команд, с аргументом reset - сброс статистики";
+    }
+}
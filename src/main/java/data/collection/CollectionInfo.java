@@ -5,11 +5,14 @@ import java.time.format.DateTimeFormatter;
 import java.util.Locale;
 
 /**
- * Класс, содержащий информацию о коллекции данных
+ * Класс, содержащий информацию о коллекции данных. Изменение и чтение информации синхронизированы
  * @author Антропов Никита
  * @version 1.0
  */
-class CollectionInfo {
+public final class CollectionInfo {
+    /** Поле TIME_FORMAT - формат вывода времени и даты */
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("hh:mm:ss dd/MM/yyyy",
+            new Locale("ru"));
     /** Поле INIT_TIME - время и дата инициализации коллекции */
     private final String INIT_TIME;
     /** Поле DATA_TYPE - тип данных коллекции */
@@ -27,7 +30,7 @@ class CollectionInfo {
      * @param element_count - количество элементов
      */
     public CollectionInfo(String data_type, long element_count) {
-        this.INIT_TIME = this.timeFormat(LocalDateTime.now());
+        this.INIT_TIME = CollectionInfo.timeFormat(LocalDateTime.now());
         this.DATA_TYPE = data_type;
         this.last_update_time = "-";
         this.last_save_time = "-";
@@ -46,25 +49,45 @@ class CollectionInfo {
      * Изменение времени и даты последнего обновления коллекции
      * @param time - время и дата последнего обновления
      */
-    public void setUpdateTime(LocalDateTime time) {
+    public synchronized void setUpdateTime(LocalDateTime time) {
         if (time != null)
-            this.last_update_time = this.timeFormat(time);
+            this.last_update_time = CollectionInfo.timeFormat(time);
     }
 
     /**
      * Изменение времени и даты последнего сохранения коллекции
      * @param time - время и дата последнего сохранения
      */
-    public void setSaveTime(LocalDateTime time) {
+    public synchronized void setSaveTime(LocalDateTime time) {
         if (time != null)
-            this.last_save_time = this.timeFormat(time);
+            this.last_save_time = CollectionInfo.timeFormat(time);
+    }
+
+    /**
+     * Восстановление времени и даты последнего обновления и сохранения из сохраненной коллекции
+     * @param update_time - время и дата последнего обновления в виде строки
+     * @param save_time - время и дата последнего сохранения в виде строки
+     */
+    public synchronized void restoreTimes(String update_time, String save_time) {
+        if (update_time != null)
+            this.last_update_time = update_time;
+        if (save_time != null)
+            this.last_save_time = save_time;
+    }
+
+    /**
+     * Получение времени и даты последнего обновления коллекции
+     * @return время и дата последнего обновления в виде строки
+     */
+    public synchronized String getUpdateTime() {
+        return this.last_update_time;
     }
 
     /**
      * Изменение количества элементов коллекции
      * @param element_count - новое количество элементов
      */
-    public void setElementCount(long element_count) throws IndexOutOfBoundsException {
+    public synchronized void setElementCount(long element_count) throws IndexOutOfBoundsException {
         if (element_count < 0)
             throw new IndexOutOfBoundsException("Количество элементов коллекции не может быть отрицательным\n");
         this.element_count = element_count;
@@ -74,7 +97,7 @@ class CollectionInfo {
      * Получение информации по коллекции в виде строки
      * @return информация по коллекции в виде строки
      */
-    public String toString() {
+    public synchronized String toString() {
         return String.format("""
                         Тип данных: %s
                         Время инициализации: %s
@@ -90,7 +113,7 @@ class CollectionInfo {
      * @param time - время и дата
      * @return время и дата в виде строки
      */
-    private String timeFormat(LocalDateTime time) {
-        return DateTimeFormatter.ofPattern("hh:mm:ss dd/MM/yyyy", new Locale("ru")).format(time);
+    public static String timeFormat(LocalDateTime time) {
+        return CollectionInfo.TIME_FORMAT.format(time);
     }
 }
@@ -0,0 +1,112 @@
+package data.collection;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Класс группы слушателей изменений коллекции данных.
+ * Ошибка слушателя не прерывает уведомление остальных слушателей: она переводит коллекцию в режим
+ * только для чтения, так как изменение уже применено в памяти, но могло не попасть в хранилище,
+ * и сообщается клиенту после снятия блокировки записи
+ * @author Антропов Никита
+ * @version 1.0
+ */
+public final class CollectionListeners {
+    /** Поле LISTENERS - слушатели изменений коллекции */
+    private final CopyOnWriteArrayList<ICollectionListener> LISTENERS;
+    /** Поле FAILURE - первая ошибка слушателя, после которой коллекция доступна только для чтения */
+    private final AtomicReference<RuntimeException> FAILURE;
+    /** Поле change_failure - ошибка слушателя в текущем изменении, изменяется под блокировкой записи коллекции */
+    private RuntimeException change_failure;
+
+    /**
+     * Конструктор класса
+     */
+    public CollectionListeners() {
+        this.LISTENERS = new CopyOnWriteArrayList<>();
+        this.FAILURE = new AtomicReference<>();
+        this.change_failure = null;
+    }
+
+    /**
+     * Добавление слушателя изменений
+     * @param listener - слушатель изменений
+     */
+    public void add(ICollectionListener listener) { this.LISTENERS.add(listener); }
+
+    /**
+     * Удаление слушателя изменений
+     * @param listener - слушатель изменений
+     */
+    public void remove(ICollectionListener listener) { this.LISTENERS.remove(listener); }
+
+    /**
+     * Проверка того, что коллекция доступна для изменения. Вызывается после захвата блокировки записи
+     */
+    public void checkWritable() throws IllegalStateException {
+        RuntimeException failure = this.FAILURE.get();
+        if (failure != null)
+            throw new IllegalStateException("Коллекция доступна только для чтения: слушатель изменений завершился " +
+                    "с ошибкой\n", failure);
+    }
+
+    /**
+     * Уведомление всех слушателей об изменении. Вызывается под блокировкой записи коллекции
+     * @param notification - уведомление слушателя
+     */
+    public void fire(Consumer<ICollectionListener> notification) {
+        for (ICollectionListener listener : this.LISTENERS) {
+            try {
+                notification.accept(listener);
+            } catch (RuntimeException e) {
+                this.change_failure = this.fail(this.change_failure, e);
+            }
+        }
+    }
+
+    /**
+     * Получение и сброс ошибки текущего изменения. Вызывается под блокировкой записи перед ее снятием
+     * @see CollectionListeners#commit(RuntimeException)
+     * @return ошибка слушателя или null, если ошибок не было
+     */
+    public RuntimeException takeFailure() {
+        RuntimeException failure = this.change_failure;
+        this.change_failure = null;
+        return failure;
+    }
+
+    /**
+     * Уведомление всех слушателей о завершении изменения. Вызывается после снятия блокировки записи.
+     * Если слушатель завершился с ошибкой в изменении или при его завершении, ошибка выбрасывается
+     * после уведомления всех слушателей
+     * @see ICollectionListener#changesCommitted()
+     * @param failure - ошибка слушателя в изменении, полученная методом takeFailure, или null
+     */
+    public void commit(RuntimeException failure) throws RuntimeException {
+        for (ICollectionListener listener : this.LISTENERS) {
+            try {
+                listener.changesCommitted();
+            } catch (RuntimeException e) {
+                failure = this.fail(failure, e);
+            }
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    /**
+     * Запись ошибки слушателя и перевод коллекции в режим только для чтения
+     * @param first - первая ошибка текущего изменения или null
+     * @param e - новая ошибка
+     * @return первая ошибка текущего изменения с добавленной к ней новой ошибкой
+     */
+    private RuntimeException fail(RuntimeException first, RuntimeException e) {
+        this.FAILURE.compareAndSet(null, e);
+        if (first == null)
+            return e;
+        if (first != e)
+            first.addSuppressed(e);
+        return first;
+    }
+}
@@ -0,0 +1,80 @@
+package data.collection;
+
+import data.struct.Person;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Класс неизменяемого снимка коллекции данных определенной версии.
+ * Один снимок разделяется всеми читателями до следующего изменения коллекции
+ * @author Антропов Никита
+ * @version 1.0
+ */
+public final class CollectionSnapshot implements Iterable<Person> {
+    /** Поле VERSION - версия коллекции, с которой снят снимок */
+    private final long VERSION;
+    /** Поле LAST_ID - последний выданный id на момент снятия снимка */
+    private final long LAST_ID;
+    /** Поле ELEMENTS - неизменяемый список элементов коллекции, упорядоченных по id */
+    private final List<Person> ELEMENTS;
+    /** Поле UPDATE_TIME - время и дата последнего обновления коллекции на момент снятия снимка */
+    private final String UPDATE_TIME;
+
+    /**
+     * Конструктор класса
+     * @param version - версия коллекции
+     * @param last_id - последний выданный id
+     * @param elements - неизменяемый список элементов коллекции, упорядоченных по id
+     * @param update_time - время и дата последнего обновления коллекции в виде строки
+     */
+    CollectionSnapshot(long version, long last_id, List<Person> elements, String update_time) {
+        this.VERSION = version;
+        this.LAST_ID = last_id;
+        this.ELEMENTS = elements;
+        this.UPDATE_TIME = update_time;
+    }
+
+    /**
+     * Получение итератора снимка. Изменения коллекции не влияют на итератор
+     * @return ссылка на итератор снимка
+     */
+    @Override
+    public Iterator<Person> iterator() {
+        return this.ELEMENTS.iterator();
+    }
+
+    /**
+     * Получение версии коллекции, с которой снят снимок
+     * @see CollectionSnapshot#VERSION
+     * @return версия коллекции
+     */
+    public long getVersion() { return this.VERSION; }
+
+    /**
+     * Получение последнего выданного id на момент снятия снимка
+     * @see CollectionSnapshot#LAST_ID
+     * @return последний выданный id
+     */
+    public long getLastId() { return this.LAST_ID; }
+
+    /**
+     * Получение времени и даты последнего обновления коллекции на момент снятия снимка
+     * @see CollectionSnapshot#UPDATE_TIME
+     * @return время и дата последнего обновления в виде строки
+     */
+    public String getUpdateTime() { return this.UPDATE_TIME; }
+
+    /**
+     * Получение элементов снимка
+     * @see CollectionSnapshot#ELEMENTS
+     * @return неизменяемый список элементов, упорядоченных по id
+     */
+    public List<Person> getElements() { return this.ELEMENTS; }
+
+    /**
+     * Получение количества элементов снимка
+     * @return количество элементов
+     */
+    public int size() { return this.ELEMENTS.size(); }
+}
@@ -0,0 +1,131 @@
+package data.collection;
+
+import data.struct.Person;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Класс вторичного индекса коллекции по полю-перечислению (цвет глаз, цвет волос).
+ * Корзины индекса хранятся списками с разделяемой структурой, поэтому их снимки выдаются без копирования
+ * @see PersistentIdList
+ * @param <E> - тип перечисления
+ * @author Антропов Никита
+ * @version 1.0
+ */
+class ColorIndex<E extends Enum<E>> {
+    /** Поле BUCKETS - элементы коллекции, сгруппированные по значению поля */
+    private final EnumMap<E, PersistentIdList> BUCKETS;
+    /** Поле NULL_BUCKET - элементы коллекции с пустым значением поля */
+    private final PersistentIdList NULL_BUCKET;
+    /** Поле KEY - получение значения поля у элемента коллекции */
+    private final Function<Person, E> KEY;
+    /** Поле TYPE - класс перечисления */
+    private final Class<E> TYPE;
+    /** Поле VALUES - все значения перечисления в порядке объявления */
+    private final E[] VALUES;
+
+    /**
+     * Конструктор класса
+     * @param type - класс перечисления
+     * @param key - получение значения поля у элемента коллекции
+     */
+    public ColorIndex(Class<E> type, Function<Person, E> key) {
+        this.BUCKETS = new EnumMap<>(type);
+        this.NULL_BUCKET = new PersistentIdList();
+        this.KEY = key;
+        this.TYPE = type;
+        this.VALUES = type.getEnumConstants();
+        for (E value : this.VALUES)
+            this.BUCKETS.put(value, new PersistentIdList());
+    }
+
+    /**
+     * Добавление элемента в индекс
+     * @param person - элемент коллекции
+     */
+    public void add(Person person) {
+        this.bucket(this.KEY.apply(person)).add(person);
+    }
+
+    /**
+     * Добавление элементов в индекс. Элементы с id больше последнего id корзины добавляются за линейное время
+     * @param persons - элементы, упорядоченные по id
+     */
+    public void addAll(List<Person> persons) {
+        EnumMap<E, List<Person>> groups = new EnumMap<>(this.TYPE);
+        List<Person> no_value = new ArrayList<>();
+        for (Person person : persons) {
+            E value = this.KEY.apply(person);
+            if (value == null)
+                no_value.add(person);
+            else
+                groups.computeIfAbsent(value, e -> new ArrayList<>()).add(person);
+        }
+        groups.forEach((value, group) -> this.BUCKETS.get(value).addSorted(group));
+        this.NULL_BUCKET.addSorted(no_value);
+    }
+
+    /**
+     * Удаление элемента из индекса
+     * @param person - элемент коллекции
+     */
+    public void remove(Person person) {
+        this.bucket(this.KEY.apply(person)).remove(person);
+    }
+
+    /**
+     * Удаление всех элементов из индекса
+     */
+    public void clear() {
+        this.BUCKETS.values().forEach(PersistentIdList::clear);
+        this.NULL_BUCKET.clear();
+    }
+
+    /**
+     * Получение элементов с заданным значением поля, упорядоченных по id
+     * @param value - значение поля, null - пустое значение
+     * @return элементы с заданным значением поля
+     */
+    public PersistentIdList bucket(E value) {
+        return value == null ? this.NULL_BUCKET : this.BUCKETS.get(value);
+    }
+
+    /**
+     * Получение итератора на снимок элементов, упорядоченных по убыванию значения поля, затем по id.
+     * Элементы с пустым значением поля идут последними. Снимки корзин снимаются при вызове под блокировкой
+     * коллекции, обход итератора блокировки не требует
+     * @return итератор на элементы индекса
+     */
+    public Iterator<Person> descendingIterator() {
+        List<List<Person>> buckets = new ArrayList<>(this.VALUES.length + 1);
+        for (int ordinal = this.VALUES.length - 1; ordinal >= 0; ordinal--)
+            buckets.add(this.BUCKETS.get(this.VALUES[ordinal]).freeze());
+        buckets.add(this.NULL_BUCKET.freeze());
+
+        return new Iterator<>() {
+            /** Поле index - номер текущей корзины */
+            private int index = -1;
+            /** Поле current - итератор текущей корзины */
+            private Iterator<Person> current = null;
+
+            @Override
+            public boolean hasNext() {
+                while ((this.current == null || !this.current.hasNext()) && this.index + 1 < buckets.size())
+                    this.current = buckets.get(++this.index).iterator();
+                return this.current != null && this.current.hasNext();
+            }
+
+            @Override
+            public Person next() {
+                if (!this.hasNext())
+                    throw new NoSuchElementException();
+                return this.current.next();
+            }
+        };
+    }
+}
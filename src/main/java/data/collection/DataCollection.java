@@ -1,78 +1,360 @@
 package data.collection;
 
-import data.comparator.comparators.EyeColorComparator;
-import data.comparator.comparators.IdComparator;
+import data.comparator.ComparatorInvoker;
+import data.query.EQueryField;
+import data.query.PersonQuery;
+import data.struct.EEyeColor;
+import data.struct.EHairColor;
 import data.struct.Person;
-import iostream.console.ConsoleManager;
+import data.struct.StringDictionary;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
 import java.util.NoSuchElementException;
 import java.util.TreeSet;
-import java.util.function.Predicate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
 import java.util.stream.Collectors;
 
 /**
- * Класс взаимодействия с коллекцией данных TreeSet
+ * Класс взаимодействия с коллекцией данных.
+ * Изменения коллекции выполняются под блокировкой записи, поиск по id выполняется без блокировок.
+ * Элементы и корзины индексов цвета хранятся списками с разделяемой структурой, поэтому снимки для обхода
+ * выдаются без копирования элементов и не задерживают изменения.
+ * Ошибка слушателя изменений, например журнала, переводит коллекцию в режим только для чтения:
+ * изменение уже применено в памяти, но могло не попасть в хранилище
  * @author Антропов Никита
  * @version 1.0
  */
-public class DataCollection implements Iterable<Person> {
+public class DataCollection implements IPersonCollection {
+    /** Поле RANGE_COST - стоимость элемента диапазона упорядоченного индекса с учетом сортировки по id */
+    private static final int RANGE_COST = 4;
+
     /** Поле INFO - информация о коллекции */
     private final CollectionInfo INFO;
-    /** Поле collection - коллекция данных */
-    private TreeSet<Person> collection;
+    /** Поле collection - элементы коллекции, упорядоченные по id */
+    private final PersistentIdList collection;
+    /** Поле ID_INDEX - первичный индекс элементов коллекции по полю id */
+    private final ConcurrentHashMap<Long, Person> ID_INDEX;
+    /** Поле ID_SEQUENCE - последовательность id новых элементов */
+    private final IdSequence ID_SEQUENCE;
+    /** Поле HAIR_INDEX - вторичный индекс элементов коллекции по полю HAIR_COLOR */
+    private final ColorIndex<EHairColor> HAIR_INDEX;
+    /** Поле EYE_INDEX - вторичный индекс элементов коллекции по полю EYE_COLOR */
+    private final ColorIndex<EEyeColor> EYE_INDEX;
+    /** Поле ORDERED_INDEX - упорядоченные индексы по зарегистрированным сортировщикам */
+    private final HashMap<Comparator<Person>, TreeSet<Person>> ORDERED_INDEX;
+    /** Поле height_sum - сумма значений поля Height всех элементов */
+    private long height_sum;
+    /** Поле LOCK - блокировка коллекции и ее индексов */
+    private final StampedLock LOCK;
+    /** Поле version - версия коллекции, увеличивается при каждом изменении */
+    private long version;
+    /** Поле snapshot - снимок последней прочитанной версии коллекции */
+    private volatile CollectionSnapshot snapshot;
+    /** Поле LISTENERS - слушатели изменений коллекции */
+    private final CollectionListeners LISTENERS;
+    /** Поле batch_owner - поток, выполняющий группу изменений под удерживаемой блокировкой записи */
+    private volatile Thread batch_owner;
+    /** Поле batch_changed - признак изменения коллекции в текущей группе изменений */
+    private boolean batch_changed;
 
     /**
      * Конструктор класса
+     * @param last_id - последний выданный id сохраненной ранее коллекции
      */
-    public DataCollection() {
+    public DataCollection(long last_id) throws IllegalArgumentException {
         this.INFO = new CollectionInfo(Person.class.getSimpleName());
-        this.collection = new TreeSet<>();
+        this.collection = new PersistentIdList();
+        this.ID_INDEX = new ConcurrentHashMap<>();
+        this.ID_SEQUENCE = new IdSequence(last_id);
+        this.HAIR_INDEX = new ColorIndex<>(EHairColor.class, Person::getHairColor);
+        this.EYE_INDEX = new ColorIndex<>(EEyeColor.class, Person::getEyeColor);
+        this.ORDERED_INDEX = new HashMap<>();
+        // Элементы с равными значениями поля различаются по id
+        for (Comparator<Person> comparator : ComparatorInvoker.getInstance().getComparators())
+            this.ORDERED_INDEX.put(comparator, new TreeSet<>(comparator.thenComparingLong(Person::getId)));
+        this.height_sum = 0;
+        this.LOCK = new StampedLock();
+        this.version = 0;
+        this.snapshot = new CollectionSnapshot(0, last_id, List.of(), this.INFO.getUpdateTime());
+        this.LISTENERS = new CollectionListeners();
+        this.batch_owner = null;
+        this.batch_changed = false;
     }
 
     /**
-     * Получение итератора коллекции
+     * @see DataCollection#DataCollection(long)
+     */
+    public DataCollection() {
+        this(0);
+    }
+
+    /**
+     * Получение итератора коллекции по снимку ее текущей версии
+     * @see DataCollection#snapshot()
      * @return ссылка на итератор коллекции
      */
     @Override
     public Iterator<Person> iterator() {
-        return this.collection.iterator();
+        return this.snapshot().iterator();
     }
 
+    /**
+     * Получение снимка текущей версии коллекции. Снимок создается за O(1) без копирования элементов
+     * не больше одного раза на версию и разделяется всеми читателями, изменения коллекции не влияют
+     * на уже выданные снимки
+     * @see PersistentIdList#freeze()
+     * @return снимок коллекции
+     */
+    public CollectionSnapshot snapshot() {
+        CollectionSnapshot current = this.snapshot;
+        long stamp = this.LOCK.tryOptimisticRead();
+        long current_version = this.version;
+        if (this.LOCK.validate(stamp) && current.getVersion() == current_version)
+            return current;
+
+        stamp = this.lockRead();
+        try {
+            current = this.snapshot;
+            if (current.getVersion() != this.version) {
+                current = new CollectionSnapshot(this.version, this.ID_SEQUENCE.getLastId(),
+                        this.collection.freeze(), this.INFO.getUpdateTime());
+                this.snapshot = current;
+            }
+            return current;
+        } finally {
+            this.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Добавление слушателя изменений коллекции
+     * @param listener - слушатель изменений
+     */
+    @Override
+    public void addListener(ICollectionListener listener) { this.LISTENERS.add(listener); }
+
+    /**
+     * Удаление слушателя изменений коллекции
+     * @param listener - слушатель изменений
+     */
+    @Override
+    public void removeListener(ICollectionListener listener) { this.LISTENERS.remove(listener); }
+
     /**
      * Изменение последнего времени и даты сохранения коллекции
      * @param time - время и дата сохранения коллекции
      */
     public void setSaveTime(LocalDateTime time) { this.INFO.setSaveTime(time); }
 
+    /**
+     * Преобразование времени и даты в строковый формат информации о коллекции
+     * @see CollectionInfo#timeFormat(LocalDateTime)
+     * @param time - время и дата
+     * @return время и дата в виде строки
+     */
+    public static String formatTime(LocalDateTime time) { return CollectionInfo.timeFormat(time); }
+
     /**
      * Получение информации о коллекции
      * @return информация о коллекции в виде строки
      */
+    @Override
     public String getInfo() { return this.INFO.toString(); }
 
+    /**
+     * Получение времени и даты последнего обновления коллекции без создания снимка
+     * @see CollectionInfo#getUpdateTime()
+     * @return время и дата в виде строки
+     */
+    public String getUpdateTime() { return this.INFO.getUpdateTime(); }
+
+    /**
+     * Восстановление времени и даты последнего обновления и сохранения при загрузке сохраненной коллекции
+     * @see CollectionInfo#restoreTimes(String, String)
+     * @param update_time - время и дата последнего обновления в виде строки
+     * @param save_time - время и дата последнего сохранения в виде строки
+     */
+    public void restoreInfo(String update_time, String save_time) {
+        this.INFO.restoreTimes(update_time, save_time);
+    }
+
+    /**
+     * Получение последнего выданного id для сохранения вместе с коллекцией
+     * @see IdSequence#getLastId()
+     * @return последний выданный id
+     */
+    @Override
+    public long getLastId() { return this.ID_SEQUENCE.getLastId(); }
+
+    /**
+     * Выполнение группы изменений под одной блокировкой записи. Методы коллекции, вызванные из группы
+     * тем же потоком, не захватывают блокировку повторно; информация о коллекции изменяется один раз,
+     * а слушатели получают одно уведомление о завершении изменения после выполнения всей группы.
+     * Исключение, выброшенное из группы, не отменяет уже выполненные изменения
+     * @see ICollectionListener#changesCommitted()
+     * @param body - группа изменений
+     */
+    @Override
+    public void batch(Runnable body) {
+        if (this.batch_owner == Thread.currentThread()) {
+            body.run();
+            return;
+        }
+        long stamp = this.LOCK.writeLock();
+        this.checkWritable(stamp);
+        this.batch_owner = Thread.currentThread();
+        try {
+            body.run();
+        } finally {
+            this.batch_owner = null;
+            if (this.batch_changed) {
+                this.batch_changed = false;
+                this.updateInfo();
+            }
+            this.unlockWrite(stamp);
+        }
+    }
+
     /**
      * Добавление элемента в коллекцию
      * @param person - новый элемент
      */
+    @Override
     public void addElement(Person person) throws IndexOutOfBoundsException {
-        // Генерация id
-        person.Id(this.collection.size() + 1);
-        this.collection.add(person);
-        // Изменение информации о коллекции
-        this.INFO.setUpdateTime(LocalDateTime.now());
-        this.INFO.setElementCount(this.collection.size());
+        // Генерация id без обращения к коллекции
+        person.Id(this.ID_SEQUENCE.next());
+        long stamp = this.lockWrite();
+        try {
+            this.indexElement(person);
+            this.changed();
+            this.LISTENERS.fire(e -> e.elementSaved(person));
+        } finally {
+            this.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Добавление группы новых элементов в коллекцию одним изменением: id выдаются одним диапазоном,
+     * индексы дополняются из отсортированных данных, информация о коллекции изменяется один раз
+     * @param persons - новые элементы
+     */
+    @Override
+    public void addElements(List<Person> persons) throws IndexOutOfBoundsException {
+        if (persons.isEmpty())
+            return;
+        long first_id = this.ID_SEQUENCE.reserve(persons.size());
+        for (int i = 0; i < persons.size(); i++)
+            persons.get(i).Id(first_id + i);
+        long stamp = this.lockWrite();
+        try {
+            this.bulkIndexElements(persons);
+            this.changed();
+            persons.forEach(person -> this.LISTENERS.fire(e -> e.elementSaved(person)));
+        } finally {
+            this.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Загрузка элементов с уже заданными id, например из сохраненной коллекции.
+     * Элемент с совпадающим id заменяется, информация о коллекции изменяется один раз.
+     * Если коллекция пуста, а элементы упорядочены по возрастанию id, индексы строятся за линейное время
+     * @param persons - элементы с заданными id
+     */
+    @Override
+    public void loadElements(Collection<Person> persons) throws IllegalArgumentException {
+        if (persons.isEmpty())
+            return;
+        if (persons.stream().anyMatch(e -> e.getId() <= 0))
+            throw new IllegalArgumentException("Поле id должно быть больше 0\n");
+        long stamp = this.lockWrite();
+        try {
+            if (this.ID_INDEX.isEmpty() && DataCollection.isSortedById(persons)) {
+                List<Person> sorted = persons instanceof List ? (List<Person>) persons : new ArrayList<>(persons);
+                this.bulkIndexElements(sorted);
+                this.ID_SEQUENCE.advanceTo(sorted.get(sorted.size() - 1).getId());
+                sorted.forEach(person -> this.LISTENERS.fire(e -> e.elementSaved(person)));
+                this.changed();
+                return;
+            }
+            for (Person person : persons) {
+                Person old_person = this.ID_INDEX.get(person.getId());
+                if (old_person != null)
+                    this.unindexElement(old_person);
+                this.indexElement(person);
+                this.ID_SEQUENCE.advanceTo(person.getId());
+                this.LISTENERS.fire(e -> e.elementSaved(person));
+            }
+            this.changed();
+        } finally {
+            this.unlockWrite(stamp);
+        }
     }
 
     /**
      * Добавление элемента в коллекцию, если его значение превышает значение максимального элемента этой коллекции
+     * @param person - новый элемент
+     * @param comparator - сортировщик, по которому сравниваются элементы
      */
-    public void addMaxElement(Person person, Comparator<Person> comparator) {
-        Person max_element = this.collection.stream().max(comparator).orElse(null);
-        if (comparator.compare(max_element, person) < 0)
-            this.addElement(person);
+    @Override
+    public void addMaxElement(Person person, Comparator<Person> comparator) throws IndexOutOfBoundsException {
+        long stamp = this.lockWrite();
+        try {
+            Person max_element = this.maxElement(comparator);
+            if (max_element != null && comparator.compare(max_element, person) >= 0)
+                return;
+            person.Id(this.ID_SEQUENCE.next());
+            this.indexElement(person);
+            this.changed();
+            this.LISTENERS.fire(e -> e.elementSaved(person));
+        } finally {
+            this.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Получение максимального элемента коллекции. Для зарегистрированных сортировщиков
+     * используется упорядоченный индекс, для остальных - полный обход коллекции
+     * @see ComparatorInvoker
+     * @param comparator - сортировщик, по которому сравниваются элементы
+     * @return максимальный элемент или null, если коллекция пуста
+     */
+    @Override
+    public Person getMaxElement(Comparator<Person> comparator) {
+        long stamp = this.lockRead();
+        try {
+            return this.maxElement(comparator);
+        } finally {
+            this.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Получение минимального элемента коллекции
+     * @see DataCollection#getMaxElement(Comparator)
+     * @param comparator - сортировщик, по которому сравниваются элементы
+     * @return минимальный элемент или null, если коллекция пуста
+     */
+    @Override
+    public Person getMinElement(Comparator<Person> comparator) {
+        long stamp = this.lockRead();
+        try {
+            TreeSet<Person> index = this.ORDERED_INDEX.get(comparator);
+            if (index != null)
+                return index.isEmpty() ? null : index.first();
+            return this.collection.stream().min(comparator).orElse(null);
+        } finally {
+            this.unlockRead(stamp);
+        }
     }
 
     /**
@@ -80,13 +362,20 @@ public class DataCollection implements Iterable<Person> {
      * @param person - новый элемент коллекции
      * @param id - id элемента коллекции
      */
+    @Override
     public void updateElement(Person person, long id) throws IndexOutOfBoundsException, NoSuchElementException {
-        if (this.checkId(id)) {
-            person.Id(id);
-            this.collection = this.collection.stream().map(e -> e = e.getId() == id ? person : e)
-                    .collect(Collectors.toCollection(TreeSet<Person>::new));
-            // Изменение информации о коллекции
-            this.INFO.setUpdateTime(LocalDateTime.now());
+        long stamp = this.lockWrite();
+        try {
+            if (this.checkId(id)) {
+                person.Id(id);
+                // Замена элемента на месте: старый и новый элементы равны при сравнении по id
+                this.unindexElement(this.ID_INDEX.get(id));
+                this.indexElement(person);
+                this.changed();
+                this.LISTENERS.fire(e -> e.elementSaved(person));
+            }
+        } finally {
+            this.unlockWrite(stamp);
         }
     }
 
@@ -94,56 +383,142 @@ public class DataCollection implements Iterable<Person> {
      * Удаление элемента коллекции по id
      * @param id - id элемента коллекции
      */
+    @Override
     public void removeElement(long id) throws IndexOutOfBoundsException, NoSuchElementException {
-        if (this.checkId(id)) {
-            this.collection = this.collection.stream().filter(e -> e.getId() != id)
-                    .collect(Collectors.toCollection(TreeSet<Person>::new));
-            // Изменение информации о коллекции
-            this.INFO.setUpdateTime(LocalDateTime.now());
-            this.INFO.setElementCount(this.collection.size());
+        long stamp = this.lockWrite();
+        try {
+            if (this.checkId(id)) {
+                this.unindexElement(this.ID_INDEX.get(id));
+                this.changed();
+                this.LISTENERS.fire(e -> e.elementsRemoved(new long[] {id}));
+            }
+        } finally {
+            this.unlockWrite(stamp);
         }
     }
 
     /**
-     * Удаление всех элементов коллекции, которые меньше заданного
+     * Удаление всех элементов коллекции, которые меньше заданного. Для зарегистрированных сортировщиков
+     * удаляется начальный диапазон упорядоченного индекса, для остальных выполняется полный обход коллекции
+     * @see ComparatorInvoker
      * @param person - заданный элемент
-     * @param predicate - правило фильтра элементов коллекции
+     * @param comparator - сортировщик, по которому сравниваются элементы
      */
-    public void removeLowerElement(Person person, Predicate<Person> predicate) throws IndexOutOfBoundsException {
-        this.collection = this.collection.stream().filter(predicate).sorted()
-                .collect(Collectors.toCollection(TreeSet<Person>::new));
-        // Изменение информации о коллекции
-        this.INFO.setUpdateTime(LocalDateTime.now());
-        this.INFO.setElementCount(this.collection.size());
+    @Override
+    public void removeLowerElement(Person person, Comparator<Person> comparator) throws IndexOutOfBoundsException {
+        long stamp = this.lockWrite();
+        try {
+            TreeSet<Person> index = this.ORDERED_INDEX.get(comparator);
+            List<Person> lower = index != null ? new ArrayList<>(index.headSet(person, false)) : this.collection
+                    .stream().filter(e -> comparator.compare(e, person) < 0).collect(Collectors.toList());
+            // Индекс различает равные элементы по id, поэтому элементы с равным значением поля исключаются из диапазона
+            while (!lower.isEmpty() && comparator.compare(lower.get(lower.size() - 1), person) == 0)
+                lower.remove(lower.size() - 1);
+            if (lower.isEmpty())
+                return;
+            lower.forEach(this::unindexElement);
+            this.changed();
+            long[] ids = lower.stream().mapToLong(Person::getId).toArray();
+            this.LISTENERS.fire(e -> e.elementsRemoved(ids));
+        } finally {
+            this.unlockWrite(stamp);
+        }
     }
 
     /**
      * Удаление всех элементов коллекции
      */
+    @Override
     public void clearElement() throws IndexOutOfBoundsException {
-        this.collection.clear();
-        // Изменение информации о коллекции
-        this.INFO.setUpdateTime(LocalDateTime.now());
-        this.INFO.setElementCount(this.collection.size());
+        long stamp = this.lockWrite();
+        try {
+            this.collection.clear();
+            this.ID_INDEX.clear();
+            this.HAIR_INDEX.clear();
+            this.EYE_INDEX.clear();
+            this.ORDERED_INDEX.values().forEach(TreeSet::clear);
+            this.height_sum = 0;
+            this.changed();
+            this.LISTENERS.fire(ICollectionListener::collectionCleared);
+        } finally {
+            this.unlockWrite(stamp);
+        }
     }
 
     /**
      * Получение суммы значений поля Height всех элементов
      * @return сумма значений поля Height
      */
-    public Integer sumOfHeight() {
-        return this.collection.stream().mapToInt(Person::getHeight).sum();
+    @Override
+    public long sumOfHeight() {
+        // Оптимистичное чтение без блокировки, повторное чтение под блокировкой при конкурентном изменении
+        long stamp = this.LOCK.tryOptimisticRead();
+        long sum = this.height_sum;
+        if (!this.LOCK.validate(stamp)) {
+            stamp = this.lockRead();
+            try {
+                sum = this.height_sum;
+            } finally {
+                this.unlockRead(stamp);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Сжатие словарей имен: удаление строк, которые больше не используются ни одним объектом Person или Location,
+     * в том числе вне коллекции. Блокировка коллекции не требуется
+     * @see StringDictionary#compact()
+     * @return количество удаленных строк
+     */
+    public int compactDictionaries() {
+        return StringDictionary.PERSON_NAMES.compact() + StringDictionary.LOCATION_NAMES.compact();
     }
 
     /**
-     * Получение итератора на коллекцию с фильтром по заданному цвету волос
+     * Получение итератора на снимок коллекции с фильтром по заданному цвету волос.
+     * Снимок корзины индекса создается без копирования элементов
      * @param hair_color - заданный цвет волос
      * @return итератор на коллекцию с элементами, у которых значение поля HAIR_COLOR равно заданному
      */
+    @Override
     public Iterator<Person> filterByHairColor(String hair_color) throws NoSuchElementException{
-        if (!Person.getAvailableHairColor().contains(hair_color))
-            throw new NoSuchElementException("Поле Цвет Волос не содержит значения " + hair_color + "\n");
-        return this.collection.stream().filter(e -> hair_color.equals(e.getHairColorName())).iterator();
+        EHairColor color = EHairColor.getByName(hair_color);
+        long stamp = this.lockRead();
+        try {
+            return this.HAIR_INDEX.bucket(color).freeze().iterator();
+        } finally {
+            this.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Получение элементов, удовлетворяющих выражению фильтра, упорядоченных по id.
+     * Проверяются только элементы, выбранные наиболее избирательным из доступных способов: корзиной индекса цвета,
+     * диапазоном упорядоченного индекса по обязательным условиям выражения или полным обходом коллекции
+     * @see PersonQuery
+     * @param query - скомпилированное выражение фильтра
+     * @return подходящие элементы
+     */
+    @Override
+    public List<Person> filter(PersonQuery query) {
+        List<Person> result = new ArrayList<>();
+        if (query.isEmpty())
+            return result;
+        long stamp = this.lockRead();
+        try {
+            Collection<Person> candidates = this.plan(query);
+            for (Person person : candidates) {
+                if (query.test(person))
+                    result.add(person);
+            }
+            // Коллекция и корзины индексов цвета упорядочены по id, диапазоны упорядоченных индексов - по полю
+            if (candidates instanceof NavigableSet && ((NavigableSet<Person>) candidates).comparator() != null)
+                result.sort(null);
+            return result;
+        } finally {
+            this.unlockRead(stamp);
+        }
     }
 
     /**
@@ -151,34 +526,252 @@ public class DataCollection implements Iterable<Person> {
      * @param id - id элемента
      * @return ссылка на найденный элемент
      */
+    @Override
     public Person findById(long id) throws IndexOutOfBoundsException, NoSuchElementException{
         if (id <= 0)
             throw new IndexOutOfBoundsException("Поле id должно быть больше 0\n");
-        return this.collection.stream().filter(e -> e.getId() == id).findAny()
-                .orElseThrow(() -> new NoSuchElementException("Элемента с заданным id не существует\n"));
+        Person person = this.ID_INDEX.get(id);
+        if (person == null)
+            throw new NoSuchElementException("Элемента с заданным id не существует\n");
+        return person;
     }
 
     /**
-     * Получение итератора на коллекцию, отсортированную по полю EYE_COLOR
+     * Получение итератора на снимок коллекции, отсортированный по убыванию поля EYE_COLOR, затем по id.
+     * Элементы без цвета глаз идут последними, снимки корзин индекса создаются без копирования элементов
      * @return итератор на коллекцию, отсортированную по полю EYE_COLOR
      */
+    @Override
     public Iterator<Person> getFieldDescendingByEyeColor() {
-        ConsoleManager console = ConsoleManager.getInstance();
-        return this.collection.stream().sorted(new EyeColorComparator().reversed()
-                .thenComparing(new IdComparator())).iterator();
+        long stamp = this.lockRead();
+        try {
+            return this.EYE_INDEX.descendingIterator();
+        } finally {
+            this.unlockRead(stamp);
+        }
     }
 
     /**
-     * Проверка наличия элемента с заданным id в коллекции
+     * Получение максимального элемента коллекции без блокировки
+     * @see DataCollection#getMaxElement(Comparator)
+     * @param comparator - сортировщик, по которому сравниваются элементы
+     * @return максимальный элемент или null, если коллекция пуста
+     */
+    private Person maxElement(Comparator<Person> comparator) {
+        TreeSet<Person> index = this.ORDERED_INDEX.get(comparator);
+        if (index != null)
+            return index.isEmpty() ? null : index.last();
+        return this.collection.stream().max(comparator).orElse(null);
+    }
+
+    /**
+     * Выбор элементов для проверки выражением фильтра. Вызывается под блокировкой чтения.
+     * Размер корзины индекса цвета известен сразу, элементы диапазонов упорядоченных индексов подсчитываются
+     * не дальше стоимости лучшего из уже найденных способов, поэтому выбор не дороже самой проверки
+     * @param query - скомпилированное выражение фильтра
+     * @return элементы, среди которых находятся все подходящие
+     */
+    private Collection<Person> plan(PersonQuery query) {
+        Collection<Person> best = this.collection;
+        int best_size = this.collection.size();
+        if (query.getHairColor() != null && this.HAIR_INDEX.bucket(query.getHairColor()).size() < best_size) {
+            best = this.HAIR_INDEX.bucket(query.getHairColor());
+            best_size = best.size();
+        }
+        if (query.getEyeColor() != null && this.EYE_INDEX.bucket(query.getEyeColor()).size() < best_size) {
+            best = this.EYE_INDEX.bucket(query.getEyeColor());
+            best_size = best.size();
+        }
+
+        for (EQueryField field : EQueryField.values()) {
+            if (field.getComparator() == null)
+                continue;
+            TreeSet<Person> index = this.ORDERED_INDEX.get(ComparatorInvoker.getInstance()
+                    .getComparator(field.getComparator()));
+            Person low = query.getLowProbe(field);
+            Person high = query.getHighProbe(field);
+            if (index == null || (low == null && high == null))
+                continue;
+            NavigableSet<Person> range;
+            if (low == null)
+                range = index.headSet(high, true);
+            else if (high == null)
+                range = index.tailSet(low, true);
+            else if (index.comparator().compare(low, high) > 0)
+                return new ArrayList<>();
+            else
+                range = index.subSet(low, true, high, true);
+
+            int limit = best_size / DataCollection.RANGE_COST;
+            int size = 0;
+            for (Iterator<Person> iterator = range.iterator(); iterator.hasNext() && size < limit; iterator.next())
+                size++;
+            if (size < limit) {
+                best = range;
+                best_size = size * DataCollection.RANGE_COST;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Проверка наличия элемента с заданным id в коллекции. Вызывается под блокировкой записи
      * @param id - id элемента
      * @return true, если элемент найден
      */
     private boolean checkId(long id) throws IndexOutOfBoundsException, NoSuchElementException {
         if (id <= 0)
             throw new IndexOutOfBoundsException("Поле id должно быть больше 0\n");
-        if (this.collection.stream().noneMatch(e -> e.getId() == id))
+        if (!this.ID_INDEX.containsKey(id))
             throw new NoSuchElementException("Элемента с заданным id не существует\n");
 
         return true;
     }
+
+    /**
+     * Добавление элемента во все индексы коллекции. Вызывается под блокировкой записи
+     * @param person - элемент коллекции с заданным id
+     */
+    private void indexElement(Person person) {
+        this.collection.add(person);
+        this.ID_INDEX.put(person.getId(), person);
+        this.HAIR_INDEX.add(person);
+        this.EYE_INDEX.add(person);
+        this.ORDERED_INDEX.values().forEach(e -> e.add(person));
+        this.height_sum += person.getHeight();
+    }
+
+    /**
+     * Захват блокировки записи. Внутри группы изменений блокировка уже удерживается текущим потоком
+     * @see DataCollection#batch(Runnable)
+     * @return метка блокировки записи, 0 - внутри группы изменений
+     */
+    private long lockWrite() throws IllegalStateException {
+        if (this.batch_owner == Thread.currentThread())
+            return 0;
+        long stamp = this.LOCK.writeLock();
+        this.checkWritable(stamp);
+        return stamp;
+    }
+
+    /**
+     * Проверка того, что коллекция доступна для изменения. Если слушатель ранее завершился с ошибкой,
+     * блокировка записи снимается и выбрасывается исключение
+     * @see CollectionListeners#checkWritable()
+     * @param stamp - метка захваченной блокировки записи
+     */
+    private void checkWritable(long stamp) throws IllegalStateException {
+        try {
+            this.LISTENERS.checkWritable();
+        } catch (IllegalStateException e) {
+            this.LOCK.unlockWrite(stamp);
+            throw e;
+        }
+    }
+
+    /**
+     * Захват блокировки чтения. Внутри группы изменений блокировка записи уже удерживается текущим потоком
+     * @see DataCollection#batch(Runnable)
+     * @return метка блокировки чтения, 0 - внутри группы изменений
+     */
+    private long lockRead() {
+        return this.batch_owner == Thread.currentThread() ? 0 : this.LOCK.readLock();
+    }
+
+    /**
+     * Снятие блокировки чтения
+     * @param stamp - метка блокировки чтения, 0 - внутри группы изменений
+     */
+    private void unlockRead(long stamp) {
+        if (stamp != 0)
+            this.LOCK.unlockRead(stamp);
+    }
+
+    /**
+     * Снятие блокировки записи и уведомление слушателей о завершении изменения.
+     * Внутри группы изменений уведомление откладывается до завершения группы.
+     * Если слушатель завершился с ошибкой, ошибка выбрасывается после уведомления всех слушателей
+     * @see ICollectionListener#changesCommitted()
+     * @param stamp - метка блокировки записи, 0 - внутри группы изменений
+     */
+    private void unlockWrite(long stamp) throws RuntimeException {
+        if (stamp == 0)
+            return;
+        RuntimeException failure = this.LISTENERS.takeFailure();
+        this.LOCK.unlockWrite(stamp);
+        this.LISTENERS.commit(failure);
+    }
+
+    /**
+     * Увеличение версии коллекции и изменение информации о ней. Вызывается под блокировкой записи.
+     * Внутри группы изменений информация о коллекции изменяется при завершении группы
+     */
+    private void changed() {
+        this.version++;
+        if (this.batch_owner == Thread.currentThread())
+            this.batch_changed = true;
+        else
+            this.updateInfo();
+    }
+
+    /**
+     * Изменение времени последнего обновления и количества элементов в информации о коллекции
+     */
+    private void updateInfo() {
+        this.INFO.setUpdateTime(LocalDateTime.now());
+        this.INFO.setElementCount(this.ID_INDEX.size());
+    }
+
+    /**
+     * Добавление группы элементов во все индексы коллекции. Вызывается под блокировкой записи.
+     * Пустые индексы строятся из отсортированных данных за линейное время, в непустые индексы
+     * элементы добавляются по одному
+     * @param persons - элементы с заданными id, упорядоченные по id, которых еще нет в коллекции
+     */
+    private void bulkIndexElements(List<Person> persons) {
+        this.collection.addSorted(persons);
+        for (Person person : persons) {
+            this.ID_INDEX.put(person.getId(), person);
+            this.height_sum += person.getHeight();
+        }
+        this.HAIR_INDEX.addAll(persons);
+        this.EYE_INDEX.addAll(persons);
+        for (TreeSet<Person> index : this.ORDERED_INDEX.values()) {
+            if (index.isEmpty()) {
+                Person[] sorted = persons.toArray(new Person[0]);
+                Arrays.parallelSort(sorted, index.comparator());
+                index.addAll(new SortedListView<>(Arrays.asList(sorted), index.comparator()));
+            }
+            else
+                index.addAll(persons);
+        }
+    }
+
+    /**
+     * Проверка упорядоченности элементов по строгому возрастанию id
+     * @param persons - элементы с заданными id
+     * @return true, если каждый следующий id больше предыдущего
+     */
+    private static boolean isSortedById(Collection<Person> persons) {
+        long last_id = 0;
+        for (Person person : persons) {
+            if (person.getId() <= last_id)
+                return false;
+            last_id = person.getId();
+        }
+        return true;
+    }
+
+    /**
+     * Удаление элемента из всех индексов коллекции. Вызывается под блокировкой записи
+     * @param person - элемент коллекции
+     */
+    private void unindexElement(Person person) {
+        this.collection.remove(person);
+        this.ID_INDEX.remove(person.getId());
+        this.HAIR_INDEX.remove(person);
+        this.EYE_INDEX.remove(person);
+        this.ORDERED_INDEX.values().forEach(e -> e.remove(person));
+        this.height_sum -= person.getHeight();
+    }
 }
@@ -0,0 +1,37 @@
+package data.collection;
+
+import data.struct.Person;
+
+/**
+ * Интерфейс слушателя изменений коллекции данных на базе паттерна Наблюдатель.
+ * Методы изменений вызываются под блокировкой записи коллекции в порядке применения изменений,
+ * метод changesCommitted вызывается тем же потоком после снятия блокировки.
+ * Исключение слушателя не прерывает уведомление остальных слушателей, переводит коллекцию в режим
+ * только для чтения и выбрасывается клиенту, изменившему коллекцию
+ * @author Антропов Никита
+ * @version 1.0
+ */
+public interface ICollectionListener {
+    /**
+     * Добавление или замена элемента коллекции
+     * @param person - элемент с заданным id
+     */
+    void elementSaved(Person person);
+
+    /**
+     * Удаление элементов коллекции
+     * @param ids - id удаленных элементов
+     */
+    void elementsRemoved(long[] ids);
+
+    /**
+     * Удаление всех элементов коллекции
+     */
+    void collectionCleared();
+
+    /**
+     * Завершение изменения коллекции. Вызывается без блокировки коллекции,
+     * поэтому здесь можно выполнять долгие операции, например запись на диск
+     */
+    void changesCommitted();
+}
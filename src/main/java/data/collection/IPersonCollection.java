@@ -0,0 +1,148 @@
+package data.collection;
+
+import data.query.PersonQuery;
+import data.struct.Person;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Интерфейс коллекции данных, с которой работают команды, журнал изменений и хранилища.
+ * Реализации хранят элементы в памяти или в файле снимка с кэшем, поведение для клиента одинаково
+ * @see DataCollection
+ * @author Антропов Никита
+ * @version 1.0
+ */
+public interface IPersonCollection extends Iterable<Person> {
+    /**
+     * Добавление слушателя изменений коллекции
+     * @param listener - слушатель изменений
+     */
+    void addListener(ICollectionListener listener);
+
+    /**
+     * Удаление слушателя изменений коллекции
+     * @param listener - слушатель изменений
+     */
+    void removeListener(ICollectionListener listener);
+
+    /**
+     * Получение информации о коллекции
+     * @return информация о коллекции в виде строки
+     */
+    String getInfo();
+
+    /**
+     * Получение последнего выданного id
+     * @return последний выданный id
+     */
+    long getLastId();
+
+    /**
+     * Выполнение группы изменений под одной блокировкой записи, слушатели получают одно уведомление
+     * о завершении изменения после выполнения всей группы
+     * @param body - группа изменений
+     */
+    void batch(Runnable body);
+
+    /**
+     * Добавление элемента в коллекцию с выдачей нового id
+     * @param person - новый элемент
+     */
+    void addElement(Person person) throws IndexOutOfBoundsException;
+
+    /**
+     * Добавление группы новых элементов в коллекцию одним изменением
+     * @param persons - новые элементы
+     */
+    void addElements(List<Person> persons) throws IndexOutOfBoundsException;
+
+    /**
+     * Загрузка элементов с уже заданными id, элемент с совпадающим id заменяется
+     * @param persons - элементы с заданными id
+     */
+    void loadElements(Collection<Person> persons) throws IllegalArgumentException;
+
+    /**
+     * Добавление элемента в коллекцию, если его значение превышает значение максимального элемента коллекции
+     * @param person - новый элемент
+     * @param comparator - сортировщик, по которому сравниваются элементы
+     */
+    void addMaxElement(Person person, Comparator<Person> comparator) throws IndexOutOfBoundsException;
+
+    /**
+     * Получение максимального элемента коллекции
+     * @param comparator - сортировщик, по которому сравниваются элементы
+     * @return максимальный элемент или null, если коллекция пуста
+     */
+    Person getMaxElement(Comparator<Person> comparator);
+
+    /**
+     * Получение минимального элемента коллекции
+     * @param comparator - сортировщик, по которому сравниваются элементы
+     * @return минимальный элемент или null, если коллекция пуста
+     */
+    Person getMinElement(Comparator<Person> comparator);
+
+    /**
+     * Изменение элемента коллекции по id
+     * @param person - новый элемент коллекции
+     * @param id - id элемента коллекции
+     */
+    void updateElement(Person person, long id) throws IndexOutOfBoundsException, NoSuchElementException;
+
+    /**
+     * Удаление элемента коллекции по id
+     * @param id - id элемента коллекции
+     */
+    void removeElement(long id) throws IndexOutOfBoundsException, NoSuchElementException;
+
+    /**
+     * Удаление всех элементов коллекции, которые меньше заданного
+     * @param person - заданный элемент
+     * @param comparator - сортировщик, по которому сравниваются элементы
+     */
+    void removeLowerElement(Person person, Comparator<Person> comparator) throws IndexOutOfBoundsException;
+
+    /**
+     * Удаление всех элементов коллекции
+     */
+    void clearElement() throws IndexOutOfBoundsException;
+
+    /**
+     * Получение суммы значений поля Height всех элементов
+     * @return сумма значений поля Height
+     */
+    long sumOfHeight();
+
+    /**
+     * Получение итератора на коллекцию с фильтром по заданному цвету волос в порядке возрастания id
+     * @param hair_color - заданный цвет волос
+     * @return итератор на коллекцию с элементами, у которых значение поля HAIR_COLOR равно заданному
+     */
+    Iterator<Person> filterByHairColor(String hair_color) throws NoSuchElementException;
+
+    /**
+     * Получение элементов, удовлетворяющих выражению фильтра, упорядоченных по id
+     * @param query - скомпилированное выражение фильтра
+     * @return подходящие элементы
+     */
+    List<Person> filter(PersonQuery query);
+
+    /**
+     * Поиск элемента с заданным id
+     * @param id - id элемента
+     * @return ссылка на найденный элемент
+     */
+    Person findById(long id) throws IndexOutOfBoundsException, NoSuchElementException;
+
+    /**
+     * Получение итератора на коллекцию, отсортированную по убыванию поля EYE_COLOR, затем по id.
+     * Элементы без цвета глаз идут последними
+     * @return итератор на коллекцию, отсортированную по полю EYE_COLOR
+     */
+    Iterator<Person> getFieldDescendingByEyeColor();
+}
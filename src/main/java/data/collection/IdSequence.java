@@ -0,0 +1,63 @@
+package data.collection;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Класс монотонной последовательности id элементов коллекции без блокировок
+ * @author Антропов Никита
+ * @version 1.0
+ */
+class IdSequence {
+    /** Поле last_id - последний выданный id (верхняя граница выданных id) */
+    private final AtomicLong last_id;
+
+    /**
+     * Конструктор класса
+     * @param last_id - последний выданный id
+     */
+    public IdSequence(long last_id) throws IllegalArgumentException {
+        if (last_id < 0)
+            throw new IllegalArgumentException("Последний выданный id не может быть отрицательным\n");
+        this.last_id = new AtomicLong(last_id);
+    }
+
+    /**
+     * @see IdSequence#IdSequence(long)
+     */
+    public IdSequence() {
+        this(0);
+    }
+
+    /**
+     * Выдача следующего id. Выданные id никогда не повторяются, в том числе после удаления элементов
+     * @return новый id
+     */
+    public long next() {
+        return this.last_id.incrementAndGet();
+    }
+
+    /**
+     * Выдача диапазона подряд идущих id одной атомарной операцией
+     * @param count - количество id
+     * @return первый id диапазона
+     */
+    public long reserve(int count) {
+        return this.last_id.getAndAdd(count) + 1;
+    }
+
+    /**
+     * Сдвиг верхней границы, если заданный id ее превышает (например, при загрузке сохраненной коллекции)
+     * @param id - занятый id
+     */
+    public void advanceTo(long id) {
+        this.last_id.accumulateAndGet(id, Math::max);
+    }
+
+    /**
+     * Получение верхней границы выданных id для сохранения вместе с коллекцией
+     * @return последний выданный id
+     */
+    public long getLastId() {
+        return this.last_id.get();
+    }
+}
@@ -0,0 +1,381 @@
+package data.collection;
+
+import data.struct.Person;
+
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Класс списка элементов, упорядоченных по id, с разделяемой структурой.
+ * Элементы хранятся в неизменяемых блоках не больше CHUNK_SIZE элементов, изменение списка копирует только
+ * затронутый блок. Массив ссылок на блоки изменяется на месте, пока он не выдан снимку методом freeze;
+ * первое изменение после этого копирует только массив ссылок. Поэтому снимок создается за O(1)
+ * и не меняется при последующих изменениях списка. Изменения выполняются под блокировкой записи коллекции,
+ * снимки можно обходить без блокировок
+ * @author Антропов Никита
+ * @version 1.0
+ */
+final class PersistentIdList extends AbstractCollection<Person> {
+    /** Поле CHUNK_SIZE - наибольшее количество элементов в блоке */
+    static final int CHUNK_SIZE = 256;
+    /** Поле EMPTY - пустой снимок */
+    private static final Snapshot EMPTY = new Snapshot(new Person[0][], 0, 0);
+
+    /** Поле chunks - блоки элементов в порядке возрастания id */
+    private Person[][] chunks;
+    /** Поле chunk_count - количество блоков */
+    private int chunk_count;
+    /** Поле size - количество элементов */
+    private int size;
+    /** Поле frozen - true, если массив блоков выдан снимку и перед изменением должен быть скопирован */
+    private volatile boolean frozen;
+
+    /**
+     * Конструктор класса
+     */
+    PersistentIdList() {
+        this.clear();
+    }
+
+    /**
+     * Получение итератора текущего состояния списка. Вызывается под блокировкой коллекции
+     * @return ссылка на итератор
+     */
+    @Override
+    public Iterator<Person> iterator() {
+        return new ChunkIterator(this.chunks, this.chunk_count);
+    }
+
+    /**
+     * Получение количества элементов
+     * @return количество элементов
+     */
+    @Override
+    public int size() { return this.size; }
+
+    /**
+     * Добавление элемента. Если элемент с таким id уже есть, список не изменяется
+     * @param person - элемент с заданным id
+     * @return true, если элемент добавлен
+     */
+    @Override
+    public boolean add(Person person) {
+        if (this.size == 0) {
+            this.insertChunk(0, new Person[] {person});
+            this.size++;
+            return true;
+        }
+        int index = this.chunkOf(person.getId());
+        Person[] chunk = this.chunks[index];
+        int position = PersistentIdList.search(chunk, person.getId());
+        if (position >= 0)
+            return false;
+        position = -position - 1;
+
+        // Добавление в конец заполненного последнего блока начинает новый блок, чтобы блоки оставались полными
+        if (chunk.length == PersistentIdList.CHUNK_SIZE && index == this.chunk_count - 1 && position == chunk.length)
+            this.insertChunk(this.chunk_count, new Person[] {person});
+        else {
+            Person[] changed = new Person[chunk.length + 1];
+            System.arraycopy(chunk, 0, changed, 0, position);
+            changed[position] = person;
+            System.arraycopy(chunk, position, changed, position + 1, chunk.length - position);
+            if (changed.length <= PersistentIdList.CHUNK_SIZE)
+                this.setChunk(index, changed);
+            else {
+                int half = changed.length / 2;
+                this.setChunk(index, Arrays.copyOfRange(changed, 0, half));
+                this.insertChunk(index + 1, Arrays.copyOfRange(changed, half, changed.length));
+            }
+        }
+        this.size++;
+        return true;
+    }
+
+    /**
+     * Добавление элементов, упорядоченных по возрастанию id, которых еще нет в списке.
+     * Если все элементы больше последнего элемента списка, блоки заполняются без поиска позиций
+     * @param persons - элементы, упорядоченные по возрастанию id
+     */
+    void addSorted(List<Person> persons) {
+        if (persons.isEmpty())
+            return;
+        if (this.size > 0 && this.last().getId() >= persons.get(0).getId()) {
+            persons.forEach(this::add);
+            return;
+        }
+        for (int from = 0; from < persons.size(); from += PersistentIdList.CHUNK_SIZE) {
+            int to = Math.min(from + PersistentIdList.CHUNK_SIZE, persons.size());
+            this.insertChunk(this.chunk_count, persons.subList(from, to).toArray(new Person[0]));
+        }
+        this.size += persons.size();
+    }
+
+    /**
+     * Удаление элемента с id заданного элемента
+     * @param object - элемент коллекции
+     * @return true, если элемент удален
+     */
+    @Override
+    public boolean remove(Object object) {
+        if (!(object instanceof Person) || this.size == 0)
+            return false;
+        long id = ((Person) object).getId();
+        int index = this.chunkOf(id);
+        Person[] chunk = this.chunks[index];
+        int position = PersistentIdList.search(chunk, id);
+        if (position < 0)
+            return false;
+
+        Person[] changed = new Person[chunk.length - 1];
+        System.arraycopy(chunk, 0, changed, 0, position);
+        System.arraycopy(chunk, position + 1, changed, position, changed.length - position);
+        if (changed.length == 0)
+            this.removeChunk(index);
+        // Малые соседние блоки объединяются, чтобы количество блоков не росло после удалений
+        else if (index + 1 < this.chunk_count &&
+                changed.length + this.chunks[index + 1].length <= PersistentIdList.CHUNK_SIZE / 2) {
+            this.setChunk(index, PersistentIdList.concat(changed, this.chunks[index + 1]));
+            this.removeChunk(index + 1);
+        }
+        else
+            this.setChunk(index, changed);
+        this.size--;
+        return true;
+    }
+
+    /**
+     * Удаление всех элементов. Выданные снимки не изменяются
+     */
+    @Override
+    public void clear() {
+        this.chunks = new Person[4][];
+        this.chunk_count = 0;
+        this.size = 0;
+        this.frozen = false;
+    }
+
+    /**
+     * Получение последнего элемента
+     * @return элемент с наибольшим id
+     */
+    Person last() throws NoSuchElementException {
+        if (this.size == 0)
+            throw new NoSuchElementException();
+        Person[] chunk = this.chunks[this.chunk_count - 1];
+        return chunk[chunk.length - 1];
+    }
+
+    /**
+     * Получение снимка текущего состояния списка за O(1). Вызывается под блокировкой коллекции,
+     * допускается одновременный вызов несколькими читателями
+     * @return неизменяемый список элементов, упорядоченных по id
+     */
+    List<Person> freeze() {
+        if (this.size == 0)
+            return PersistentIdList.EMPTY;
+        this.frozen = true;
+        return new Snapshot(this.chunks, this.chunk_count, this.size);
+    }
+
+    /**
+     * Поиск блока, в котором находится или должен находиться элемент с заданным id
+     * @param id - id элемента
+     * @return номер блока
+     */
+    private int chunkOf(long id) {
+        int low = 0;
+        int high = this.chunk_count - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            Person[] chunk = this.chunks[middle];
+            if (chunk[chunk.length - 1].getId() < id)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Копирование массива блоков, выданного снимку, перед изменением
+     * @param capacity - необходимая вместимость массива блоков
+     */
+    private void ensureWritable(int capacity) {
+        if (this.frozen || capacity > this.chunks.length) {
+            this.chunks = Arrays.copyOf(this.chunks, Math.max(capacity, this.frozen ? this.chunks.length :
+                    this.chunks.length * 2));
+            this.frozen = false;
+        }
+    }
+
+    /**
+     * Замена блока
+     * @param index - номер блока
+     * @param chunk - новый блок
+     */
+    private void setChunk(int index, Person[] chunk) {
+        this.ensureWritable(this.chunk_count);
+        this.chunks[index] = chunk;
+    }
+
+    /**
+     * Вставка блока
+     * @param index - номер нового блока
+     * @param chunk - новый блок
+     */
+    private void insertChunk(int index, Person[] chunk) {
+        this.ensureWritable(this.chunk_count + 1);
+        System.arraycopy(this.chunks, index, this.chunks, index + 1, this.chunk_count - index);
+        this.chunks[index] = chunk;
+        this.chunk_count++;
+    }
+
+    /**
+     * Удаление блока
+     * @param index - номер блока
+     */
+    private void removeChunk(int index) {
+        this.ensureWritable(this.chunk_count);
+        System.arraycopy(this.chunks, index + 1, this.chunks, index, this.chunk_count - index - 1);
+        this.chunks[--this.chunk_count] = null;
+    }
+
+    /**
+     * Двоичный поиск элемента в блоке
+     * @param chunk - блок
+     * @param id - id элемента
+     * @return позиция элемента или (-(позиция вставки) - 1), если элемента нет
+     */
+    private static int search(Person[] chunk, long id) {
+        int low = 0;
+        int high = chunk.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middle_id = chunk[middle].getId();
+            if (middle_id < id)
+                low = middle + 1;
+            else if (middle_id > id)
+                high = middle - 1;
+            else
+                return middle;
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Объединение двух блоков
+     * @param first - первый блок
+     * @param second - второй блок
+     * @return новый блок
+     */
+    private static Person[] concat(Person[] first, Person[] second) {
+        Person[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    /**
+     * Класс неизменяемого снимка списка
+     * @author Антропов Никита
+     * @version 1.0
+     */
+    private static final class Snapshot extends AbstractList<Person> implements RandomAccess {
+        /** Поле CHUNKS - блоки элементов на момент снимка */
+        private final Person[][] CHUNKS;
+        /** Поле CHUNK_COUNT - количество блоков */
+        private final int CHUNK_COUNT;
+        /** Поле SIZE - количество элементов */
+        private final int SIZE;
+        /** Поле offsets - номер первого элемента каждого блока, вычисляется при первом обращении по номеру */
+        private volatile int[] offsets;
+
+        /**
+         * Конструктор класса
+         * @param chunks - блоки элементов
+         * @param chunk_count - количество блоков
+         * @param size - количество элементов
+         */
+        private Snapshot(Person[][] chunks, int chunk_count, int size) {
+            this.CHUNKS = chunks;
+            this.CHUNK_COUNT = chunk_count;
+            this.SIZE = size;
+        }
+
+        @Override
+        public Person get(int index) {
+            if (index < 0 || index >= this.SIZE)
+                throw new IndexOutOfBoundsException("Элемента с номером " + index + " нет в снимке\n");
+            int[] starts = this.offsets;
+            if (starts == null) {
+                starts = new int[this.CHUNK_COUNT];
+                for (int i = 1; i < this.CHUNK_COUNT; i++)
+                    starts[i] = starts[i - 1] + this.CHUNKS[i - 1].length;
+                this.offsets = starts;
+            }
+            int chunk = Arrays.binarySearch(starts, index);
+            if (chunk < 0)
+                chunk = -chunk - 2;
+            return this.CHUNKS[chunk][index - starts[chunk]];
+        }
+
+        @Override
+        public int size() { return this.SIZE; }
+
+        @Override
+        public Iterator<Person> iterator() {
+            return new ChunkIterator(this.CHUNKS, this.CHUNK_COUNT);
+        }
+    }
+
+    /**
+     * Класс итератора по блокам элементов
+     * @author Антропов Никита
+     * @version 1.0
+     */
+    private static final class ChunkIterator implements Iterator<Person> {
+        /** Поле CHUNKS - блоки элементов */
+        private final Person[][] CHUNKS;
+        /** Поле CHUNK_COUNT - количество блоков */
+        private final int CHUNK_COUNT;
+        /** Поле chunk - номер текущего блока */
+        private int chunk;
+        /** Поле position - позиция следующего элемента в текущем блоке */
+        private int position;
+
+        /**
+         * Конструктор класса
+         * @param chunks - блоки элементов
+         * @param chunk_count - количество блоков
+         */
+        private ChunkIterator(Person[][] chunks, int chunk_count) {
+            this.CHUNKS = chunks;
+            this.CHUNK_COUNT = chunk_count;
+            this.chunk = 0;
+            this.position = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.chunk < this.CHUNK_COUNT;
+        }
+
+        @Override
+        public Person next() {
+            if (!this.hasNext())
+                throw new NoSuchElementException();
+            Person[] current = this.CHUNKS[this.chunk];
+            Person person = current[this.position++];
+            if (this.position == current.length) {
+                this.chunk++;
+                this.position = 0;
+            }
+            return person;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package data.collection;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+
+/**
+ * Класс представления отсортированного списка в виде SortedSet без копирования.
+ * Передается в TreeSet#addAll, который строит дерево из отсортированных данных за линейное время
+ * @param <E> - тип элементов
+ * @author Антропов Никита
+ * @version 1.0
+ */
+class SortedListView<E> extends AbstractSet<E> implements SortedSet<E> {
+    /** Поле LIST - список, отсортированный по сортировщику COMPARATOR без повторов */
+    private final List<E> LIST;
+    /** Поле COMPARATOR - сортировщик списка, null - естественный порядок */
+    private final Comparator<? super E> COMPARATOR;
+
+    /**
+     * Конструктор класса
+     * @param list - отсортированный список без повторов
+     * @param comparator - сортировщик списка, должен совпадать с сортировщиком заполняемого TreeSet
+     */
+    SortedListView(List<E> list, Comparator<? super E> comparator) {
+        this.LIST = list;
+        this.COMPARATOR = comparator;
+    }
+
+    /**
+     * @see java.util.Set#iterator()
+     */
+    @Override
+    public Iterator<E> iterator() { return this.LIST.iterator(); }
+
+    /**
+     * @see java.util.Set#size()
+     */
+    @Override
+    public int size() { return this.LIST.size(); }
+
+    /**
+     * Проверка наличия элемента двоичным поиском
+     * @see java.util.Set#contains(Object)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object object) {
+        return Collections.binarySearch(this.LIST, (E) object, this.COMPARATOR) >= 0;
+    }
+
+    /**
+     * @see SortedSet#comparator()
+     */
+    @Override
+    public Comparator<? super E> comparator() { return this.COMPARATOR; }
+
+    /**
+     * @see SortedSet#first()
+     */
+    @Override
+    public E first() throws NoSuchElementException {
+        if (this.LIST.isEmpty())
+            throw new NoSuchElementException("Представление не содержит элементов\n");
+        return this.LIST.get(0);
+    }
+
+    /**
+     * @see SortedSet#last()
+     */
+    @Override
+    public E last() throws NoSuchElementException {
+        if (this.LIST.isEmpty())
+            throw new NoSuchElementException("Представление не содержит элементов\n");
+        return this.LIST.get(this.LIST.size() - 1);
+    }
+
+    /**
+     * @see SortedSet#subSet(Object, Object)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public SortedSet<E> subSet(E from, E to) throws IllegalArgumentException {
+        int order = this.COMPARATOR != null ? this.COMPARATOR.compare(from, to) :
+                ((Comparable<? super E>) from).compareTo(to);
+        if (order > 0)
+            throw new IllegalArgumentException("Начало диапазона больше его конца\n");
+        return this.view(this.position(from), this.position(to));
+    }
+
+    /**
+     * @see SortedSet#headSet(Object)
+     */
+    @Override
+    public SortedSet<E> headSet(E to) { return this.view(0, this.position(to)); }
+
+    /**
+     * @see SortedSet#tailSet(Object)
+     */
+    @Override
+    public SortedSet<E> tailSet(E from) { return this.view(this.position(from), this.LIST.size()); }
+
+    /**
+     * Получение позиции первого элемента списка, не меньшего заданного
+     * @param element - заданный элемент
+     * @return позиция в списке
+     */
+    private int position(E element) {
+        int position = Collections.binarySearch(this.LIST, element, this.COMPARATOR);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    /**
+     * Получение представления части списка без копирования
+     * @param from - позиция начала, включительно
+     * @param to - позиция конца, не включительно
+     * @return представление части списка
+     */
+    private SortedSet<E> view(int from, int to) {
+        return new SortedListView<>(this.LIST.subList(from, Math.max(from, to)), this.COMPARATOR);
+    }
+}
@@ -1,9 +1,89 @@
 package data.comparator;
 
+import data.comparator.comparators.CoordinatesComparator;
+import data.comparator.comparators.CreationDateComparator;
+import data.comparator.comparators.HeightComparator;
+import data.comparator.comparators.IdComparator;
+import data.comparator.comparators.LocationComparator;
+import data.comparator.comparators.NameComparator;
+import data.comparator.comparators.PassportIdComparator;
+import data.struct.Person;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.NoSuchElementException;
+
 /**
- * Класс обработки сортировщиков коллекции
+ * Класс обработки сортировщиков коллекции на базе паттерна Одиночка.
+ * Для зарегистрированных сортировщиков коллекция поддерживает упорядоченные индексы
  * @author Антропов Никита
  * @version 1.0
  */
 public final class ComparatorInvoker {
+    /** Поле invoker - единственный экземпляр данного класса */
+    private static volatile ComparatorInvoker invoker;
+    /** Поле comparator_map - словарь с названиями полей и ссылками на сортировщики */
+    private final LinkedHashMap<String, Comparator<Person>> comparator_map;
+
+    /**
+     * Конструктор класса с регистрацией сортировщиков по полям, которые не могут быть пустыми
+     * или корректно обрабатывают пустые значения
+     * @see ComparatorInvoker#comparator_map
+     */
+    private ComparatorInvoker() {
+        this.comparator_map = new LinkedHashMap<>();
+        this.register("id", new IdComparator());
+        this.register("name", new NameComparator());
+        this.register("coordinates", new CoordinatesComparator());
+        this.register("creation_date", new CreationDateComparator());
+        this.register("height", new HeightComparator());
+        this.register("passport_id", new PassportIdComparator());
+        this.register("location", new LocationComparator());
+    }
+
+    /**
+     * Метод инициализации и получения единственного экземпляра данного класса
+     * @see ComparatorInvoker#invoker
+     * @return ссылка на объект класса
+     */
+    public static ComparatorInvoker getInstance() {
+        if (ComparatorInvoker.invoker == null) {
+            synchronized (ComparatorInvoker.class) {
+                if (ComparatorInvoker.invoker == null)
+                    ComparatorInvoker.invoker = new ComparatorInvoker();
+            }
+        }
+        return ComparatorInvoker.invoker;
+    }
+
+    /**
+     * Регистрация сортировщика
+     * @param field - название поля
+     * @param comparator - ссылка на объект сортировщика
+     */
+    private void register(String field, Comparator<Person> comparator) {
+        this.comparator_map.put(field, comparator);
+    }
+
+    /**
+     * Получение сортировщика по названию поля
+     * @param field - название поля
+     * @return ссылка на объект сортировщика
+     */
+    public Comparator<Person> getComparator(String field) throws NoSuchElementException {
+        Comparator<Person> comparator = this.comparator_map.get(field);
+        if (comparator == null)
+            throw new NoSuchElementException("Сортировка по полю " + field + " не поддерживается\n");
+        return comparator;
+    }
+
+    /**
+     * Получение всех зарегистрированных сортировщиков
+     * @return сортировщики в порядке регистрации
+     */
+    public Collection<Comparator<Person>> getComparators() {
+        return Collections.unmodifiableCollection(this.comparator_map.values());
+    }
 }
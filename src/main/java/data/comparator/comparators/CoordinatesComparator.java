@@ -16,6 +16,9 @@ public class CoordinatesComparator implements Comparator<Person> {
      */
     @Override
     public int compare(Person o1, Person o2) {
-        return o1.getCoordDistance().compareTo(o2.getCoordDistance());
+        // Элементы без значения поля идут первыми
+        if (!o1.hasCoordinates() || !o2.hasCoordinates())
+            return Boolean.compare(o1.hasCoordinates(), o2.hasCoordinates());
+        return Double.compare(o1.getCoordDistance(), o2.getCoordDistance());
     }
 }
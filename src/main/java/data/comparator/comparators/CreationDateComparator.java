@@ -16,6 +16,6 @@ public class CreationDateComparator implements Comparator<Person> {
      */
     @Override
     public int compare(Person o1, Person o2) {
-        return 0;
+        return o1.getCreationDate().compareTo(o2.getCreationDate());
     }
 }
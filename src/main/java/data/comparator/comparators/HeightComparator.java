@@ -16,6 +16,6 @@ public class HeightComparator implements Comparator<Person> {
      */
     @Override
     public int compare(Person o1, Person o2) {
-        return o1.getHeight().compareTo(o2.getHeight());
+        return Integer.compare(o1.getHeight(), o2.getHeight());
     }
 }
@@ -16,6 +16,9 @@ public class LocationComparator implements Comparator<Person> {
      */
     @Override
     public int compare(Person o1, Person o2) {
-        return o1.getLocDistance().compareTo(o2.getLocDistance());
+        // Элементы без значения поля идут первыми
+        if (!o1.hasLocation() || !o2.hasLocation())
+            return Boolean.compare(o1.hasLocation(), o2.hasLocation());
+        return Double.compare(o1.getLocDistance(), o2.getLocDistance());
     }
 }
@@ -0,0 +1,56 @@
+package data.query;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Перечисление полей Person, доступных в выражениях фильтра
+ * @author Антропов Никита
+ * @version 1.0
+ */
+public enum EQueryField {
+    NAME("name", "name"),
+    HEIGHT("height", "height"),
+    CREATION_DATE("creation_date", "creation_date"),
+    COORDINATES("coordinates", "coordinates"),
+    LOCATION("location", "location"),
+    HAIR_COLOR("hair_color", null),
+    EYE_COLOR("eye_color", null);
+    /** Название поля в выражении */
+    private final String name;
+    /** Название сортировщика упорядоченного индекса по полю, null - индекса нет */
+    private final String comparator;
+
+    /**
+     * Конструктор перечисления
+     * @param name - название поля в выражении
+     * @param comparator - название сортировщика упорядоченного индекса по полю
+     */
+    EQueryField(String name, String comparator) {
+        this.name = name;
+        this.comparator = comparator;
+    }
+
+    /**
+     * @see Enum#toString()
+     */
+    @Override
+    public String toString() { return this.name; }
+
+    /**
+     * Получение названия сортировщика упорядоченного индекса по полю
+     * @see data.comparator.ComparatorInvoker#getComparator(String)
+     * @return название сортировщика или null, если индекса нет
+     */
+    public String getComparator() { return this.comparator; }
+
+    /**
+     * Поиск значения по названию поля
+     * @param name - название поля
+     * @return значение EQueryField
+     */
+    public static EQueryField getByName(String name) throws NoSuchElementException {
+        return Arrays.stream(EQueryField.values()).filter(e -> name.equals(e.name)).findAny()
+                .orElseThrow(() -> new NoSuchElementException("Поле " + name + " не поддерживается в фильтре\n"));
+    }
+}
@@ -0,0 +1,617 @@
+package data.query;
+
+import data.struct.EEyeColor;
+import data.struct.EHairColor;
+import data.struct.Person;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Класс скомпилированного выражения фильтра элементов коллекции.
+ * Выражение состоит из условий вида "поле операция значение", объединенных операциями and, or, not и скобками:
+ * height >= 170 and hair_color = Черные and not (name ^= "Ив" or creation_date < 2024-01-01).
+ * Операции сравнения: =, !=, <, <=, >, >= для height, creation_date (ГГГГ-ММ-ДД), coordinates и location
+ * (расстояние от начала координат); =, != для hair_color и eye_color; =, != и ^= (начинается с) для name.
+ * Выражение компилируется в одно составное условие без повторного разбора при проверке элементов.
+ * Условия, объединенные операцией and на верхнем уровне, дополнительно сохраняются как диапазоны значений
+ * и значения полей, по которым коллекция выбирает наиболее избирательный индекс
+ * @author Антропов Никита
+ * @version 1.0
+ */
+public final class PersonQuery {
+    /** Поле OPERATORS - символы операций сравнения */
+    private static final String OPERATORS = "=!<>^";
+    /** Поле PROBE_NAME - имя элементов-границ для поиска в упорядоченных индексах по полям, кроме name */
+    private static final String PROBE_NAME = "?";
+    /** Поле PROBE_STEPS - количество попыток подобрать границу поиска по расстоянию */
+    private static final int PROBE_STEPS = 8;
+
+    /** Поле EXPRESSION - исходное выражение */
+    private final String EXPRESSION;
+    /** Поле PREDICATE - составное условие выражения */
+    private final Predicate<Person> PREDICATE;
+    /** Поле RANGES - диапазоны значений числовых полей, обязательные для всех подходящих элементов */
+    private final EnumMap<EQueryField, QueryRange> RANGES;
+    /** Поле hair_color - цвет волос, обязательный для всех подходящих элементов, null - без ограничения */
+    private EHairColor hair_color;
+    /** Поле eye_color - цвет глаз, обязательный для всех подходящих элементов, null - без ограничения */
+    private EEyeColor eye_color;
+    /** Поле name_prefix - начало имени, обязательное для всех подходящих элементов, null - без ограничения */
+    private String name_prefix;
+
+    /**
+     * Класс узла дерева разбора выражения
+     * @author Антропов Никита
+     * @version 1.0
+     */
+    private static final class Node {
+        /** Поле KIND - вид узла: '&' - and, '|' - or, '!' - not, 'c' - условие */
+        private final char KIND;
+        /** Поле LEFT - левый операнд */
+        private final Node LEFT;
+        /** Поле RIGHT - правый операнд */
+        private final Node RIGHT;
+        /** Поле FIELD - поле условия */
+        private final EQueryField FIELD;
+        /** Поле OPERATOR - операция сравнения условия */
+        private final String OPERATOR;
+        /** Поле VALUE - значение условия */
+        private final String VALUE;
+
+        /**
+         * Конструктор класса
+         * @param kind - вид узла
+         * @param left - левый операнд
+         * @param right - правый операнд
+         * @param field - поле условия
+         * @param operator - операция сравнения условия
+         * @param value - значение условия
+         */
+        private Node(char kind, Node left, Node right, EQueryField field, String operator, String value) {
+            this.KIND = kind;
+            this.LEFT = left;
+            this.RIGHT = right;
+            this.FIELD = field;
+            this.OPERATOR = operator;
+            this.VALUE = value;
+        }
+    }
+
+    /**
+     * Класс разбора выражения методом рекурсивного спуска
+     * @author Антропов Никита
+     * @version 1.0
+     */
+    private static final class Parser {
+        /** Поле TOKENS - лексемы выражения, строки в кавычках начинаются с символа кавычки */
+        private final List<String> TOKENS;
+        /** Поле position - номер текущей лексемы */
+        private int position;
+
+        /**
+         * Конструктор класса
+         * @param expression - выражение фильтра
+         */
+        private Parser(String expression) throws IllegalArgumentException {
+            this.TOKENS = Parser.tokenize(expression);
+            this.position = 0;
+        }
+
+        /**
+         * Разбор всего выражения
+         * @return корень дерева разбора
+         */
+        private Node parse() throws IllegalArgumentException {
+            if (this.TOKENS.isEmpty())
+                throw new IllegalArgumentException("Выражение фильтра не может быть пустым\n");
+            Node root = this.parseOr();
+            if (this.position < this.TOKENS.size())
+                throw new IllegalArgumentException("Лишняя лексема в выражении фильтра: " +
+                        this.TOKENS.get(this.position) + "\n");
+            return root;
+        }
+
+        /**
+         * Разбор операций or
+         * @return узел дерева разбора
+         */
+        private Node parseOr() throws IllegalArgumentException {
+            Node node = this.parseAnd();
+            while (this.accept("or"))
+                node = new Node('|', node, this.parseAnd(), null, null, null);
+            return node;
+        }
+
+        /**
+         * Разбор операций and
+         * @return узел дерева разбора
+         */
+        private Node parseAnd() throws IllegalArgumentException {
+            Node node = this.parseUnary();
+            while (this.accept("and"))
+                node = new Node('&', node, this.parseUnary(), null, null, null);
+            return node;
+        }
+
+        /**
+         * Разбор операции not, скобок и условий
+         * @return узел дерева разбора
+         */
+        private Node parseUnary() throws IllegalArgumentException {
+            if (this.accept("not"))
+                return new Node('!', this.parseUnary(), null, null, null, null);
+            if (this.accept("(")) {
+                Node node = this.parseOr();
+                if (!this.accept(")"))
+                    throw new IllegalArgumentException("В выражении фильтра не хватает закрывающей скобки\n");
+                return node;
+            }
+
+            EQueryField field;
+            try {
+                field = EQueryField.getByName(this.next());
+            } catch (NoSuchElementException e) {
+                throw new IllegalArgumentException(e.getMessage(), e);
+            }
+            String operator = this.next();
+            if (operator.isEmpty() || PersonQuery.OPERATORS.indexOf(operator.charAt(0)) < 0)
+                throw new IllegalArgumentException("Ожидалась операция сравнения после поля " + field +
+                        ", найдено: " + operator + "\n");
+            String value = this.next();
+            if (value.startsWith("\""))
+                value = value.substring(1);
+            return new Node('c', null, null, field, operator, value);
+        }
+
+        /**
+         * Пропуск заданного ключевого слова или скобки
+         * @param keyword - ключевое слово или скобка
+         * @return true, если текущая лексема совпала и была пропущена
+         */
+        private boolean accept(String keyword) {
+            if (this.position < this.TOKENS.size() && this.TOKENS.get(this.position).equalsIgnoreCase(keyword)) {
+                this.position++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Получение текущей лексемы с переходом к следующей
+         * @return лексема
+         */
+        private String next() throws IllegalArgumentException {
+            if (this.position >= this.TOKENS.size())
+                throw new IllegalArgumentException("Неожиданный конец выражения фильтра\n");
+            return this.TOKENS.get(this.position++);
+        }
+
+        /**
+         * Разбиение выражения на лексемы: скобки, операции сравнения, строки в кавычках и слова
+         * @param expression - выражение фильтра
+         * @return лексемы выражения
+         */
+        private static List<String> tokenize(String expression) throws IllegalArgumentException {
+            List<String> tokens = new ArrayList<>();
+            int i = 0;
+            while (i < expression.length()) {
+                char c = expression.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '(' || c == ')') {
+                    tokens.add(String.valueOf(c));
+                    i++;
+                } else if (c == '"') {
+                    int end = expression.indexOf('"', i + 1);
+                    if (end < 0)
+                        throw new IllegalArgumentException("В выражении фильтра не закрыта кавычка\n");
+                    tokens.add(expression.substring(i, end));
+                    i = end + 1;
+                } else {
+                    boolean operator = PersonQuery.OPERATORS.indexOf(c) >= 0;
+                    int start = i;
+                    while (i < expression.length() && !Character.isWhitespace(expression.charAt(i)) &&
+                            "()\"".indexOf(expression.charAt(i)) < 0 &&
+                            (PersonQuery.OPERATORS.indexOf(expression.charAt(i)) >= 0) == operator)
+                        i++;
+                    tokens.add(expression.substring(start, i));
+                }
+            }
+            return tokens;
+        }
+    }
+
+    /**
+     * Конструктор класса
+     * @param expression - исходное выражение
+     * @param root - корень дерева разбора
+     */
+    private PersonQuery(String expression, Node root) throws IllegalArgumentException {
+        this.EXPRESSION = expression;
+        this.RANGES = new EnumMap<>(EQueryField.class);
+        this.hair_color = null;
+        this.eye_color = null;
+        this.name_prefix = null;
+        this.PREDICATE = this.compile(root);
+        this.collect(root);
+    }
+
+    /**
+     * Компиляция выражения фильтра
+     * @param expression - выражение фильтра
+     * @return скомпилированное выражение
+     */
+    public static PersonQuery compile(String expression) throws IllegalArgumentException {
+        return new PersonQuery(expression, new Parser(expression).parse());
+    }
+
+    /**
+     * Проверка элемента по выражению
+     * @param person - элемент коллекции
+     * @return true, если элемент удовлетворяет выражению
+     */
+    public boolean test(Person person) { return this.PREDICATE.test(person); }
+
+    /**
+     * Получение составного условия выражения
+     * @see PersonQuery#PREDICATE
+     * @return условие
+     */
+    public Predicate<Person> getPredicate() { return this.PREDICATE; }
+
+    /**
+     * Получение обязательного цвета волос
+     * @see PersonQuery#hair_color
+     * @return цвет волос или null, если выражение его не ограничивает
+     */
+    public EHairColor getHairColor() { return this.hair_color; }
+
+    /**
+     * Получение обязательного цвета глаз
+     * @see PersonQuery#eye_color
+     * @return цвет глаз или null, если выражение его не ограничивает
+     */
+    public EEyeColor getEyeColor() { return this.eye_color; }
+
+    /**
+     * Получение обязательного диапазона значений поля
+     * @param field - числовое поле
+     * @return диапазон или null, если выражение его не ограничивает
+     */
+    public QueryRange getRange(EQueryField field) { return this.RANGES.get(field); }
+
+    /**
+     * Проверка заведомо пустого результата: обязательный диапазон одного из полей не содержит значений
+     * @return true, если ни один элемент не может удовлетворять выражению
+     */
+    public boolean isEmpty() { return this.RANGES.values().stream().anyMatch(QueryRange::isEmpty); }
+
+    /**
+     * Получение нижней границы поиска в упорядоченном индексе по полю. Граница не больше всех элементов,
+     * которые могут удовлетворять выражению, и меньше любого элемента с тем же значением поля
+     * @param field - поле с упорядоченным индексом
+     * @return элемент-граница или null, если поиск не ограничен снизу
+     */
+    public Person getLowProbe(EQueryField field) { return this.probe(field, false); }
+
+    /**
+     * Получение верхней границы поиска в упорядоченном индексе по полю. Граница не меньше всех элементов,
+     * которые могут удовлетворять выражению
+     * @param field - поле с упорядоченным индексом
+     * @return элемент-граница или null, если поиск не ограничен сверху
+     */
+    public Person getHighProbe(EQueryField field) { return this.probe(field, true); }
+
+    /**
+     * @see Object#toString()
+     */
+    @Override
+    public String toString() { return this.EXPRESSION; }
+
+    /**
+     * Компиляция узла дерева разбора в условие
+     * @param node - узел дерева разбора
+     * @return условие
+     */
+    private Predicate<Person> compile(Node node) throws IllegalArgumentException {
+        switch (node.KIND) {
+            case '&': {
+                Predicate<Person> left = this.compile(node.LEFT);
+                Predicate<Person> right = this.compile(node.RIGHT);
+                return person -> left.test(person) && right.test(person);
+            }
+            case '|': {
+                Predicate<Person> left = this.compile(node.LEFT);
+                Predicate<Person> right = this.compile(node.RIGHT);
+                return person -> left.test(person) || right.test(person);
+            }
+            case '!': {
+                Predicate<Person> operand = this.compile(node.LEFT);
+                return person -> !operand.test(person);
+            }
+            default:
+                return PersonQuery.condition(node.FIELD, node.OPERATOR, node.VALUE);
+        }
+    }
+
+    /**
+     * Сохранение ограничений из условий, объединенных операцией and на верхнем уровне выражения
+     * @param node - узел дерева разбора
+     */
+    private void collect(Node node) {
+        if (node.KIND == '&') {
+            this.collect(node.LEFT);
+            this.collect(node.RIGHT);
+        }
+        if (node.KIND != 'c')
+            return;
+
+        switch (node.FIELD) {
+            case NAME:
+                boolean prefix = node.OPERATOR.equals("=") || node.OPERATOR.equals("^=");
+                if (prefix && !node.VALUE.isEmpty() &&
+                        (this.name_prefix == null || node.VALUE.length() > this.name_prefix.length()))
+                    this.name_prefix = node.VALUE;
+                break;
+            case HAIR_COLOR:
+                if (node.OPERATOR.equals("="))
+                    this.hair_color = EHairColor.getByName(node.VALUE);
+                break;
+            case EYE_COLOR:
+                if (node.OPERATOR.equals("="))
+                    this.eye_color = EEyeColor.getByName(node.VALUE);
+                break;
+            default:
+                QueryRange range = PersonQuery.range(node.OPERATOR, PersonQuery.number(node.FIELD, node.VALUE));
+                if (range != null)
+                    this.RANGES.merge(node.FIELD, range, QueryRange::intersect);
+        }
+    }
+
+    /**
+     * Компиляция условия сравнения поля со значением
+     * @param field - поле
+     * @param operator - операция сравнения
+     * @param value - значение
+     * @return условие
+     */
+    private static Predicate<Person> condition(EQueryField field, String operator, String value)
+            throws IllegalArgumentException {
+        switch (field) {
+            case NAME:
+                switch (operator) {
+                    case "=": return person -> person.getName().equals(value);
+                    case "!=": return person -> !person.getName().equals(value);
+                    case "^=": return person -> person.getName().startsWith(value);
+                    default: throw PersonQuery.unsupported(field, operator);
+                }
+            case HAIR_COLOR: {
+                EHairColor color = PersonQuery.color(() -> EHairColor.getByName(value));
+                switch (operator) {
+                    case "=": return person -> person.getHairColor() == color;
+                    case "!=": return person -> person.getHairColor() != color;
+                    default: throw PersonQuery.unsupported(field, operator);
+                }
+            }
+            case EYE_COLOR: {
+                EEyeColor color = PersonQuery.color(() -> EEyeColor.getByName(value));
+                switch (operator) {
+                    case "=": return person -> person.getEyeColor() == color;
+                    case "!=": return person -> person.getEyeColor() != color;
+                    default: throw PersonQuery.unsupported(field, operator);
+                }
+            }
+            case HEIGHT:
+                return PersonQuery.numeric(field, Person::getHeight, operator, PersonQuery.number(field, value));
+            case CREATION_DATE:
+                return PersonQuery.numeric(field, person -> person.getCreationDate().toEpochDay(), operator,
+                        PersonQuery.number(field, value));
+            case COORDINATES:
+                return PersonQuery.numeric(field, Person::getCoordDistance, operator, PersonQuery.number(field, value));
+            default:
+                return PersonQuery.numeric(field, Person::getLocDistance, operator, PersonQuery.number(field, value));
+        }
+    }
+
+    /**
+     * Компиляция сравнения числового значения поля. Элементы без значения поля не удовлетворяют
+     * ни одному сравнению, кроме !=
+     * @param field - поле
+     * @param key - получение числового значения поля
+     * @param operator - операция сравнения
+     * @param value - значение
+     * @return условие
+     */
+    private static Predicate<Person> numeric(EQueryField field, ToDoubleFunction<Person> key, String operator,
+                                             double value) throws IllegalArgumentException {
+        switch (operator) {
+            case "=": return person -> key.applyAsDouble(person) == value;
+            case "!=": return person -> key.applyAsDouble(person) != value;
+            case "<": return person -> key.applyAsDouble(person) < value;
+            case "<=": return person -> key.applyAsDouble(person) <= value;
+            case ">": return person -> key.applyAsDouble(person) > value;
+            case ">=": return person -> key.applyAsDouble(person) >= value;
+            default: throw PersonQuery.unsupported(field, operator);
+        }
+    }
+
+    /**
+     * Получение диапазона значений, удовлетворяющих сравнению
+     * @param operator - операция сравнения
+     * @param value - значение
+     * @return диапазон или null, если сравнение не задает диапазон
+     */
+    private static QueryRange range(String operator, double value) {
+        switch (operator) {
+            case "=": return new QueryRange(value, true, value, true);
+            case "<": return new QueryRange(Double.NEGATIVE_INFINITY, true, value, false);
+            case "<=": return new QueryRange(Double.NEGATIVE_INFINITY, true, value, true);
+            case ">": return new QueryRange(value, false, Double.POSITIVE_INFINITY, true);
+            case ">=": return new QueryRange(value, true, Double.POSITIVE_INFINITY, true);
+            default: return null;
+        }
+    }
+
+    /**
+     * Разбор числового значения поля. Дата преобразуется в номер дня от начала эпохи
+     * @param field - поле
+     * @param value - значение в виде строки
+     * @return числовое значение
+     */
+    private static double number(EQueryField field, String value) throws IllegalArgumentException {
+        if (field == EQueryField.CREATION_DATE) {
+            try {
+                return LocalDate.parse(value).toEpochDay();
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Значение поля " + field + " должно быть датой в формате " +
+                        "ГГГГ-ММ-ДД\n", e);
+            }
+        }
+        try {
+            double number = Double.parseDouble(value);
+            if (Double.isNaN(number))
+                throw new NumberFormatException(value);
+            return number;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Значение поля " + field + " должно быть числом\n", e);
+        }
+    }
+
+    /**
+     * Поиск цвета по названию с ошибкой разбора выражения
+     * @param search - поиск цвета
+     * @return найденный цвет
+     */
+    private static <E> E color(Supplier<E> search) throws IllegalArgumentException {
+        try {
+            return search.get();
+        } catch (NoSuchElementException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Создание ошибки неподдерживаемой операции сравнения
+     * @param field - поле
+     * @param operator - операция сравнения
+     * @return исключение
+     */
+    private static IllegalArgumentException unsupported(EQueryField field, String operator) {
+        return new IllegalArgumentException("Операция " + operator + " не поддерживается для поля " + field + "\n");
+    }
+
+    /**
+     * Создание границы поиска в упорядоченном индексе. Нижняя граница имеет нулевой id и меньше всех элементов
+     * с тем же значением поля, верхняя - наибольший id. Границы могут расширять диапазон: элементы
+     * из индекса все равно проверяются составным условием
+     * @param field - поле с упорядоченным индексом
+     * @param high - true для верхней границы
+     * @return элемент-граница или null, если поиск не ограничен
+     */
+    private Person probe(EQueryField field, boolean high) {
+        if (field == EQueryField.NAME) {
+            if (this.name_prefix == null)
+                return null;
+            // Все имена с заданным началом меньше строки с увеличенным последним символом
+            String bound = high ? PersonQuery.successor(this.name_prefix) : this.name_prefix;
+            return bound == null ? null : new Person.Builder(bound, "", 1).build();
+        }
+        QueryRange range = this.RANGES.get(field);
+        if (range == null)
+            return null;
+        double bound = high ? range.getHigh() : range.getLow();
+        if (Double.isInfinite(bound))
+            return null;
+
+        Person person;
+        switch (field) {
+            case HEIGHT: {
+                double height = high ? Math.floor(bound) : Math.ceil(bound);
+                if (!high && height <= 1)
+                    return null;
+                person = new Person.Builder(PersonQuery.PROBE_NAME, "", (int) Math.max(Math.min(height,
+                        Integer.MAX_VALUE), 1)).build();
+                break;
+            }
+            case CREATION_DATE: {
+                double day = high ? Math.floor(bound) : Math.ceil(bound);
+                day = Math.max(Math.min(day, LocalDate.MAX.toEpochDay()), LocalDate.MIN.toEpochDay());
+                person = new Person.Builder(PersonQuery.PROBE_NAME, "", 1)
+                        .CreationDate(LocalDate.ofEpochDay((long) day)).build();
+                break;
+            }
+            case COORDINATES:
+                person = PersonQuery.coordinatesProbe(bound, high);
+                break;
+            case LOCATION:
+                person = PersonQuery.locationProbe(bound, high);
+                break;
+            default:
+                return null;
+        }
+        if (person != null && high)
+            person.Id(Long.MAX_VALUE);
+        return person;
+    }
+
+    /**
+     * Подбор границы поиска по расстоянию поля Coordinates. Расстояние вычисляется в точности float,
+     * поэтому координата границы сдвигается до тех пор, пока граница не окажется по нужную сторону от значения
+     * @param bound - граница расстояния
+     * @param high - true для верхней границы
+     * @return элемент-граница или null, если подобрать границу не удалось
+     */
+    private static Person coordinatesProbe(double bound, boolean high) {
+        if (!high && bound <= 0)
+            return null;
+        float y = (float) Math.max(bound, 0);
+        for (int step = 0; step < PersonQuery.PROBE_STEPS; step++) {
+            Person person = new Person.Builder(PersonQuery.PROBE_NAME, "", 1).Coordinates(0f, y).build();
+            if (high ? person.getCoordDistance() >= bound : person.getCoordDistance() <= bound)
+                return person;
+            y = high ? Math.nextUp(y) : Math.nextDown(y);
+        }
+        return null;
+    }
+
+    /**
+     * Подбор границы поиска по расстоянию поля Location
+     * @see PersonQuery#coordinatesProbe(double, boolean)
+     * @param bound - граница расстояния
+     * @param high - true для верхней границы
+     * @return элемент-граница или null, если подобрать границу не удалось
+     */
+    private static Person locationProbe(double bound, boolean high) {
+        if (!high && bound <= 0)
+            return null;
+        double y = Math.max(bound, 0);
+        for (int step = 0; step < PersonQuery.PROBE_STEPS; step++) {
+            Person person = new Person.Builder(PersonQuery.PROBE_NAME, "", 1)
+                    .Coordinates(0f, 0f).Location(PersonQuery.PROBE_NAME, y, 0).build();
+            if (high ? person.getLocDistance() >= bound : person.getLocDistance() <= bound)
+                return person;
+            y = high ? Math.nextUp(y) : Math.nextDown(y);
+        }
+        return null;
+    }
+
+    /**
+     * Получение наименьшей строки, большей всех строк с заданным началом
+     * @param prefix - начало строки
+     * @return строка с увеличенным последним символом или null, если последний символ наибольший
+     */
+    private static String successor(String prefix) {
+        char last = prefix.charAt(prefix.length() - 1);
+        if (last == Character.MAX_VALUE)
+            return null;
+        return prefix.substring(0, prefix.length() - 1) + (char) (last + 1);
+    }
+}
@@ -0,0 +1,83 @@
+package data.query;
+
+/**
+ * Класс диапазона числовых значений поля, заданного условиями выражения фильтра.
+ * Даты хранятся номером дня от начала эпохи, расстояния - значением дистанции
+ * @author Антропов Никита
+ * @version 1.0
+ */
+public final class QueryRange {
+    /** Поле ALL - диапазон без ограничений */
+    static final QueryRange ALL = new QueryRange(Double.NEGATIVE_INFINITY, true, Double.POSITIVE_INFINITY, true);
+
+    /** Поле LOW - нижняя граница */
+    private final double LOW;
+    /** Поле LOW_INCLUSIVE - признак включения нижней границы */
+    private final boolean LOW_INCLUSIVE;
+    /** Поле HIGH - верхняя граница */
+    private final double HIGH;
+    /** Поле HIGH_INCLUSIVE - признак включения верхней границы */
+    private final boolean HIGH_INCLUSIVE;
+
+    /**
+     * Конструктор класса
+     * @param low - нижняя граница
+     * @param low_inclusive - признак включения нижней границы
+     * @param high - верхняя граница
+     * @param high_inclusive - признак включения верхней границы
+     */
+    QueryRange(double low, boolean low_inclusive, double high, boolean high_inclusive) {
+        this.LOW = low;
+        this.LOW_INCLUSIVE = low_inclusive;
+        this.HIGH = high;
+        this.HIGH_INCLUSIVE = high_inclusive;
+    }
+
+    /**
+     * Пересечение с другим диапазоном
+     * @param range - другой диапазон
+     * @return диапазон значений, входящих в оба диапазона
+     */
+    QueryRange intersect(QueryRange range) {
+        double low = Math.max(this.LOW, range.LOW);
+        double high = Math.min(this.HIGH, range.HIGH);
+        boolean low_inclusive = (this.LOW != low || this.LOW_INCLUSIVE) && (range.LOW != low || range.LOW_INCLUSIVE);
+        boolean high_inclusive = (this.HIGH != high || this.HIGH_INCLUSIVE) &&
+                (range.HIGH != high || range.HIGH_INCLUSIVE);
+        return new QueryRange(low, low_inclusive, high, high_inclusive);
+    }
+
+    /**
+     * Получение нижней границы
+     * @see QueryRange#LOW
+     * @return нижняя граница, Double.NEGATIVE_INFINITY - без ограничения
+     */
+    public double getLow() { return this.LOW; }
+
+    /**
+     * Получение верхней границы
+     * @see QueryRange#HIGH
+     * @return верхняя граница, Double.POSITIVE_INFINITY - без ограничения
+     */
+    public double getHigh() { return this.HIGH; }
+
+    /**
+     * Проверка включения нижней границы
+     * @return true, если нижняя граница входит в диапазон
+     */
+    public boolean isLowInclusive() { return this.LOW_INCLUSIVE; }
+
+    /**
+     * Проверка включения верхней границы
+     * @return true, если верхняя граница входит в диапазон
+     */
+    public boolean isHighInclusive() { return this.HIGH_INCLUSIVE; }
+
+    /**
+     * Проверка отсутствия значений в диапазоне
+     * @return true, если ни одно значение не входит в диапазон
+     */
+    public boolean isEmpty() {
+        return this.LOW > this.HIGH || (this.LOW == this.HIGH && !(this.LOW_INCLUSIVE && this.HIGH_INCLUSIVE));
+    }
+}
@@ -0,0 +1,155 @@
+package data.storage;
+
+import data.collection.DataCollection;
+import data.struct.Person;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Класс быстрой загрузки коллекции данных при запуске.
+ * Сохраненные записи разбираются параллельно в общем пуле ForkJoinPool (по одной задаче на блок строк снимка
+ * или блок сегмента), затем упорядоченные по id элементы загружаются в пустую коллекцию, которая строит
+ * все индексы и сумму роста из отсортированных данных за один проход
+ * @author Антропов Никита
+ * @version 1.0
+ */
+public final class ColdStartLoader {
+    /** Поле CHUNK_ROWS - количество строк снимка в одной задаче разбора */
+    private static final int CHUNK_ROWS = 16 * 1024;
+
+    /**
+     * Конструктор класса
+     */
+    private ColdStartLoader() {}
+
+    /**
+     * Класс отчета о загрузке
+     * @author Антропов Никита
+     * @version 1.0
+     */
+    public static final class Report {
+        /** Поле COLLECTION - загруженная коллекция */
+        private final DataCollection COLLECTION;
+        /** Поле ELEMENTS - количество загруженных элементов */
+        private final int ELEMENTS;
+        /** Поле DECODE_NANOS - время разбора записей в наносекундах */
+        private final long DECODE_NANOS;
+        /** Поле INDEX_NANOS - время построения индексов в наносекундах */
+        private final long INDEX_NANOS;
+
+        /**
+         * Конструктор класса
+         * @param collection - загруженная коллекция
+         * @param elements - количество загруженных элементов
+         * @param decode_nanos - время разбора записей в наносекундах
+         * @param index_nanos - время построения индексов в наносекундах
+         */
+        private Report(DataCollection collection, int elements, long decode_nanos, long index_nanos) {
+            this.COLLECTION = collection;
+            this.ELEMENTS = elements;
+            this.DECODE_NANOS = decode_nanos;
+            this.INDEX_NANOS = index_nanos;
+        }
+
+        /**
+         * Получение загруженной коллекции
+         * @see Report#COLLECTION
+         * @return коллекция данных
+         */
+        public DataCollection getCollection() { return this.COLLECTION; }
+
+        /**
+         * Получение количества загруженных элементов
+         * @see Report#ELEMENTS
+         * @return количество элементов
+         */
+        public int getElements() { return this.ELEMENTS; }
+
+        /**
+         * Получение времени разбора записей
+         * @see Report#DECODE_NANOS
+         * @return время в миллисекундах
+         */
+        public long getDecodeMillis() { return TimeUnit.NANOSECONDS.toMillis(this.DECODE_NANOS); }
+
+        /**
+         * Получение времени построения индексов
+         * @see Report#INDEX_NANOS
+         * @return время в миллисекундах
+         */
+        public long getIndexMillis() { return TimeUnit.NANOSECONDS.toMillis(this.INDEX_NANOS); }
+
+        /**
+         * Получение общего времени загрузки
+         * @return время в миллисекундах
+         */
+        public long getTotalMillis() { return TimeUnit.NANOSECONDS.toMillis(this.DECODE_NANOS + this.INDEX_NANOS); }
+
+        /**
+         * Получение скорости загрузки
+         * @return количество элементов в секунду
+         */
+        public long getThroughput() {
+            long nanos = Math.max(this.DECODE_NANOS + this.INDEX_NANOS, 1);
+            return this.ELEMENTS * TimeUnit.SECONDS.toNanos(1) / nanos;
+        }
+
+        /**
+         * Получение отчета в виде строки
+         * @return отчет о загрузке
+         */
+        @Override
+        public String toString() {
+            return "Загружено элементов: " + this.ELEMENTS + " за " + this.getTotalMillis() + " мс (разбор " +
+                    this.getDecodeMillis() + " мс, индексы " + this.getIndexMillis() + " мс), " +
+                    this.getThroughput() + " элементов/с\n";
+        }
+    }
+
+    /**
+     * Загрузка коллекции из файла снимка
+     * @param path - путь до файла снимка
+     * @return отчет о загрузке с коллекцией
+     */
+    public static Report load(Path path) throws IOException {
+        long start = System.nanoTime();
+        SnapshotFile file = SnapshotFile.open(path);
+        PersonColumns columns = file.getColumns();
+        Person[] persons = new Person[columns.size()];
+        int chunks = (columns.size() + ColdStartLoader.CHUNK_ROWS - 1) / ColdStartLoader.CHUNK_ROWS;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int end = Math.min((chunk + 1) * ColdStartLoader.CHUNK_ROWS, columns.size());
+            for (int row = chunk * ColdStartLoader.CHUNK_ROWS; row < end; row++)
+                persons[row] = columns.get(row);
+        });
+        long decoded = System.nanoTime();
+
+        // Строки снимка упорядочены по id, поэтому коллекция строит индексы без вставок по одному
+        DataCollection collection = new DataCollection(file.getLastId());
+        collection.loadElements(Arrays.asList(persons));
+        collection.restoreInfo(file.getUpdateTime(), file.getSaveTime());
+        return new Report(collection, persons.length, decoded - start, System.nanoTime() - decoded);
+    }
+
+    /**
+     * Загрузка коллекции из сегментного хранилища
+     * @see SegmentStore#readAll()
+     * @param store - открытое хранилище
+     * @return отчет о загрузке с коллекцией
+     */
+    public static Report load(SegmentStore store) throws IOException {
+        long start = System.nanoTime();
+        List<Person> persons = store.readAll();
+        long decoded = System.nanoTime();
+
+        // Последовательность продолжается с наибольшего когда-либо выданного id, id удаленных элементов не повторяются
+        DataCollection collection = new DataCollection(store.getLastId());
+        collection.loadElements(persons);
+        return new Report(collection, persons.size(), decoded - start, System.nanoTime() - decoded);
+    }
+}
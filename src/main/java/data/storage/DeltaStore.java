@@ -0,0 +1,541 @@
+package data.storage;
+
+import data.collection.DataCollection;
+import data.collection.ICollectionListener;
+import data.struct.Person;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Класс хранилища коллекции данных в виде базового снимка и файлов изменений.
+ * Хранилище регистрируется слушателем коллекции и накапливает элементы, добавленные, замененные и удаленные
+ * с последнего сохранения. При сохранении в новый файл записываются только эти изменения, а фоновый поток
+ * объединяет базовый снимок и накопившиеся файлы изменений в новый базовый снимок.
+ * Файлы каталога нумеруются по порядку сохранения: base-N.bin в формате {@link SnapshotFile} и delta-N.bin
+ * в формате: сигнатура, версия формата, последний выданный id, признак очистки коллекции, время последнего
+ * обновления и сохранения, записи {@link PersonCodec} сохраненных элементов, id удаленных элементов
+ * @author Антропов Никита
+ * @version 1.0
+ */
+public final class DeltaStore implements ICollectionListener, Closeable {
+    /** Поле MAGIC - сигнатура файла изменений */
+    private static final int MAGIC = 0x50525344;
+    /** Поле FORMAT_VERSION - версия формата файла изменений */
+    private static final int FORMAT_VERSION = 1;
+    /** Поле BASE - префикс имени файла базового снимка */
+    private static final String BASE = "base";
+    /** Поле DELTA - префикс имени файла изменений */
+    private static final String DELTA = "delta";
+    /** Поле FILE_NAME - шаблон имени файла хранилища */
+    private static final Pattern FILE_NAME = Pattern.compile("(" + DeltaStore.BASE + "|" + DeltaStore.DELTA +
+            ")-(\\d+)\\.bin");
+
+    /** Поле DIR - каталог хранилища */
+    private final Path DIR;
+    /** Поле COMPACT_THRESHOLD - количество файлов изменений, после которого запускается объединение */
+    private final int COMPACT_THRESHOLD;
+    /** Поле COMPACTOR - поток фонового объединения файлов */
+    private final ExecutorService COMPACTOR;
+    /** Поле SAVE_LOCK - блокировка сохранения */
+    private final Object SAVE_LOCK;
+    /** Поле COMPACT_LOCK - блокировка записи базового снимка */
+    private final Object COMPACT_LOCK;
+    /** Поле COMPACTING - true, если объединение запланировано или выполняется */
+    private final AtomicBoolean COMPACTING;
+    /** Поле pending - изменения с последнего сохранения */
+    private Delta pending;
+    /** Поле sequence - номер последнего записанного файла, изменяется с блокировкой SAVE_LOCK */
+    private volatile long sequence;
+    /** Поле base_sequence - номер последнего базового снимка, изменяется с блокировкой COMPACT_LOCK */
+    private volatile long base_sequence;
+    /** Поле full_save - true, если базового снимка еще нет и следующее сохранение должно быть полным */
+    private boolean full_save;
+    /** Поле compact_error - ошибка последнего фонового объединения */
+    private volatile IOException compact_error;
+
+    /**
+     * Конструктор класса
+     * @param dir - каталог хранилища
+     * @param compact_threshold - количество файлов изменений, после которого запускается объединение
+     * @param files - файлы каталога по типам и номерам
+     */
+    private DeltaStore(Path dir, int compact_threshold, Map<String, TreeMap<Long, Path>> files) {
+        this.DIR = dir;
+        this.COMPACT_THRESHOLD = compact_threshold;
+        this.COMPACTOR = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "delta-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.SAVE_LOCK = new Object();
+        this.COMPACT_LOCK = new Object();
+        TreeMap<Long, Path> bases = files.get(DeltaStore.BASE);
+        TreeMap<Long, Path> deltas = files.get(DeltaStore.DELTA);
+        this.base_sequence = bases.isEmpty() ? 0 : bases.lastKey();
+        this.COMPACTING = new AtomicBoolean(false);
+        this.pending = new Delta();
+        this.sequence = Math.max(this.base_sequence, deltas.isEmpty() ? 0 : deltas.lastKey());
+        this.full_save = bases.isEmpty();
+    }
+
+    /**
+     * Открытие хранилища для сохранения. Хранилище нужно зарегистрировать слушателем коллекции,
+     * загруженной из этого же каталога методом {@link DeltaStore#load(Path)}, или пустой коллекции.
+     * Если базового снимка еще нет, первое сохранение записывает коллекцию целиком
+     * @param dir - каталог хранилища
+     * @param compact_threshold - количество файлов изменений, после которого запускается объединение
+     * @return хранилище
+     */
+    public static DeltaStore open(Path dir, int compact_threshold) throws IOException, IllegalArgumentException {
+        if (compact_threshold <= 0)
+            throw new IllegalArgumentException("Порог объединения файлов изменений должен быть больше 0\n");
+        Files.createDirectories(dir);
+        DeltaStore store = new DeltaStore(dir, compact_threshold, DeltaStore.list(dir));
+        store.scheduleCompaction();
+        return store;
+    }
+
+    /**
+     * Загрузка коллекции из каталога хранилища: базовый снимок и все более поздние файлы изменений
+     * @param dir - каталог хранилища
+     * @return новая коллекция данных
+     */
+    public static DataCollection load(Path dir) throws IOException {
+        if (!Files.isDirectory(dir))
+            return new DataCollection();
+        Map<String, TreeMap<Long, Path>> files = DeltaStore.list(dir);
+        TreeMap<Long, Path> bases = files.get(DeltaStore.BASE);
+        long base_sequence = bases.isEmpty() ? 0 : bases.lastKey();
+        List<Delta> deltas = new ArrayList<>();
+        for (Path path : files.get(DeltaStore.DELTA).tailMap(base_sequence, false).values())
+            deltas.add(Delta.read(path));
+        return DeltaStore.restore(bases.isEmpty() ? null : SnapshotFile.open(bases.lastEntry().getValue()), deltas);
+    }
+
+    /**
+     * Сохранение изменений коллекции с последнего сохранения с изменением времени последнего сохранения коллекции.
+     * Если изменений нет, файл не записывается
+     * @param collection - коллекция данных, слушателем которой зарегистрировано хранилище
+     */
+    public void save(DataCollection collection) throws IOException {
+        synchronized (this.SAVE_LOCK) {
+            LocalDateTime time = LocalDateTime.now();
+            String save_time = DataCollection.formatTime(time);
+            Delta delta = this.takePending();
+            try {
+                if (this.full_save) {
+                    // Изменения снимаются раньше снимка, поэтому их повторное применение к снимку ничего не меняет
+                    synchronized (this.COMPACT_LOCK) {
+                        this.writeBase(collection, save_time, this.sequence + 1);
+                    }
+                    this.sequence++;
+                    this.full_save = false;
+                }
+                else if (!delta.isEmpty()) {
+                    delta.write(this.file(DeltaStore.DELTA, this.sequence + 1), collection.getLastId(),
+                            collection.getUpdateTime(), save_time);
+                    this.sequence++;
+                }
+            } catch (IOException | RuntimeException e) {
+                this.restorePending(delta);
+                throw e;
+            }
+            collection.setSaveTime(time);
+        }
+        this.scheduleCompaction();
+    }
+
+    /**
+     * @see ICollectionListener#elementSaved(Person)
+     */
+    @Override
+    public synchronized void elementSaved(Person person) { this.pending.save(person); }
+
+    /**
+     * @see ICollectionListener#elementsRemoved(long[])
+     */
+    @Override
+    public synchronized void elementsRemoved(long[] ids) {
+        for (long id : ids)
+            this.pending.remove(id);
+    }
+
+    /**
+     * @see ICollectionListener#collectionCleared()
+     */
+    @Override
+    public synchronized void collectionCleared() { this.pending.clear(); }
+
+    /**
+     * Изменения записываются на диск только при сохранении
+     * @see ICollectionListener#changesCommitted()
+     */
+    @Override
+    public void changesCommitted() {}
+
+    /**
+     * Ожидание завершения фонового объединения и остановка фонового потока.
+     * Несохраненные изменения не записываются
+     */
+    @Override
+    public void close() throws IOException {
+        this.COMPACTOR.shutdown();
+        try {
+            while (!this.COMPACTOR.awaitTermination(1, TimeUnit.MINUTES));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (this.compact_error != null)
+            throw new IOException("Не удалось объединить файлы изменений\n", this.compact_error);
+    }
+
+    /**
+     * Замена накопленных изменений пустыми
+     * @return изменения с последнего сохранения
+     */
+    private synchronized Delta takePending() {
+        Delta delta = this.pending;
+        this.pending = new Delta();
+        return delta;
+    }
+
+    /**
+     * Возврат изменений, которые не удалось сохранить. Изменения, накопленные после их снятия, применяются поверх
+     * @param delta - несохраненные изменения
+     */
+    private synchronized void restorePending(Delta delta) {
+        delta.absorb(this.pending);
+        this.pending = delta;
+    }
+
+    /**
+     * Получение количества файлов изменений после последнего базового снимка.
+     * Файлы нумеруются подряд, поэтому количество вычисляется по номерам последнего записанного файла
+     * и последнего базового снимка: файл, записанный во время объединения и уже вошедший в снимок,
+     * не учитывается дважды, как это было бы с отдельным счетчиком
+     * @return количество файлов изменений
+     */
+    int getDeltaCount() {
+        return (int) Math.max(this.sequence - this.base_sequence, 0);
+    }
+
+    /**
+     * Запуск фонового объединения, если накопилось достаточно файлов изменений
+     */
+    private void scheduleCompaction() {
+        if (this.getDeltaCount() < this.COMPACT_THRESHOLD || !this.COMPACTING.compareAndSet(false, true))
+            return;
+        try {
+            this.COMPACTOR.execute(this::runCompaction);
+        } catch (RejectedExecutionException e) {
+            // Хранилище закрыто
+            this.COMPACTING.set(false);
+        }
+    }
+
+    /**
+     * Выполнение фонового объединения с сохранением ошибки для метода close
+     */
+    private void runCompaction() {
+        boolean folded = false;
+        try {
+            folded = this.compact();
+            this.compact_error = null;
+        } catch (IOException e) {
+            // Файлы изменений остаются на месте, объединение повторится после следующего сохранения
+            this.compact_error = e;
+        } finally {
+            this.COMPACTING.set(false);
+        }
+        // Файлы, записанные во время объединения, объединяются сразу, не дожидаясь следующего сохранения.
+        // Если объединять было нечего, повтор не планируется до следующего сохранения
+        if (folded && this.compact_error == null)
+            this.scheduleCompaction();
+    }
+
+    /**
+     * Объединение базового снимка и файлов изменений в новый базовый снимок с номером последнего файла изменений
+     * @return true, если хотя бы один файл изменений объединен
+     */
+    private boolean compact() throws IOException {
+        synchronized (this.COMPACT_LOCK) {
+            Map<String, TreeMap<Long, Path>> files = DeltaStore.list(this.DIR);
+            TreeMap<Long, Path> bases = files.get(DeltaStore.BASE);
+            long base_sequence = bases.isEmpty() ? 0 : bases.lastKey();
+            SortedMap<Long, Path> folded = files.get(DeltaStore.DELTA).tailMap(base_sequence, false);
+            if (folded.isEmpty())
+                return false;
+
+            List<Delta> deltas = new ArrayList<>(folded.size());
+            for (Path path : folded.values())
+                deltas.add(Delta.read(path));
+            DataCollection collection = DeltaStore.restore(bases.isEmpty() ? null :
+                    SnapshotFile.open(bases.lastEntry().getValue()), deltas);
+            this.writeBase(collection, deltas.get(deltas.size() - 1).save_time, folded.lastKey());
+            return true;
+        }
+    }
+
+    /**
+     * Запись базового снимка и удаление файлов, которые он заменяет. Вызывается с блокировкой COMPACT_LOCK
+     * @param collection - коллекция данных
+     * @param save_time - время и дата сохранения в виде строки
+     * @param sequence - номер базового снимка
+     */
+    private void writeBase(DataCollection collection, String save_time, long sequence) throws IOException {
+        Path path = this.file(DeltaStore.BASE, sequence);
+        SnapshotFile.write(collection.snapshot(), save_time, path);
+        this.base_sequence = sequence;
+
+        for (Map.Entry<String, TreeMap<Long, Path>> entry : DeltaStore.list(this.DIR).entrySet()) {
+            for (Path old : entry.getValue().headMap(sequence, !DeltaStore.BASE.equals(entry.getKey())).values())
+                Files.deleteIfExists(old);
+        }
+    }
+
+    /**
+     * Получение пути до файла хранилища
+     * @param type - тип файла
+     * @param sequence - номер файла
+     * @return путь до файла
+     */
+    private Path file(String type, long sequence) {
+        return this.DIR.resolve(type + "-" + sequence + ".bin");
+    }
+
+    /**
+     * Получение файлов каталога хранилища
+     * @param dir - каталог хранилища
+     * @return файлы по типам, упорядоченные по номеру
+     */
+    private static Map<String, TreeMap<Long, Path>> list(Path dir) throws IOException {
+        Map<String, TreeMap<Long, Path>> files = new HashMap<>();
+        files.put(DeltaStore.BASE, new TreeMap<>());
+        files.put(DeltaStore.DELTA, new TreeMap<>());
+        try (Stream<Path> paths = Files.list(dir)) {
+            paths.forEach(path -> {
+                Matcher matcher = DeltaStore.FILE_NAME.matcher(path.getFileName().toString());
+                if (matcher.matches())
+                    files.get(matcher.group(1)).put(Long.parseLong(matcher.group(2)), path);
+            });
+        }
+        return files;
+    }
+
+    /**
+     * Восстановление коллекции по базовому снимку и файлам изменений
+     * @param base - базовый снимок, null - пустая коллекция
+     * @param deltas - изменения в порядке сохранения
+     * @return новая коллекция данных
+     */
+    private static DataCollection restore(SnapshotFile base, List<Delta> deltas) {
+        long last_id = base == null ? 0 : base.getLastId();
+        for (Delta delta : deltas)
+            last_id = Math.max(last_id, delta.last_id);
+
+        DataCollection collection = new DataCollection(last_id);
+        if (base != null) {
+            List<Person> persons = new ArrayList<>(base.getColumns().size());
+            base.getColumns().forEach(persons::add);
+            collection.loadElements(persons);
+        }
+        deltas.forEach(delta -> delta.applyTo(collection));
+
+        if (!deltas.isEmpty())
+            collection.restoreInfo(deltas.get(deltas.size() - 1).update_time, deltas.get(deltas.size() - 1).save_time);
+        else if (base != null)
+            collection.restoreInfo(base.getUpdateTime(), base.getSaveTime());
+        return collection;
+    }
+
+    /**
+     * Класс изменений коллекции: последнее состояние сохраненных элементов и id удаленных элементов.
+     * Множества сохраненных и удаленных id не пересекаются, поэтому порядок применения внутри изменений не важен
+     * @author Антропов Никита
+     * @version 1.0
+     */
+    private static final class Delta {
+        /** Поле saved - сохраненные элементы по id */
+        private final Map<Long, Person> saved = new HashMap<>();
+        /** Поле removed - id удаленных элементов */
+        private final Set<Long> removed = new HashSet<>();
+        /** Поле cleared - true, если коллекция очищалась до этих изменений */
+        private boolean cleared = false;
+        /** Поле last_id - последний выданный id на момент сохранения (для прочитанных изменений) */
+        private long last_id = 0;
+        /** Поле update_time - время и дата последнего обновления (для прочитанных изменений) */
+        private String update_time;
+        /** Поле save_time - время и дата сохранения (для прочитанных изменений) */
+        private String save_time;
+
+        /**
+         * Добавление или замена элемента
+         * @param person - элемент с заданным id
+         */
+        private void save(Person person) {
+            this.removed.remove(person.getId());
+            this.saved.put(person.getId(), person);
+        }
+
+        /**
+         * Удаление элемента
+         * @param id - id элемента
+         */
+        private void remove(long id) {
+            this.saved.remove(id);
+            this.removed.add(id);
+        }
+
+        /**
+         * Удаление всех элементов
+         */
+        private void clear() {
+            this.saved.clear();
+            this.removed.clear();
+            this.cleared = true;
+        }
+
+        /**
+         * Применение более поздних изменений поверх текущих
+         * @param later - более поздние изменения
+         */
+        private void absorb(Delta later) {
+            if (later.cleared)
+                this.clear();
+            later.removed.forEach(this::remove);
+            later.saved.values().forEach(this::save);
+        }
+
+        /**
+         * Проверка отсутствия изменений
+         * @return true, если изменений нет
+         */
+        private boolean isEmpty() {
+            return !this.cleared && this.saved.isEmpty() && this.removed.isEmpty();
+        }
+
+        /**
+         * Применение изменений к коллекции
+         * @param collection - коллекция данных
+         */
+        private void applyTo(DataCollection collection) {
+            if (this.cleared)
+                collection.clearElement();
+            for (long id : this.removed) {
+                try {
+                    collection.removeElement(id);
+                } catch (NoSuchElementException ignored) {
+                    // Элемента нет в базовом снимке
+                }
+            }
+            collection.loadElements(this.saved.values());
+        }
+
+        /**
+         * Запись изменений во временный файл с последующей атомарной заменой файла изменений
+         * @param path - путь до файла изменений
+         * @param last_id - последний выданный id
+         * @param update_time - время и дата последнего обновления в виде строки
+         * @param save_time - время и дата сохранения в виде строки
+         */
+        private void write(Path path, long last_id, String update_time, String save_time) throws IOException {
+            byte[] update_bytes = update_time.getBytes(StandardCharsets.UTF_8);
+            byte[] save_bytes = save_time.getBytes(StandardCharsets.UTF_8);
+            List<byte[]> records = new ArrayList<>(this.saved.size());
+            int size = 6 * Integer.BYTES + Long.BYTES + 1 + update_bytes.length + save_bytes.length +
+                    this.removed.size() * Long.BYTES;
+            for (Person person : this.saved.values()) {
+                byte[] record = PersonCodec.encode(person);
+                records.add(record);
+                size += record.length;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(DeltaStore.MAGIC).putInt(DeltaStore.FORMAT_VERSION).putLong(last_id)
+                    .put((byte) (this.cleared ? 1 : 0))
+                    .putInt(update_bytes.length).put(update_bytes).putInt(save_bytes.length).put(save_bytes);
+            buffer.putInt(records.size());
+            records.forEach(buffer::put);
+            buffer.putInt(this.removed.size());
+            this.removed.forEach(buffer::putLong);
+            buffer.flip();
+
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+                channel.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        /**
+         * Чтение файла изменений
+         * @param path - путь до файла изменений
+         * @return прочитанные изменения
+         */
+        private static Delta read(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                if (buffer.remaining() < 2 * Integer.BYTES || buffer.getInt() != DeltaStore.MAGIC)
+                    throw new IOException("Файл " + path + " не является файлом изменений коллекции\n");
+                int format_version = buffer.getInt();
+                if (format_version != DeltaStore.FORMAT_VERSION)
+                    throw new IOException("Версия формата файла изменений " + format_version + " не поддерживается\n");
+
+                Delta delta = new Delta();
+                delta.last_id = buffer.getLong();
+                delta.cleared = buffer.get() != 0;
+                delta.update_time = Delta.readString(buffer);
+                delta.save_time = Delta.readString(buffer);
+                for (int i = buffer.getInt(); i > 0; i--)
+                    delta.save(PersonCodec.decode(buffer));
+                for (int i = buffer.getInt(); i > 0; i--)
+                    delta.remove(buffer.getLong());
+                return delta;
+            } catch (RuntimeException e) {
+                throw new IOException("Файл изменений " + path + " поврежден\n", e);
+            }
+        }
+
+        /**
+         * Чтение строки в формате {длина, байты UTF-8}
+         * @param buffer - буфер чтения
+         * @return прочитанная строка
+         */
+        private static String readString(ByteBuffer buffer) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,982 @@
+package data.storage;
+
+import data.collection.CollectionInfo;
+import data.collection.CollectionListeners;
+import data.collection.ICollectionListener;
+import data.collection.IPersonCollection;
+import data.query.PersonQuery;
+import data.struct.EEyeColor;
+import data.struct.EHairColor;
+import data.struct.Person;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Класс коллекции данных с ограниченным объемом памяти поверх снимка, отображенного в память.
+ * Холодные элементы остаются в колонках файла снимка и создаются при обращении, созданные элементы хранятся
+ * в кэше с вытеснением давно не использованных элементов при превышении заданного объема.
+ * Индексом по id служит колонка id снимка, упорядоченная по возрастанию. Добавленные и замененные элементы
+ * хранятся в памяти, удаленные строки снимка отмечаются в битовой маске. Когда изменений становится больше
+ * заданного предела, фоновый поток объединяет их со снимком в новый файл снимка, который заменяет прежний.
+ * Изменения между объединениями сохраняются журналом предзаписи, если он задан при открытии.
+ * Поиск максимального и минимального элемента, удаление меньших элементов и фильтр выполняются
+ * полным обходом колонок, элементы при обходе не попадают в кэш
+ * @author Антропов Никита
+ * @version 1.0
+ */
+public final class PagedCollection implements IPersonCollection, Closeable {
+    /** Поле DEFAULT_OVERLAY_LIMIT - количество изменений по умолчанию, после которого выполняется объединение */
+    public static final int DEFAULT_OVERLAY_LIMIT = 64 * 1024;
+    /** Поле ENTRY_OVERHEAD - оценка размера объекта Person с вложенными объектами и записью кэша без строк */
+    private static final int ENTRY_OVERHEAD = 192;
+
+    /** Поле PATH - путь до файла снимка */
+    private final Path PATH;
+    /** Поле INFO - информация о коллекции */
+    private final CollectionInfo INFO;
+    /** Поле base - колонки снимка, отображенные в память, заменяются при объединении */
+    private PersonColumns base;
+    /** Поле removed - удаленные или замененные строки снимка */
+    private BitSet removed;
+    /** Поле removed_count - количество удаленных или замененных строк снимка */
+    private int removed_count;
+    /** Поле OVERLAY - добавленные и замененные элементы по id */
+    private final TreeMap<Long, Person> OVERLAY;
+    /** Поле OVERLAY_LIMIT - количество изменений, после которого выполняется объединение со снимком */
+    private final int OVERLAY_LIMIT;
+    /** Поле CACHE - созданные элементы снимка в порядке последнего обращения */
+    private final LinkedHashMap<Long, Person> CACHE;
+    /** Поле CACHE_BUDGET - допустимый объем кэша в байтах */
+    private final long CACHE_BUDGET;
+    /** Поле cache_bytes - оценка объема кэша в байтах */
+    private long cache_bytes;
+    /** Поле LOCK - блокировка снимка, маски удаленных строк и добавленных элементов */
+    private final StampedLock LOCK;
+    /** Поле LISTENERS - слушатели изменений коллекции */
+    private final CollectionListeners LISTENERS;
+    /** Поле batch_owner - поток, выполняющий группу изменений под удерживаемой блокировкой записи */
+    private volatile Thread batch_owner;
+    /** Поле batch_changed - признак изменения коллекции в текущей группе изменений */
+    private boolean batch_changed;
+    /** Поле last_id - последний выданный id */
+    private long last_id;
+    /** Поле size - количество элементов */
+    private int size;
+    /** Поле height_sum - сумма значений поля Height всех элементов */
+    private long height_sum;
+    /** Поле touched - id элементов, измененных во время объединения, null - объединение не выполняется */
+    private HashSet<Long> touched;
+    /** Поле cleared - признак удаления всех элементов во время объединения */
+    private boolean cleared;
+    /** Поле MERGE_LOCK - блокировка, разрешающая только одно объединение одновременно */
+    private final Object MERGE_LOCK;
+    /** Поле MERGER - поток фонового объединения изменений со снимком */
+    private final ExecutorService MERGER;
+    /** Поле MERGING - признак запланированного фонового объединения */
+    private final AtomicBoolean MERGING;
+    /** Поле merge_error - ошибка последнего фонового объединения */
+    private volatile IOException merge_error;
+    /** Поле log - журнал изменений между объединениями, null - журнал не ведется */
+    private volatile WriteAheadLog log;
+
+    /**
+     * Конструктор класса
+     * @param path - путь до файла снимка
+     * @param file - открытый снимок коллекции
+     * @param cache_budget - допустимый объем кэша в байтах
+     * @param overlay_limit - количество изменений, после которого выполняется объединение со снимком
+     */
+    private PagedCollection(Path path, SnapshotFile file, long cache_budget, int overlay_limit) {
+        this.PATH = path;
+        this.base = file.getColumns();
+        this.INFO = new CollectionInfo(Person.class.getSimpleName(), this.base.size());
+        this.INFO.restoreTimes(file.getUpdateTime(), file.getSaveTime());
+        this.removed = new BitSet(this.base.size());
+        this.removed_count = 0;
+        this.OVERLAY = new TreeMap<>();
+        this.OVERLAY_LIMIT = overlay_limit;
+        this.CACHE = new LinkedHashMap<>(16, 0.75f, true);
+        this.CACHE_BUDGET = cache_budget;
+        this.cache_bytes = 0;
+        this.LOCK = new StampedLock();
+        this.LISTENERS = new CollectionListeners();
+        this.batch_owner = null;
+        this.batch_changed = false;
+        this.last_id = file.getLastId();
+        this.size = this.base.size();
+        // Сумма считается один раз по колонке роста и дальше изменяется вместе с коллекцией
+        this.height_sum = 0;
+        for (int row = 0; row < this.base.size(); row++)
+            this.height_sum += this.base.getHeight(row);
+        this.touched = null;
+        this.cleared = false;
+        this.MERGE_LOCK = new Object();
+        this.MERGER = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "paged-merger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.MERGING = new AtomicBoolean(false);
+        this.log = null;
+    }
+
+    /**
+     * Открытие коллекции над файлом снимка без журнала изменений
+     * @see PagedCollection#open(Path, long, int, Path)
+     * @param path - путь до файла снимка
+     * @param cache_budget - допустимый объем кэша элементов в байтах, 0 - без кэша
+     * @return коллекция данных
+     */
+    public static PagedCollection open(Path path, long cache_budget) throws IOException, IllegalArgumentException {
+        return PagedCollection.open(path, cache_budget, PagedCollection.DEFAULT_OVERLAY_LIMIT, null);
+    }
+
+    /**
+     * Открытие коллекции над файлом снимка. Если файла снимка нет, создается пустой снимок.
+     * Если задан журнал изменений, его записи применяются к снимку, а новые изменения записываются в журнал
+     * до очередного объединения со снимком
+     * @see SnapshotFile#open(Path)
+     * @param path - путь до файла снимка
+     * @param cache_budget - допустимый объем кэша элементов в байтах, 0 - без кэша
+     * @param overlay_limit - количество изменений, после которого выполняется объединение со снимком
+     * @param log_path - путь до файла журнала изменений, null - журнал не ведется
+     * @return коллекция данных
+     */
+    public static PagedCollection open(Path path, long cache_budget, int overlay_limit, Path log_path)
+            throws IOException, IllegalArgumentException {
+        if (cache_budget < 0)
+            throw new IllegalArgumentException("Объем кэша не может быть отрицательным\n");
+        if (overlay_limit <= 0)
+            throw new IllegalArgumentException("Количество изменений до объединения должно быть больше 0\n");
+        if (!Files.exists(path)) {
+            String time = CollectionInfo.timeFormat(LocalDateTime.now());
+            SnapshotFile.write(new PersonColumns(), 0, time, time, path);
+        }
+        PagedCollection collection = new PagedCollection(path, SnapshotFile.open(path), cache_budget, overlay_limit);
+        if (log_path != null) {
+            WriteAheadLog.replay(log_path, collection);
+            collection.log = WriteAheadLog.open(log_path);
+            collection.addListener(collection.log);
+        }
+        return collection;
+    }
+
+    /**
+     * Получение итератора на коллекцию в порядке возрастания id.
+     * Элементы снимка создаются по мере обхода и не попадают в кэш, поэтому обход не вытесняет рабочий набор
+     * @return ссылка на итератор
+     */
+    @Override
+    public Iterator<Person> iterator() {
+        return this.view().scan(row -> true, person -> true);
+    }
+
+    /**
+     * @see IPersonCollection#addListener(ICollectionListener)
+     */
+    @Override
+    public void addListener(ICollectionListener listener) { this.LISTENERS.add(listener); }
+
+    /**
+     * @see IPersonCollection#removeListener(ICollectionListener)
+     */
+    @Override
+    public void removeListener(ICollectionListener listener) { this.LISTENERS.remove(listener); }
+
+    /**
+     * @see IPersonCollection#getInfo()
+     */
+    @Override
+    public String getInfo() { return this.INFO.toString(); }
+
+    /**
+     * Получение последнего выданного id
+     * @return последний выданный id
+     */
+    @Override
+    public long getLastId() {
+        long stamp = this.lockRead();
+        try {
+            return this.last_id;
+        } finally {
+            this.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @see IPersonCollection#batch(Runnable)
+     */
+    @Override
+    public void batch(Runnable body) {
+        if (this.batch_owner == Thread.currentThread()) {
+            body.run();
+            return;
+        }
+        long stamp = this.lockWrite();
+        this.batch_owner = Thread.currentThread();
+        try {
+            body.run();
+        } finally {
+            this.batch_owner = null;
+            if (this.batch_changed) {
+                this.batch_changed = false;
+                this.updateInfo();
+            }
+            this.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Добавление элемента в коллекцию
+     * @param person - новый элемент
+     */
+    @Override
+    public void addElement(Person person) {
+        long stamp = this.lockWrite();
+        try {
+            person.Id(++this.last_id);
+            this.attach(person);
+            this.changed();
+            this.LISTENERS.fire(e -> e.elementSaved(person));
+        } finally {
+            this.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @see IPersonCollection#addElements(List)
+     */
+    @Override
+    public void addElements(List<Person> persons) {
+        if (persons.isEmpty())
+            return;
+        long stamp = this.lockWrite();
+        try {
+            for (Person person : persons) {
+                person.Id(++this.last_id);
+                this.attach(person);
+                this.LISTENERS.fire(e -> e.elementSaved(person));
+            }
+            this.changed();
+        } finally {
+            this.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @see IPersonCollection#loadElements(Collection)
+     */
+    @Override
+    public void loadElements(Collection<Person> persons) throws IllegalArgumentException {
+        if (persons.isEmpty())
+            return;
+        if (persons.stream().anyMatch(e -> e.getId() <= 0))
+            throw new IllegalArgumentException("Поле id должно быть больше 0\n");
+        long stamp = this.lockWrite();
+        try {
+            for (Person person : persons) {
+                if (this.contains(person.getId()))
+                    this.detach(person.getId());
+                this.attach(person);
+                this.last_id = Math.max(this.last_id, person.getId());
+                this.LISTENERS.fire(e -> e.elementSaved(person));
+            }
+            this.changed();
+        } finally {
+            this.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Добавление элемента в коллекцию, если его значение превышает значение максимального элемента.
+     * Максимальный элемент ищется полным обходом коллекции под блокировкой записи
+     * @param person - новый элемент
+     * @param comparator - сортировщик, по которому сравниваются элементы
+     */
+    @Override
+    public void addMaxElement(Person person, Comparator<Person> comparator) {
+        long stamp = this.lockWrite();
+        try {
+            Person max_element = PagedCollection.max(this.currentView().scan(row -> true, e -> true), comparator);
+            if (max_element != null && comparator.compare(max_element, person) >= 0)
+                return;
+            person.Id(++this.last_id);
+            this.attach(person);
+            this.changed();
+            this.LISTENERS.fire(e -> e.elementSaved(person));
+        } finally {
+            this.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Получение максимального элемента коллекции полным обходом
+     * @param comparator - сортировщик, по которому сравниваются элементы
+     * @return максимальный элемент или null, если коллекция пуста
+     */
+    @Override
+    public Person getMaxElement(Comparator<Person> comparator) {
+        return PagedCollection.max(this.iterator(), comparator);
+    }
+
+    /**
+     * Получение минимального элемента коллекции полным обходом
+     * @param comparator - сортировщик, по которому сравниваются элементы
+     * @return минимальный элемент или null, если коллекция пуста
+     */
+    @Override
+    public Person getMinElement(Comparator<Person> comparator) {
+        return PagedCollection.max(this.iterator(), comparator.reversed());
+    }
+
+    /**
+     * Замена элемента коллекции по id
+     * @param person - новый элемент
+     * @param id - id заменяемого элемента
+     */
+    @Override
+    public void updateElement(Person person, long id) throws IndexOutOfBoundsException, NoSuchElementException {
+        long stamp = this.lockWrite();
+        try {
+            this.detach(id);
+            person.Id(id);
+            this.attach(person);
+            this.changed();
+            this.LISTENERS.fire(e -> e.elementSaved(person));
+        } finally {
+            this.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Удаление элемента коллекции по id
+     * @param id - id элемента коллекции
+     */
+    @Override
+    public void removeElement(long id) throws IndexOutOfBoundsException, NoSuchElementException {
+        long stamp = this.lockWrite();
+        try {
+            this.detach(id);
+            this.changed();
+            this.LISTENERS.fire(e -> e.elementsRemoved(new long[] {id}));
+        } finally {
+            this.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Удаление всех элементов коллекции, которые меньше заданного, полным обходом под блокировкой записи
+     * @param person - заданный элемент
+     * @param comparator - сортировщик, по которому сравниваются элементы
+     */
+    @Override
+    public void removeLowerElement(Person person, Comparator<Person> comparator) {
+        long stamp = this.lockWrite();
+        try {
+            List<Long> lower = new ArrayList<>();
+            for (Iterator<Person> iterator = this.currentView().scan(row -> true, e -> true); iterator.hasNext();) {
+                Person element = iterator.next();
+                if (comparator.compare(element, person) < 0)
+                    lower.add(element.getId());
+            }
+            if (lower.isEmpty())
+                return;
+            lower.forEach(this::detach);
+            this.changed();
+            long[] ids = lower.stream().mapToLong(Long::longValue).toArray();
+            this.LISTENERS.fire(e -> e.elementsRemoved(ids));
+        } finally {
+            this.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Удаление всех элементов коллекции. Строки снимка отмечаются удаленными до следующего объединения
+     */
+    @Override
+    public void clearElement() {
+        long stamp = this.lockWrite();
+        try {
+            this.removed.set(0, this.base.size());
+            this.removed_count = this.base.size();
+            this.OVERLAY.clear();
+            synchronized (this.CACHE) {
+                this.CACHE.clear();
+                this.cache_bytes = 0;
+            }
+            this.size = 0;
+            this.height_sum = 0;
+            if (this.touched != null)
+                this.cleared = true;
+            this.changed();
+            this.LISTENERS.fire(ICollectionListener::collectionCleared);
+        } finally {
+            this.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Получение суммы значений поля Height всех элементов без обхода коллекции
+     * @return сумма значений поля Height
+     */
+    @Override
+    public long sumOfHeight() {
+        long stamp = this.lockRead();
+        try {
+            return this.height_sum;
+        } finally {
+            this.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Получение итератора на коллекцию с фильтром по заданному цвету волос.
+     * Колонка цвета волос просматривается без создания объектов, создаются только подходящие элементы
+     * @param hair_color - заданный цвет волос
+     * @return итератор на коллекцию с элементами, у которых значение поля HAIR_COLOR равно заданному
+     */
+    @Override
+    public Iterator<Person> filterByHairColor(String hair_color) throws NoSuchElementException {
+        EHairColor color = EHairColor.getByName(hair_color);
+        View view = this.view();
+        ByteBuffer column = view.BASE.column(PersonColumns.Column.HAIR_COLOR);
+        return view.scan(row -> column.get(row) == color.ordinal(), person -> person.getHairColor() == color);
+    }
+
+    /**
+     * Получение элементов, удовлетворяющих выражению фильтра, упорядоченных по id.
+     * Условия на цвет волос и глаз проверяются по колонкам без создания объектов, остальные условия -
+     * по созданным элементам
+     * @param query - скомпилированное выражение фильтра
+     * @return подходящие элементы
+     */
+    @Override
+    public List<Person> filter(PersonQuery query) {
+        List<Person> result = new ArrayList<>();
+        if (query.isEmpty())
+            return result;
+        View view = this.view();
+        ByteBuffer hair = view.BASE.column(PersonColumns.Column.HAIR_COLOR);
+        ByteBuffer eye = view.BASE.column(PersonColumns.Column.EYE_COLOR);
+        int hair_color = query.getHairColor() != null ? query.getHairColor().ordinal() : PersonColumns.NO_COLOR;
+        int eye_color = query.getEyeColor() != null ? query.getEyeColor().ordinal() : PersonColumns.NO_COLOR;
+        IntPredicate rows = row -> (query.getHairColor() == null || hair.get(row) == hair_color) &&
+                (query.getEyeColor() == null || eye.get(row) == eye_color);
+        for (Iterator<Person> iterator = view.scan(rows, person -> true); iterator.hasNext();) {
+            Person person = iterator.next();
+            if (query.test(person))
+                result.add(person);
+        }
+        return result;
+    }
+
+    /**
+     * Поиск элемента с заданным id. Элемент снимка помещается в кэш под блокировкой чтения,
+     * поэтому одновременно удаленный элемент не может вернуться в кэш
+     * @param id - id элемента
+     * @return ссылка на найденный элемент
+     */
+    @Override
+    public Person findById(long id) throws IndexOutOfBoundsException, NoSuchElementException {
+        if (id <= 0)
+            throw new IndexOutOfBoundsException("Поле id должно быть больше 0\n");
+        long stamp = this.lockRead();
+        try {
+            Person person = this.OVERLAY.get(id);
+            if (person != null)
+                return person;
+            int row = this.base.findRow(id);
+            if (this.removed.get(row))
+                throw new NoSuchElementException("Элемента с заданным id не существует\n");
+            return this.cached(row);
+        } finally {
+            this.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Получение итератора на коллекцию, отсортированную по убыванию поля EYE_COLOR, затем по id.
+     * Для каждого цвета колонка цвета глаз просматривается без создания объектов, элементы создаются по мере обхода
+     * @return итератор на коллекцию, отсортированную по полю EYE_COLOR
+     */
+    @Override
+    public Iterator<Person> getFieldDescendingByEyeColor() {
+        View view = this.view();
+        ByteBuffer column = view.BASE.column(PersonColumns.Column.EYE_COLOR);
+        EEyeColor[] colors = EEyeColor.values();
+        return new Iterator<>() {
+            /** Поле color - порядковый номер текущего цвета, NO_COLOR - элементы без цвета глаз */
+            private int color = colors.length;
+            /** Поле current - итератор по элементам текущего цвета */
+            private Iterator<Person> current = List.<Person>of().iterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!this.current.hasNext() && this.color > PersonColumns.NO_COLOR) {
+                    int value = --this.color;
+                    EEyeColor eye_color = value == PersonColumns.NO_COLOR ? null : colors[value];
+                    this.current = view.scan(row -> column.get(row) == value,
+                            person -> person.getEyeColor() == eye_color);
+                }
+                return this.current.hasNext();
+            }
+
+            @Override
+            public Person next() {
+                if (!this.hasNext())
+                    throw new NoSuchElementException();
+                return this.current.next();
+            }
+        };
+    }
+
+    /**
+     * Объединение изменений со снимком: элементы коллекции записываются в новый файл снимка, который атомарно
+     * заменяет прежний, после чего журнал изменений сокращается. Файл записывается без блокировки коллекции,
+     * изменения, выполненные во время записи, переносятся на новый снимок. Не вызывается из группы изменений
+     */
+    public void merge() throws IOException, IllegalStateException {
+        if (this.batch_owner == Thread.currentThread())
+            throw new IllegalStateException("Объединение со снимком нельзя выполнять в группе изменений\n");
+        synchronized (this.MERGE_LOCK) {
+            View view;
+            long merged_last_id;
+            String update_time;
+            long mark;
+            long stamp = this.LOCK.writeLock();
+            try {
+                view = this.currentView();
+                merged_last_id = this.last_id;
+                update_time = this.INFO.getUpdateTime();
+                // Все записи журнала до отметки вошли в записываемый снимок
+                mark = this.log != null ? this.log.mark() : 0;
+                this.touched = new HashSet<>();
+                this.cleared = false;
+            } finally {
+                this.LOCK.unlockWrite(stamp);
+            }
+
+            SnapshotFile file;
+            LocalDateTime time = LocalDateTime.now();
+            try {
+                PersonColumns columns = new PersonColumns();
+                for (Iterator<Person> iterator = view.scan(row -> true, person -> true); iterator.hasNext();)
+                    columns.append(iterator.next());
+                SnapshotFile.write(columns, merged_last_id, update_time, CollectionInfo.timeFormat(time), this.PATH);
+                file = SnapshotFile.open(this.PATH);
+            } catch (IOException | RuntimeException e) {
+                stamp = this.LOCK.writeLock();
+                this.touched = null;
+                this.LOCK.unlockWrite(stamp);
+                throw e;
+            }
+
+            stamp = this.LOCK.writeLock();
+            try {
+                this.swap(file.getColumns());
+                this.INFO.setSaveTime(time);
+            } finally {
+                this.LOCK.unlockWrite(stamp);
+            }
+            if (this.log != null)
+                this.log.checkpoint(mark);
+        }
+    }
+
+    /**
+     * Получение количества элементов
+     * @return количество элементов
+     */
+    public int size() {
+        long stamp = this.lockRead();
+        try {
+            return this.size;
+        } finally {
+            this.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Получение оценки объема кэша
+     * @return объем кэша в байтах
+     */
+    public long getCacheBytes() {
+        synchronized (this.CACHE) {
+            return this.cache_bytes;
+        }
+    }
+
+    /**
+     * Завершение фонового объединения и закрытие журнала изменений. Изменения, еще не объединенные со снимком,
+     * остаются в журнале
+     */
+    @Override
+    public void close() throws IOException {
+        this.MERGER.shutdown();
+        try {
+            while (!this.MERGER.awaitTermination(1, TimeUnit.MINUTES));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (this.log != null)
+            this.log.close();
+        if (this.merge_error != null)
+            throw new IOException("Не удалось объединить изменения со снимком\n", this.merge_error);
+    }
+
+    /**
+     * Замена снимка новым снимком, записанным при объединении. Вызывается с блокировкой записи.
+     * Строки нового снимка, измененные во время записи, отмечаются удаленными, в памяти остаются только
+     * элементы, добавленные или замененные во время записи
+     * @param columns - колонки нового снимка
+     */
+    private void swap(PersonColumns columns) {
+        BitSet new_removed = new BitSet(columns.size());
+        if (this.cleared)
+            new_removed.set(0, columns.size());
+        else {
+            for (long id : this.touched) {
+                try {
+                    new_removed.set(columns.findRow(id));
+                } catch (NoSuchElementException ignored) {
+                    // Элемент добавлен во время записи
+                }
+            }
+            this.OVERLAY.keySet().retainAll(this.touched);
+        }
+        this.base = columns;
+        this.removed = new_removed;
+        this.removed_count = new_removed.cardinality();
+        this.touched = null;
+        this.cleared = false;
+    }
+
+    /**
+     * Запуск фонового объединения, если оно еще не запланировано
+     */
+    private void scheduleMerge() {
+        if (!this.MERGING.compareAndSet(false, true))
+            return;
+        try {
+            this.MERGER.execute(() -> {
+                try {
+                    this.merge();
+                    this.merge_error = null;
+                } catch (IOException e) {
+                    this.merge_error = e;
+                } finally {
+                    this.MERGING.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Коллекция закрыта
+            this.MERGING.set(false);
+        }
+    }
+
+    /**
+     * Получение согласованного представления коллекции для обхода без блокировки
+     * @return представление коллекции
+     */
+    private View view() {
+        long stamp = this.lockRead();
+        try {
+            return this.currentView();
+        } finally {
+            this.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Получение согласованного представления коллекции. Вызывается с блокировкой
+     * @return представление коллекции
+     */
+    private View currentView() {
+        return new View(this.base, (BitSet) this.removed.clone(), new ArrayList<>(this.OVERLAY.values()));
+    }
+
+    /**
+     * Проверка наличия элемента с заданным id. Вызывается с блокировкой
+     * @param id - id элемента
+     * @return true, если элемент найден
+     */
+    private boolean contains(long id) {
+        if (this.OVERLAY.containsKey(id))
+            return true;
+        try {
+            return !this.removed.get(this.base.findRow(id));
+        } catch (NoSuchElementException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Добавление элемента в память. Вызывается с блокировкой записи
+     * @param person - элемент с заданным id
+     */
+    private void attach(Person person) {
+        this.OVERLAY.put(person.getId(), person);
+        this.size++;
+        this.height_sum += person.getHeight();
+        if (this.touched != null)
+            this.touched.add(person.getId());
+    }
+
+    /**
+     * Удаление элемента из снимка или добавленных элементов. Вызывается с блокировкой записи
+     * @param id - id элемента
+     */
+    private void detach(long id) throws IndexOutOfBoundsException, NoSuchElementException {
+        if (id <= 0)
+            throw new IndexOutOfBoundsException("Поле id должно быть больше 0\n");
+        Person person = this.OVERLAY.remove(id);
+        if (person != null)
+            this.height_sum -= person.getHeight();
+        else {
+            int row = this.base.findRow(id);
+            if (this.removed.get(row))
+                throw new NoSuchElementException("Элемента с заданным id не существует\n");
+            this.removed.set(row);
+            this.removed_count++;
+            this.height_sum -= this.base.getHeight(row);
+            synchronized (this.CACHE) {
+                Person cached = this.CACHE.remove(id);
+                if (cached != null)
+                    this.cache_bytes -= PagedCollection.weight(cached);
+            }
+        }
+        this.size--;
+        if (this.touched != null)
+            this.touched.add(id);
+    }
+
+    /**
+     * Захват блокировки записи. Внутри группы изменений блокировка уже удерживается текущим потоком
+     * @return метка блокировки записи, 0 - внутри группы изменений
+     */
+    private long lockWrite() throws IllegalStateException {
+        if (this.batch_owner == Thread.currentThread())
+            return 0;
+        long stamp = this.LOCK.writeLock();
+        try {
+            this.LISTENERS.checkWritable();
+        } catch (IllegalStateException e) {
+            this.LOCK.unlockWrite(stamp);
+            throw e;
+        }
+        return stamp;
+    }
+
+    /**
+     * Захват блокировки чтения. Внутри группы изменений блокировка записи уже удерживается текущим потоком
+     * @return метка блокировки чтения, 0 - внутри группы изменений
+     */
+    private long lockRead() {
+        return this.batch_owner == Thread.currentThread() ? 0 : this.LOCK.readLock();
+    }
+
+    /**
+     * Снятие блокировки чтения
+     * @param stamp - метка блокировки чтения, 0 - внутри группы изменений
+     */
+    private void unlockRead(long stamp) {
+        if (stamp != 0)
+            this.LOCK.unlockRead(stamp);
+    }
+
+    /**
+     * Снятие блокировки записи, запуск объединения при превышении предела изменений
+     * и уведомление слушателей о завершении изменения
+     * @see CollectionListeners#commit(RuntimeException)
+     * @param stamp - метка блокировки записи, 0 - внутри группы изменений
+     */
+    private void unlockWrite(long stamp) throws RuntimeException {
+        if (stamp == 0)
+            return;
+        RuntimeException failure = this.LISTENERS.takeFailure();
+        boolean merge = this.touched == null && this.OVERLAY.size() + this.removed_count > this.OVERLAY_LIMIT;
+        this.LOCK.unlockWrite(stamp);
+        if (merge)
+            this.scheduleMerge();
+        this.LISTENERS.commit(failure);
+    }
+
+    /**
+     * Изменение информации о коллекции. Внутри группы изменений информация изменяется при завершении группы
+     */
+    private void changed() {
+        if (this.batch_owner == Thread.currentThread())
+            this.batch_changed = true;
+        else
+            this.updateInfo();
+    }
+
+    /**
+     * Изменение времени последнего обновления и количества элементов в информации о коллекции
+     */
+    private void updateInfo() {
+        this.INFO.setUpdateTime(LocalDateTime.now());
+        this.INFO.setElementCount(this.size);
+    }
+
+    /**
+     * Получение элемента снимка из кэша с созданием и вытеснением давно не использованных элементов.
+     * Вызывается с блокировкой
+     * @param row - номер строки снимка
+     * @return элемент снимка
+     */
+    private Person cached(int row) {
+        long id = this.base.getId(row);
+        synchronized (this.CACHE) {
+            Person person = this.CACHE.get(id);
+            if (person != null)
+                return person;
+        }
+
+        // Элемент создается без блокировки кэша, при гонке в кэше остается первый созданный объект
+        Person person = this.base.get(row);
+        synchronized (this.CACHE) {
+            Person cached = this.CACHE.putIfAbsent(id, person);
+            if (cached != null)
+                return cached;
+            this.cache_bytes += PagedCollection.weight(person);
+            Iterator<Person> eldest = this.CACHE.values().iterator();
+            while (this.cache_bytes > this.CACHE_BUDGET && eldest.hasNext()) {
+                this.cache_bytes -= PagedCollection.weight(eldest.next());
+                eldest.remove();
+            }
+        }
+        return person;
+    }
+
+    /**
+     * Поиск максимального элемента
+     * @param iterator - итератор по элементам
+     * @param comparator - сортировщик, по которому сравниваются элементы
+     * @return максимальный элемент или null, если элементов нет
+     */
+    private static Person max(Iterator<Person> iterator, Comparator<Person> comparator) {
+        Person max_element = null;
+        while (iterator.hasNext()) {
+            Person person = iterator.next();
+            if (max_element == null || comparator.compare(person, max_element) > 0)
+                max_element = person;
+        }
+        return max_element;
+    }
+
+    /**
+     * Оценка объема памяти элемента в кэше
+     * @param person - элемент
+     * @return объем в байтах
+     */
+    private static long weight(Person person) {
+        long chars = person.getName().length() + person.getPassportId().length() +
+                (person.hasLocation() ? person.getLocName().length() : 0);
+        return PagedCollection.ENTRY_OVERHEAD + 2 * chars;
+    }
+
+    /**
+     * Класс согласованного представления коллекции: снимок, маска удаленных строк и добавленные элементы
+     * на момент создания представления
+     * @author Антропов Никита
+     * @version 1.0
+     */
+    private static final class View {
+        /** Поле BASE - колонки снимка */
+        private final PersonColumns BASE;
+        /** Поле REMOVED - удаленные или замененные строки снимка */
+        private final BitSet REMOVED;
+        /** Поле OVERLAY - добавленные и замененные элементы в порядке возрастания id */
+        private final List<Person> OVERLAY;
+
+        /**
+         * Конструктор класса
+         * @param base - колонки снимка
+         * @param removed - копия маски удаленных строк
+         * @param overlay - копия добавленных элементов
+         */
+        private View(PersonColumns base, BitSet removed, List<Person> overlay) {
+            this.BASE = base;
+            this.REMOVED = removed;
+            this.OVERLAY = overlay;
+        }
+
+        /**
+         * Получение итератора по элементам представления в порядке возрастания id.
+         * Строки снимка проверяются до создания объектов, элементы создаются по мере обхода
+         * @param rows - проверка строки снимка
+         * @param overlay - проверка добавленного элемента
+         * @return ссылка на итератор
+         */
+        private Iterator<Person> scan(IntPredicate rows, Predicate<Person> overlay) {
+            List<Person> persons = new ArrayList<>();
+            for (Person person : this.OVERLAY) {
+                if (overlay.test(person))
+                    persons.add(person);
+            }
+            return new Iterator<>() {
+                /** Поле row - следующая подходящая строка снимка, -1 - еще не найдена */
+                private int row = -1;
+                /** Поле index - номер следующего добавленного элемента */
+                private int index = 0;
+
+                @Override
+                public boolean hasNext() {
+                    if (this.row < 0)
+                        this.row = this.nextRow(0);
+                    return this.row < View.this.BASE.size() || this.index < persons.size();
+                }
+
+                @Override
+                public Person next() {
+                    if (!this.hasNext())
+                        throw new NoSuchElementException();
+                    // Слияние строк снимка и добавленных элементов по возрастанию id
+                    boolean from_base = this.index >= persons.size() || (this.row < View.this.BASE.size() &&
+                            View.this.BASE.getId(this.row) < persons.get(this.index).getId());
+                    if (!from_base)
+                        return persons.get(this.index++);
+                    Person person = View.this.BASE.get(this.row);
+                    this.row = this.nextRow(this.row + 1);
+                    return person;
+                }
+
+                /**
+                 * Поиск следующей неудаленной подходящей строки снимка
+                 * @param from - номер строки, с которой начинается поиск
+                 * @return номер строки или количество строк снимка, если строк больше нет
+                 */
+                private int nextRow(int from) {
+                    int next = View.this.REMOVED.nextClearBit(from);
+                    while (next < View.this.BASE.size() && !rows.test(next))
+                        next = View.this.REMOVED.nextClearBit(next + 1);
+                    return Math.min(next, View.this.BASE.size());
+                }
+            };
+        }
+    }
+}
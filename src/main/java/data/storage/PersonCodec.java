@@ -0,0 +1,113 @@
+package data.storage;
+
+import data.struct.EEyeColor;
+import data.struct.EHairColor;
+import data.struct.Person;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Класс построчного двоичного представления объекта Person для журнала и сегментов хранилища.
+ * Формат записи: id, имя, номер паспорта, рост, дата создания (день эпохи), цвета глаз и волос
+ * (порядковый номер, -1 - без цвета), флаги наличия полей, затем координаты и местоположение, если они заданы
+ * @author Антропов Никита
+ * @version 1.0
+ */
+final class PersonCodec {
+
+    /**
+     * Конструктор класса
+     */
+    private PersonCodec() {}
+
+    /**
+     * Преобразование объекта Person в массив байт
+     * @param person - элемент с заданным id
+     * @return двоичное представление элемента
+     */
+    static byte[] encode(Person person) {
+        byte[] name = person.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] passport_id = person.getPassportId().getBytes(StandardCharsets.UTF_8);
+        byte[] loc_name = person.hasLocation() ? person.getLocName().getBytes(StandardCharsets.UTF_8) : new byte[0];
+
+        int size = Long.BYTES + 2 * Integer.BYTES + name.length + passport_id.length + 2 * Integer.BYTES + 3;
+        if (person.hasCoordinates())
+            size += 2 * Float.BYTES;
+        if (person.hasLocation())
+            size += Integer.BYTES + loc_name.length + Long.BYTES + Double.BYTES;
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putLong(person.getId());
+        buffer.putInt(name.length).put(name);
+        buffer.putInt(passport_id.length).put(passport_id);
+        buffer.putInt(person.getHeight());
+        buffer.putInt((int) person.getCreationDate().toEpochDay());
+        buffer.put(person.getEyeColor() == null ? PersonColumns.NO_COLOR : (byte) person.getEyeColor().ordinal());
+        buffer.put(person.getHairColor() == null ? PersonColumns.NO_COLOR : (byte) person.getHairColor().ordinal());
+
+        byte flags = 0;
+        if (person.hasCoordinates())
+            flags |= PersonColumns.FLAG_COORDINATES;
+        if (person.hasLocation())
+            flags |= PersonColumns.FLAG_LOCATION;
+        buffer.put(flags);
+        if (person.hasCoordinates())
+            buffer.putFloat(person.getCoordX()).putFloat(person.getCoordY());
+        if (person.hasLocation())
+            buffer.putInt(loc_name.length).put(loc_name).putLong(person.getLocX()).putDouble(person.getLocY());
+        return buffer.array();
+    }
+
+    /**
+     * Создание объекта Person по его двоичному представлению с проверкой полей через строитель
+     * @param buffer - буфер с позицией в начале записи, после чтения позиция указывает на конец записи
+     * @return ссылка на новый объект Person
+     */
+    static Person decode(ByteBuffer buffer) throws IllegalArgumentException {
+        try {
+            long id = buffer.getLong();
+            String name = PersonCodec.readString(buffer);
+            String passport_id = PersonCodec.readString(buffer);
+            int height = buffer.getInt();
+            LocalDate creation_date = LocalDate.ofEpochDay(buffer.getInt());
+            byte eye = buffer.get();
+            byte hair = buffer.get();
+            byte flags = buffer.get();
+
+            Person.Builder builder = new Person.Builder(name, passport_id, height).CreationDate(creation_date)
+                    .EyeColor(eye == PersonColumns.NO_COLOR ? null : EEyeColor.values()[eye])
+                    .HairColor(hair == PersonColumns.NO_COLOR ? null : EHairColor.values()[hair]);
+            if ((flags & PersonColumns.FLAG_COORDINATES) != 0)
+                builder.Coordinates(buffer.getFloat(), buffer.getFloat());
+            if ((flags & PersonColumns.FLAG_LOCATION) != 0) {
+                String loc_name = PersonCodec.readString(buffer);
+                long loc_x = buffer.getLong();
+                builder.Location(loc_name, buffer.getDouble(), loc_x);
+            }
+
+            Person person = builder.build();
+            person.Id(id);
+            return person;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NullPointerException e) {
+            throw new IllegalArgumentException("Запись элемента повреждена\n", e);
+        }
+    }
+
+    /**
+     * Чтение строки в формате {длина, байты UTF-8}
+     * @param buffer - буфер чтения
+     * @return прочитанная строка
+     */
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining())
+            throw new BufferUnderflowException();
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,433 @@
+package data.storage;
+
+import data.collection.CollectionSnapshot;
+import data.struct.EEyeColor;
+import data.struct.EHairColor;
+import data.struct.Person;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Класс колоночного хранения объектов Person вне кучи. Каждое поле хранится в отдельной колонке
+ * примитивных значений, объекты Person создаются только при обращении к строке.
+ * Повторяющиеся имена хранятся в таблице строк в куче, уникальные номера паспортов - вне кучи в колонке байт
+ * в формате {длина, байты UTF-8}. Строки добавляются в порядке возрастания id, поиск строки по id выполняется
+ * двоичным поиском
+ * @author Антропов Никита
+ * @version 1.0
+ */
+public final class PersonColumns implements Iterable<Person> {
+    /** Поле FLAG_COORDINATES - признак наличия поля Coordinates */
+    static final byte FLAG_COORDINATES = 1;
+    /** Поле FLAG_LOCATION - признак наличия поля Location */
+    static final byte FLAG_LOCATION = 2;
+    /** Поле NO_COLOR - порядковый номер пустого цвета */
+    static final byte NO_COLOR = -1;
+    /** Поле INITIAL_CAPACITY - начальная вместимость колонок в строках */
+    private static final int INITIAL_CAPACITY = 1024;
+    /** Поле MAX_ROWS - наибольшее количество строк, при котором смещение в самой широкой колонке помещается в int */
+    static final int MAX_ROWS = Integer.MAX_VALUE / Long.BYTES;
+    /** Поле MAX_PASSPORT_BYTES - наибольшая длина номера паспорта в байтах UTF-8 */
+    private static final int MAX_PASSPORT_BYTES = 0xFF;
+    /** Поле PASSPORT_BYTES_PER_ROW - начальная оценка длины номера паспорта с длиной в байтах */
+    private static final int PASSPORT_BYTES_PER_ROW = 16;
+
+    /**
+     * Перечисление колонок с размером одного значения в байтах
+     * @author Антропов Никита
+     * @version 1.0
+     */
+    enum Column {
+        ID(Long.BYTES),
+        NAME(Integer.BYTES),
+        /** Смещение номера паспорта в колонке байт номеров паспортов */
+        PASSPORT_ID(Integer.BYTES),
+        HEIGHT(Integer.BYTES),
+        CREATION_DATE(Integer.BYTES),
+        COORD_X(Float.BYTES),
+        COORD_Y(Float.BYTES),
+        EYE_COLOR(Byte.BYTES),
+        HAIR_COLOR(Byte.BYTES),
+        FLAGS(Byte.BYTES),
+        LOC_NAME(Integer.BYTES),
+        LOC_X(Long.BYTES),
+        LOC_Y(Double.BYTES);
+        /** Размер одного значения в байтах */
+        final int width;
+
+        /**
+         * Конструктор перечисления
+         * @param width - размер одного значения в байтах
+         */
+        Column(int width) { this.width = width; }
+    }
+
+    /** Поле COLUMNS - буферы колонок */
+    private final EnumMap<Column, ByteBuffer> COLUMNS;
+    /** Поле passports - колонка байт номеров паспортов в формате {длина, байты UTF-8} */
+    private ByteBuffer passports;
+    /** Поле passports_end - размер заполненной части колонки номеров паспортов в байтах */
+    private int passports_end;
+    /** Поле STRINGS - таблица строк, на которую ссылаются строковые колонки */
+    private final ArrayList<String> STRINGS;
+    /** Поле STRING_CODES - коды строк в таблице строк */
+    private final HashMap<String, Integer> STRING_CODES;
+    /** Поле size - количество строк */
+    private int size;
+    /** Поле capacity - вместимость колонок в строках */
+    private int capacity;
+
+    /**
+     * Конструктор класса
+     * @param capacity - начальная вместимость колонок в строках
+     */
+    public PersonColumns(int capacity) throws IllegalArgumentException {
+        if (capacity <= 0 || capacity > PersonColumns.MAX_ROWS)
+            throw new IllegalArgumentException("Вместимость колонок должна быть от 1 до " + PersonColumns.MAX_ROWS +
+                    "\n");
+        this.COLUMNS = new EnumMap<>(Column.class);
+        this.passports = ByteBuffer.allocateDirect((int) Math.min((long) capacity *
+                PersonColumns.PASSPORT_BYTES_PER_ROW, Integer.MAX_VALUE));
+        this.passports_end = 0;
+        this.STRINGS = new ArrayList<>();
+        this.STRING_CODES = new HashMap<>();
+        this.size = 0;
+        this.capacity = capacity;
+        for (Column column : Column.values())
+            this.COLUMNS.put(column, PersonColumns.allocate(column, capacity));
+    }
+
+    /**
+     * @see PersonColumns#PersonColumns(int)
+     */
+    public PersonColumns() {
+        this(PersonColumns.INITIAL_CAPACITY);
+    }
+
+    /**
+     * Конструктор класса по готовым колонкам, например отображенным в память из файла.
+     * Колонки не изменяются: при добавлении строки они копируются в новые буферы
+     * @param columns - буферы колонок, заполненные на size строк
+     * @param passports - колонка байт номеров паспортов, заполненная целиком
+     * @param strings - таблица строк
+     * @param size - количество строк
+     */
+    PersonColumns(EnumMap<Column, ByteBuffer> columns, ByteBuffer passports, List<String> strings, int size) {
+        this.COLUMNS = new EnumMap<>(Column.class);
+        this.passports = passports.duplicate().clear();
+        this.passports_end = this.passports.capacity();
+        this.STRINGS = new ArrayList<>(strings);
+        this.STRING_CODES = new HashMap<>();
+        this.size = size;
+        this.capacity = size;
+        for (Column column : Column.values())
+            this.COLUMNS.put(column, columns.get(column).duplicate().order(ByteOrder.LITTLE_ENDIAN));
+        for (int code = 0; code < this.STRINGS.size(); code++)
+            this.STRING_CODES.put(this.STRINGS.get(code), code);
+    }
+
+    /**
+     * Создание колоночного хранилища по снимку коллекции
+     * @param snapshot - снимок коллекции
+     * @return колоночное хранилище с элементами снимка
+     */
+    public static PersonColumns of(CollectionSnapshot snapshot) {
+        PersonColumns columns = new PersonColumns(Math.max(snapshot.size(), 1));
+        snapshot.forEach(columns::append);
+        return columns;
+    }
+
+    /**
+     * Добавление элемента в конец колонок
+     * @param person - элемент с id больше id последней строки
+     * @return номер добавленной строки
+     */
+    public int append(Person person) throws IllegalArgumentException, IllegalStateException {
+        if (this.size > 0 && this.getId(this.size - 1) >= person.getId())
+            throw new IllegalArgumentException("Элементы должны добавляться в порядке возрастания id\n");
+        if (this.size == this.capacity)
+            this.grow();
+
+        int row = this.size;
+        this.COLUMNS.get(Column.ID).putLong(PersonColumns.offset(row, Column.ID), person.getId());
+        this.COLUMNS.get(Column.NAME).putInt(PersonColumns.offset(row, Column.NAME), this.encode(person.getName()));
+        this.COLUMNS.get(Column.PASSPORT_ID).putInt(PersonColumns.offset(row, Column.PASSPORT_ID),
+                this.appendPassport(person.getPassportId()));
+        this.COLUMNS.get(Column.HEIGHT).putInt(PersonColumns.offset(row, Column.HEIGHT), person.getHeight());
+        this.COLUMNS.get(Column.CREATION_DATE).putInt(PersonColumns.offset(row, Column.CREATION_DATE),
+                (int) person.getCreationDate().toEpochDay());
+        this.COLUMNS.get(Column.EYE_COLOR).put(row, person.getEyeColor() == null ? PersonColumns.NO_COLOR :
+                (byte) person.getEyeColor().ordinal());
+        this.COLUMNS.get(Column.HAIR_COLOR).put(row, person.getHairColor() == null ? PersonColumns.NO_COLOR :
+                (byte) person.getHairColor().ordinal());
+
+        byte flags = 0;
+        if (person.hasCoordinates()) {
+            flags |= PersonColumns.FLAG_COORDINATES;
+            this.COLUMNS.get(Column.COORD_X).putFloat(PersonColumns.offset(row, Column.COORD_X), person.getCoordX());
+            this.COLUMNS.get(Column.COORD_Y).putFloat(PersonColumns.offset(row, Column.COORD_Y), person.getCoordY());
+        }
+        if (person.hasLocation()) {
+            flags |= PersonColumns.FLAG_LOCATION;
+            this.COLUMNS.get(Column.LOC_NAME).putInt(PersonColumns.offset(row, Column.LOC_NAME),
+                    this.encode(person.getLocName()));
+            this.COLUMNS.get(Column.LOC_X).putLong(PersonColumns.offset(row, Column.LOC_X), person.getLocX());
+            this.COLUMNS.get(Column.LOC_Y).putDouble(PersonColumns.offset(row, Column.LOC_Y), person.getLocY());
+        }
+        this.COLUMNS.get(Column.FLAGS).put(row, flags);
+
+        this.size++;
+        return row;
+    }
+
+    /**
+     * Создание объекта Person по строке колонок
+     * @param row - номер строки
+     * @return ссылка на новый объект Person
+     */
+    public Person get(int row) throws IndexOutOfBoundsException {
+        this.checkRow(row);
+        byte flags = this.COLUMNS.get(Column.FLAGS).get(row);
+        byte eye = this.COLUMNS.get(Column.EYE_COLOR).get(row);
+        byte hair = this.COLUMNS.get(Column.HAIR_COLOR).get(row);
+
+        Person.Builder builder = new Person.Builder(this.decode(Column.NAME, row), this.getPassportId(row),
+                this.getHeight(row))
+                .CreationDate(LocalDate.ofEpochDay(this.COLUMNS.get(Column.CREATION_DATE)
+                        .getInt(PersonColumns.offset(row, Column.CREATION_DATE))))
+                .EyeColor(eye == PersonColumns.NO_COLOR ? null : EEyeColor.values()[eye])
+                .HairColor(hair == PersonColumns.NO_COLOR ? null : EHairColor.values()[hair]);
+        if ((flags & PersonColumns.FLAG_COORDINATES) != 0)
+            builder.Coordinates(this.COLUMNS.get(Column.COORD_X).getFloat(PersonColumns.offset(row, Column.COORD_X)),
+                    this.COLUMNS.get(Column.COORD_Y).getFloat(PersonColumns.offset(row, Column.COORD_Y)));
+        if ((flags & PersonColumns.FLAG_LOCATION) != 0)
+            builder.Location(this.decode(Column.LOC_NAME, row),
+                    this.COLUMNS.get(Column.LOC_Y).getDouble(PersonColumns.offset(row, Column.LOC_Y)),
+                    this.COLUMNS.get(Column.LOC_X).getLong(PersonColumns.offset(row, Column.LOC_X)));
+
+        Person person = builder.build();
+        person.Id(this.getId(row));
+        return person;
+    }
+
+    /**
+     * Поиск строки по id
+     * @param id - id элемента
+     * @return номер строки
+     */
+    public int findRow(long id) throws NoSuchElementException {
+        int low = 0;
+        int high = this.size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middle_id = this.getId(middle);
+            if (middle_id < id)
+                low = middle + 1;
+            else if (middle_id > id)
+                high = middle - 1;
+            else
+                return middle;
+        }
+        throw new NoSuchElementException("Элемента с заданным id не существует\n");
+    }
+
+    /**
+     * Получение итератора, создающего объекты Person по мере обхода строк
+     * @return ссылка на итератор
+     */
+    @Override
+    public Iterator<Person> iterator() {
+        return new Iterator<>() {
+            /** Поле row - номер следующей строки */
+            private int row = 0;
+
+            @Override
+            public boolean hasNext() {
+                return this.row < PersonColumns.this.size;
+            }
+
+            @Override
+            public Person next() {
+                if (!this.hasNext())
+                    throw new NoSuchElementException();
+                return PersonColumns.this.get(this.row++);
+            }
+        };
+    }
+
+    /**
+     * Получение значения id строки без создания объекта Person
+     * @param row - номер строки
+     * @return значение поля id
+     */
+    public long getId(int row) {
+        return this.COLUMNS.get(Column.ID).getLong(PersonColumns.offset(row, Column.ID));
+    }
+
+    /**
+     * Получение значения роста строки без создания объекта Person
+     * @param row - номер строки
+     * @return значение поля height
+     */
+    public int getHeight(int row) {
+        return this.COLUMNS.get(Column.HEIGHT).getInt(PersonColumns.offset(row, Column.HEIGHT));
+    }
+
+    /**
+     * Получение номера паспорта строки из колонки байт без обращения к таблице строк
+     * @param row - номер строки
+     * @return значение поля passport_id
+     */
+    public String getPassportId(int row) {
+        int position = this.COLUMNS.get(Column.PASSPORT_ID).getInt(PersonColumns.offset(row, Column.PASSPORT_ID));
+        int length = this.passports.get(position) & 0xFF;
+        byte[] bytes = new byte[length];
+        this.passports.get(position + 1, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Получение количества строк
+     * @return количество строк
+     */
+    public int size() { return this.size; }
+
+    /**
+     * Получение объема памяти вне кучи, занятой колонками
+     * @return объем памяти в байтах
+     */
+    public long getOffHeapBytes() {
+        return (long) this.capacity * this.COLUMNS.keySet().stream().mapToInt(e -> e.width).sum() +
+                this.passports.capacity();
+    }
+
+    /**
+     * Получение заполненной части колонки
+     * @param column - колонка
+     * @return буфер только для чтения с позицией 0 и размером size строк
+     */
+    ByteBuffer column(Column column) {
+        return this.COLUMNS.get(column).asReadOnlyBuffer().clear().limit(PersonColumns.offset(this.size, column));
+    }
+
+    /**
+     * Получение заполненной части колонки номеров паспортов
+     * @return буфер только для чтения с позицией 0 и размером заполненной части
+     */
+    ByteBuffer passports() {
+        return this.passports.asReadOnlyBuffer().clear().limit(this.passports_end);
+    }
+
+    /**
+     * Получение таблицы строк
+     * @return строки в порядке их кодов
+     */
+    List<String> strings() {
+        return this.STRINGS;
+    }
+
+    /**
+     * Получение кода строки в таблице строк с добавлением новой строки
+     * @param str - строка
+     * @return код строки
+     */
+    private int encode(String str) {
+        return this.STRING_CODES.computeIfAbsent(str, e -> {
+            this.STRINGS.add(e);
+            return this.STRINGS.size() - 1;
+        });
+    }
+
+    /**
+     * Добавление номера паспорта в конец колонки номеров паспортов
+     * @param passport_id - номер паспорта
+     * @return смещение записи номера паспорта
+     */
+    private int appendPassport(String passport_id) throws IllegalArgumentException, IllegalStateException {
+        byte[] bytes = passport_id.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > PersonColumns.MAX_PASSPORT_BYTES)
+            throw new IllegalArgumentException("Номер паспорта занимает больше " + PersonColumns.MAX_PASSPORT_BYTES +
+                    " байт\n");
+        int needed = 1 + bytes.length;
+        if (this.passports.capacity() - this.passports_end < needed) {
+            long new_capacity = Math.max(2L * this.passports.capacity(), (long) this.passports_end + needed);
+            if ((long) this.passports_end + needed > Integer.MAX_VALUE)
+                throw new IllegalStateException("Превышен наибольший размер колонки номеров паспортов\n");
+            ByteBuffer new_buffer = ByteBuffer.allocateDirect((int) Math.min(new_capacity, Integer.MAX_VALUE));
+            new_buffer.put(this.passports.duplicate().clear().limit(this.passports_end));
+            this.passports = new_buffer;
+        }
+        int position = this.passports_end;
+        this.passports.put(position, (byte) bytes.length);
+        this.passports.put(position + 1, bytes);
+        this.passports_end += needed;
+        return position;
+    }
+
+    /**
+     * Получение строки из таблицы строк по коду, записанному в колонке
+     * @param column - строковая колонка
+     * @param row - номер строки
+     * @return строка
+     */
+    private String decode(Column column, int row) {
+        return this.STRINGS.get(this.COLUMNS.get(column).getInt(PersonColumns.offset(row, column)));
+    }
+
+    /**
+     * Проверка номера строки
+     * @param row - номер строки
+     */
+    private void checkRow(int row) throws IndexOutOfBoundsException {
+        if (row < 0 || row >= this.size)
+            throw new IndexOutOfBoundsException("Строки с номером " + row + " не существует\n");
+    }
+
+    /**
+     * Получение смещения значения строки в колонке
+     * @param row - номер строки, не больше MAX_ROWS
+     * @param column - колонка
+     * @return смещение в байтах
+     */
+    private static int offset(int row, Column column) {
+        // Вместимость колонок ограничена MAX_ROWS, поэтому произведение в long всегда помещается в int
+        return (int) ((long) row * column.width);
+    }
+
+    /**
+     * Увеличение вместимости всех колонок в два раза, но не больше MAX_ROWS строк
+     */
+    private void grow() throws IllegalStateException {
+        if (this.capacity >= PersonColumns.MAX_ROWS)
+            throw new IllegalStateException("Превышено наибольшее количество строк колонок " + PersonColumns.MAX_ROWS +
+                    "\n");
+        int new_capacity = (int) Math.min(Math.max(2L * this.capacity, PersonColumns.INITIAL_CAPACITY),
+                PersonColumns.MAX_ROWS);
+        for (Column column : Column.values()) {
+            ByteBuffer old_buffer = this.COLUMNS.get(column);
+            ByteBuffer new_buffer = PersonColumns.allocate(column, new_capacity);
+            new_buffer.put(old_buffer.duplicate().clear().limit(PersonColumns.offset(this.size, column)));
+            this.COLUMNS.put(column, new_buffer);
+        }
+        this.capacity = new_capacity;
+    }
+
+    /**
+     * Выделение памяти под колонку вне кучи
+     * @param column - колонка
+     * @param capacity - вместимость в строках
+     * @return буфер колонки
+     */
+    private static ByteBuffer allocate(Column column, int capacity) {
+        return ByteBuffer.allocateDirect(PersonColumns.offset(capacity, column)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
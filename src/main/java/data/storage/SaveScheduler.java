@@ -0,0 +1,186 @@
+package data.storage;
+
+import data.collection.CollectionSnapshot;
+import data.collection.DataCollection;
+import data.collection.ICollectionListener;
+import data.struct.Person;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Класс фонового сохранения коллекции данных в файл снимка.
+ * Снимок коллекции снимается под блокировкой чтения, а запись файла выполняется отдельным потоком
+ * без блокировки коллекции: снимок записывается во временный файл, фиксируется на диске и атомарно
+ * заменяет файл снимка, после чего изменяется время последнего сохранения коллекции.
+ * Сохранение запускается по запросу, периодически и после заданного количества изменений;
+ * запросы, поступившие до начала записи, объединяются в одно сохранение
+ * @author Антропов Никита
+ * @version 1.0
+ */
+public final class SaveScheduler implements ICollectionListener, Closeable {
+    /** Поле COLLECTION - сохраняемая коллекция данных */
+    private final DataCollection COLLECTION;
+    /** Поле PATH - путь до файла снимка */
+    private final Path PATH;
+    /** Поле LOG - журнал изменений, записи которого отбрасываются после сохранения, null - без журнала */
+    private final WriteAheadLog LOG;
+    /** Поле MUTATION_THRESHOLD - количество изменений, после которого запускается сохранение, 0 - без порога */
+    private final long MUTATION_THRESHOLD;
+    /** Поле EXECUTOR - поток записи снимков */
+    private final ScheduledExecutorService EXECUTOR;
+    /** Поле MUTATIONS - количество изменений с начала последнего сохранения */
+    private final AtomicLong MUTATIONS;
+    /** Поле queued - результат запланированного, но еще не начатого сохранения */
+    private CompletableFuture<Void> queued;
+    /** Поле saved_version - версия коллекции в последнем сохраненном снимке */
+    private volatile long saved_version;
+
+    /**
+     * Конструктор класса. Планировщик нужно зарегистрировать слушателем коллекции,
+     * если используется сохранение по количеству изменений
+     * @param collection - сохраняемая коллекция данных
+     * @param path - путь до файла снимка
+     * @param log - журнал изменений коллекции, null - без журнала
+     * @param mutation_threshold - количество изменений, после которого запускается сохранение, 0 - без порога
+     */
+    public SaveScheduler(DataCollection collection, Path path, WriteAheadLog log, long mutation_threshold)
+            throws IllegalArgumentException {
+        if (mutation_threshold < 0)
+            throw new IllegalArgumentException("Порог количества изменений не может быть отрицательным\n");
+        this.COLLECTION = collection;
+        this.PATH = path;
+        this.LOG = log;
+        this.MUTATION_THRESHOLD = mutation_threshold;
+        this.EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "save-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.MUTATIONS = new AtomicLong(0);
+        this.queued = null;
+        this.saved_version = -1;
+    }
+
+    /**
+     * @see SaveScheduler#SaveScheduler(DataCollection, Path, WriteAheadLog, long)
+     */
+    public SaveScheduler(DataCollection collection, Path path) {
+        this(collection, path, null, 0);
+    }
+
+    /**
+     * Запуск периодического сохранения. Если коллекция не изменилась с последнего сохранения, файл не записывается
+     * @param period - период сохранения
+     * @param unit - единица измерения периода
+     */
+    public void schedule(long period, TimeUnit unit) throws IllegalArgumentException {
+        if (period <= 0)
+            throw new IllegalArgumentException("Период сохранения должен быть больше 0\n");
+        this.EXECUTOR.scheduleWithFixedDelay(() -> {
+            if (this.COLLECTION.snapshot().getVersion() != this.saved_version)
+                this.save();
+        }, period, period, unit);
+    }
+
+    /**
+     * Запрос сохранения коллекции без ожидания записи. Если предыдущий запрос еще не начал выполняться,
+     * возвращается его результат
+     * @return результат сохранения, завершается после замены файла снимка
+     */
+    public synchronized CompletableFuture<Void> save() {
+        if (this.queued != null)
+            return this.queued;
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        try {
+            this.EXECUTOR.execute(this::write);
+            this.queued = result;
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new IllegalStateException("Планировщик сохранения остановлен\n", e));
+        }
+        return result;
+    }
+
+    /**
+     * Учет изменения коллекции
+     * @see ICollectionListener#elementSaved(Person)
+     */
+    @Override
+    public void elementSaved(Person person) { this.MUTATIONS.incrementAndGet(); }
+
+    /**
+     * Учет изменения коллекции
+     * @see ICollectionListener#elementsRemoved(long[])
+     */
+    @Override
+    public void elementsRemoved(long[] ids) { this.MUTATIONS.addAndGet(ids.length); }
+
+    /**
+     * Учет изменения коллекции
+     * @see ICollectionListener#collectionCleared()
+     */
+    @Override
+    public void collectionCleared() { this.MUTATIONS.incrementAndGet(); }
+
+    /**
+     * Запрос сохранения, если количество изменений достигло порога
+     * @see ICollectionListener#changesCommitted()
+     */
+    @Override
+    public void changesCommitted() {
+        if (this.MUTATION_THRESHOLD > 0 && this.MUTATIONS.get() >= this.MUTATION_THRESHOLD)
+            this.save();
+    }
+
+    /**
+     * Ожидание завершения запрошенных сохранений и остановка потока записи
+     */
+    @Override
+    public void close() {
+        this.EXECUTOR.shutdown();
+        try {
+            while (!this.EXECUTOR.awaitTermination(1, TimeUnit.MINUTES));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Запись снимка коллекции. Выполняется потоком записи
+     */
+    private void write() {
+        CompletableFuture<Void> result;
+        synchronized (this) {
+            result = this.queued;
+            this.queued = null;
+        }
+        try {
+            // Изменения, выполненные во время записи, учитываются уже для следующего сохранения
+            this.MUTATIONS.set(0);
+            LocalDateTime time = LocalDateTime.now();
+            long mark = this.LOG != null ? this.LOG.mark() : 0;
+            CollectionSnapshot snapshot = this.COLLECTION.snapshot();
+
+            SnapshotFile.write(snapshot, DataCollection.formatTime(time), this.PATH);
+            this.COLLECTION.setSaveTime(time);
+            this.saved_version = snapshot.getVersion();
+            // Все записи журнала до отметки вошли в сохраненный снимок
+            if (this.LOG != null)
+                this.LOG.checkpoint(mark);
+            result.complete(null);
+        } catch (IOException e) {
+            result.completeExceptionally(new UncheckedIOException("Не удалось сохранить коллекцию\n", e));
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+    }
+}
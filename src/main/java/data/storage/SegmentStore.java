@@ -0,0 +1,887 @@
+package data.storage;
+
+import data.collection.ICollectionListener;
+import data.struct.Person;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Класс журнального хранилища элементов Person из неизменяемых сжатых сегментов.
+ * Записи добавляются в конец активного сегмента блоками, сжатыми Deflater; заполненный сегмент закрывается
+ * и больше не изменяется. Индекс в памяти хранит для каждого id положение последней записи элемента.
+ * Фоновое объединение переписывает живые записи сегментов, в которых преобладают замененные и удаленные
+ * элементы, в активный сегмент и удаляет эти сегменты.
+ * Формат блока: размер сжатых данных, размер исходных данных, контрольная сумма CRC32 последнего id и сжатых
+ * данных, последний выданный id на момент записи блока, сжатые данные. Формат записи: тип, размер данных,
+ * данные ({@link PersonCodec} для сохранения, id для удаления).
+ * Как слушатель коллекции хранилище только накапливает изменения под блокировкой записи коллекции,
+ * сжатие и запись блоков выполняются в {@link SegmentStore#changesCommitted()} после ее снятия
+ * @author Антропов Никита
+ * @version 1.0
+ */
+public final class SegmentStore implements ICollectionListener, Closeable {
+    /** Поле TYPE_SAVE - тип записи добавления или замены элемента */
+    private static final byte TYPE_SAVE = 1;
+    /** Поле TYPE_REMOVE - тип записи удаления элемента */
+    private static final byte TYPE_REMOVE = 2;
+    /** Поле TYPE_CLEAR - тип записи удаления всех элементов */
+    private static final byte TYPE_CLEAR = 3;
+    /** Поле BLOCK_SIZE - размер несжатого блока в байтах */
+    private static final int BLOCK_SIZE = 64 * 1024;
+    /** Поле BLOCK_HEADER - размер заголовка блока в байтах */
+    private static final int BLOCK_HEADER = 3 * Integer.BYTES + Long.BYTES;
+    /** Поле RECORD_HEADER - размер заголовка записи в байтах */
+    private static final int RECORD_HEADER = 1 + Integer.BYTES;
+    /** Поле DEFAULT_SEGMENT_SIZE - размер сегмента по умолчанию в байтах */
+    private static final long DEFAULT_SEGMENT_SIZE = 16L * 1024 * 1024;
+    /** Поле COMPACT_RATIO - доля живых данных, ниже которой сегмент объединяется */
+    private static final double COMPACT_RATIO = 0.5;
+    /** Поле FILE_NAME - шаблон имени файла сегмента */
+    private static final Pattern FILE_NAME = Pattern.compile("segment-(\\d+)\\.seg");
+
+    /** Поле DIR - каталог хранилища */
+    private final Path DIR;
+    /** Поле SEGMENT_SIZE - размер сегмента, после которого он закрывается, в байтах */
+    private final long SEGMENT_SIZE;
+    /** Поле SEGMENTS - сегменты по номерам */
+    private final TreeMap<Integer, Segment> SEGMENTS;
+    /** Поле INDEX - положение последней записи каждого элемента */
+    private final HashMap<Long, Entry> INDEX;
+    /** Поле DEFLATER - сжатие блоков */
+    private final Deflater DEFLATER;
+    /** Поле COMPACTOR - поток фонового объединения сегментов */
+    private final ExecutorService COMPACTOR;
+    /** Поле COMPACTING - true, если объединение запланировано или выполняется */
+    private final AtomicBoolean COMPACTING;
+    /** Поле PENDING - изменения коллекции, еще не примененные к хранилищу, в порядке их выполнения */
+    private final ArrayList<Change> PENDING;
+    /** Поле active - сегмент, в который добавляются записи */
+    private Segment active;
+    /** Поле channel - канал записи активного сегмента */
+    private FileChannel channel;
+    /** Поле block - несжатый блок, еще не записанный в сегмент */
+    private ByteBuffer block;
+    /** Поле block_position - позиция, с которой блок будет записан в активный сегмент */
+    private long block_position;
+    /** Поле last_id - наибольший id, когда-либо сохраненный в хранилище, в том числе у удаленных элементов */
+    private long last_id;
+    /** Поле cached_entry - запись, блок которой прочитан последним */
+    private Entry cached_entry;
+    /** Поле cached_block - последний прочитанный несжатый блок */
+    private ByteBuffer cached_block;
+    /** Поле compact_error - ошибка последнего фонового объединения */
+    private volatile IOException compact_error;
+
+    /**
+     * Конструктор класса
+     * @param dir - каталог хранилища
+     * @param segment_size - размер сегмента, после которого он закрывается, в байтах
+     */
+    private SegmentStore(Path dir, long segment_size) {
+        this.DIR = dir;
+        this.SEGMENT_SIZE = segment_size;
+        this.SEGMENTS = new TreeMap<>();
+        this.INDEX = new HashMap<>();
+        this.DEFLATER = new Deflater(Deflater.BEST_SPEED);
+        this.COMPACTOR = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "segment-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.COMPACTING = new AtomicBoolean(false);
+        this.PENDING = new ArrayList<>();
+        this.block = SegmentStore.buffer(SegmentStore.BLOCK_SIZE);
+    }
+
+    /**
+     * Открытие хранилища с восстановлением индекса по записям сегментов.
+     * Поврежденный конец последнего сегмента (например, после сбоя во время записи) отбрасывается
+     * @param dir - каталог хранилища
+     * @param segment_size - размер сегмента, после которого он закрывается, в байтах
+     * @return хранилище
+     */
+    public static SegmentStore open(Path dir, long segment_size) throws IOException, IllegalArgumentException {
+        if (segment_size <= 0)
+            throw new IllegalArgumentException("Размер сегмента должен быть больше 0\n");
+        Files.createDirectories(dir);
+        SegmentStore store = new SegmentStore(dir, segment_size);
+        try (Stream<Path> paths = Files.list(dir)) {
+            paths.forEach(path -> {
+                Matcher matcher = SegmentStore.FILE_NAME.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    int number = Integer.parseInt(matcher.group(1));
+                    store.SEGMENTS.put(number, new Segment(number, path));
+                }
+            });
+        }
+
+        int cleared = -1;
+        long valid_end = 0;
+        for (Segment segment : store.SEGMENTS.values()) {
+            boolean last = segment == store.SEGMENTS.lastEntry().getValue();
+            boolean[] has_clear = new boolean[] {false};
+            valid_end = SegmentStore.scan(segment, (type, position, offset, payload) -> {
+                int size = SegmentStore.RECORD_HEADER + payload.remaining();
+                segment.total += size;
+                if (type == SegmentStore.TYPE_SAVE)
+                    store.index(payload.getLong(0), new Entry(segment, position, offset, size));
+                else if (type == SegmentStore.TYPE_REMOVE)
+                    store.unindex(payload.getLong(0));
+                else if (type == SegmentStore.TYPE_CLEAR) {
+                    store.unindexAll();
+                    has_clear[0] = true;
+                }
+            }, last);
+            if (has_clear[0])
+                cleared = segment.number;
+            store.last_id = Math.max(store.last_id, segment.last_id);
+        }
+        // Сегменты до записи очистки могли остаться после сбоя во время их удаления
+        if (cleared >= 0) {
+            for (Segment segment : new ArrayList<>(store.SEGMENTS.headMap(cleared).values()))
+                store.delete(segment);
+        }
+
+        if (store.SEGMENTS.isEmpty())
+            store.roll(0);
+        else {
+            store.active = store.SEGMENTS.lastEntry().getValue();
+            store.channel = FileChannel.open(store.active.PATH, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            store.channel.truncate(valid_end);
+            store.block_position = valid_end;
+        }
+        store.scheduleCompaction();
+        return store;
+    }
+
+    /**
+     * @see SegmentStore#open(Path, long)
+     */
+    public static SegmentStore open(Path dir) throws IOException {
+        return SegmentStore.open(dir, SegmentStore.DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Добавление или замена элемента
+     * @param person - элемент с заданным id
+     */
+    public synchronized void put(Person person) throws IOException {
+        this.save(person.getId(), PersonCodec.encode(person));
+    }
+
+    /**
+     * Удаление элемента. Запись удаления добавляется, только если элемент есть в хранилище
+     * @param id - id элемента
+     */
+    public synchronized void remove(long id) throws IOException {
+        if (!this.INDEX.containsKey(id))
+            return;
+        this.unindex(id);
+        this.append(SegmentStore.TYPE_REMOVE, SegmentStore.idPayload(id));
+    }
+
+    /**
+     * Удаление всех элементов. После фиксации записи очистки все предыдущие сегменты удаляются
+     */
+    public synchronized void clear() throws IOException {
+        this.unindexAll();
+        this.append(SegmentStore.TYPE_CLEAR, new byte[0]);
+        this.flush();
+        for (Segment segment : new ArrayList<>(this.SEGMENTS.headMap(this.active.number).values()))
+            this.delete(segment);
+    }
+
+    /**
+     * Получение элемента по id
+     * @param id - id элемента
+     * @return ссылка на новый объект Person
+     */
+    public synchronized Person get(long id) throws IOException, NoSuchElementException {
+        Entry entry = this.INDEX.get(id);
+        if (entry == null)
+            throw new NoSuchElementException("Элемента с заданным id не существует\n");
+        ByteBuffer block = this.block(entry);
+        return PersonCodec.decode(block.slice(entry.offset + SegmentStore.RECORD_HEADER,
+                entry.size - SegmentStore.RECORD_HEADER).order(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    /**
+     * Чтение всех элементов. Блоки распаковываются и разбираются параллельно, каждый блок один раз
+     * @return элементы хранилища, упорядоченные по возрастанию id
+     */
+    public synchronized List<Person> readAll() throws IOException {
+        Entry[] entries = this.INDEX.values().toArray(new Entry[0]);
+        Arrays.sort(entries, Comparator.<Entry>comparingInt(e -> e.segment.number)
+                .thenComparingLong(e -> e.block).thenComparingInt(e -> e.offset));
+        // Границы групп записей одного блока; каналы чтения открываются заранее, чтение по позиции потокобезопасно
+        List<Integer> bounds = new ArrayList<>();
+        for (int i = 0; i < entries.length; i++) {
+            if (i == 0 || entries[i].segment != entries[i - 1].segment || entries[i].block != entries[i - 1].block) {
+                bounds.add(i);
+                if (entries[i].segment != this.active)
+                    entries[i].segment.reader();
+            }
+        }
+        bounds.add(entries.length);
+
+        Person[] persons = new Person[entries.length];
+        try {
+            IntStream.range(0, bounds.size() - 1).parallel().forEach(group -> {
+                Entry first = entries[bounds.get(group)];
+                ByteBuffer block;
+                try {
+                    block = first.segment == this.active && first.block == this.block_position ?
+                            this.block.duplicate().order(ByteOrder.LITTLE_ENDIAN) :
+                            SegmentStore.readBlock(first.segment == this.active ? this.channel :
+                                    first.segment.reader, first.block);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                for (int i = bounds.get(group); i < bounds.get(group + 1); i++)
+                    persons[i] = PersonCodec.decode(block.slice(entries[i].offset + SegmentStore.RECORD_HEADER,
+                            entries[i].size - SegmentStore.RECORD_HEADER).order(ByteOrder.LITTLE_ENDIAN));
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Arrays.parallelSort(persons, Comparator.comparingLong(Person::getId));
+        return Arrays.asList(persons);
+    }
+
+    /**
+     * Получение количества элементов
+     * @return количество элементов
+     */
+    public synchronized int size() { return this.INDEX.size(); }
+
+    /**
+     * Получение наибольшего id, когда-либо сохраненного в хранилище. Id удаленных элементов учитываются,
+     * чтобы коллекция, загруженная из хранилища, не выдавала их повторно
+     * @return последний выданный id, 0 - хранилище еще не содержало элементов
+     */
+    public synchronized long getLastId() { return this.last_id; }
+
+    /**
+     * Получение объема сегментов на диске
+     * @return объем в байтах, включая несжатый блок в памяти
+     */
+    public synchronized long getDiskBytes() throws IOException {
+        long bytes = this.block.position();
+        for (Segment segment : this.SEGMENTS.values())
+            bytes += segment == this.active ? this.channel.size() : Files.size(segment.PATH);
+        return bytes;
+    }
+
+    /**
+     * Запись несжатого блока в активный сегмент и фиксация на диске
+     */
+    public synchronized void flush() throws IOException {
+        this.writeBlock();
+        this.channel.force(false);
+    }
+
+    /**
+     * Объединение сегментов, в которых доля живых данных ниже порога.
+     * Сегменты читаются без блокировки хранилища, так как закрытые сегменты не изменяются
+     */
+    public void compact() throws IOException {
+        List<Segment> candidates = new ArrayList<>();
+        synchronized (this) {
+            for (Segment segment : this.SEGMENTS.values()) {
+                if (segment != this.active && segment.live < segment.total * SegmentStore.COMPACT_RATIO)
+                    candidates.add(segment);
+            }
+        }
+        for (Segment segment : candidates)
+            this.compact(segment);
+    }
+
+    /**
+     * @see ICollectionListener#elementSaved(Person)
+     */
+    @Override
+    public void elementSaved(Person person) {
+        this.buffer(new Change(SegmentStore.TYPE_SAVE, person.getId(), PersonCodec.encode(person)));
+    }
+
+    /**
+     * @see ICollectionListener#elementsRemoved(long[])
+     */
+    @Override
+    public void elementsRemoved(long[] ids) {
+        for (long id : ids)
+            this.buffer(new Change(SegmentStore.TYPE_REMOVE, id, null));
+    }
+
+    /**
+     * @see ICollectionListener#collectionCleared()
+     */
+    @Override
+    public void collectionCleared() {
+        this.buffer(new Change(SegmentStore.TYPE_CLEAR, 0, null));
+    }
+
+    /**
+     * Применение накопленных изменений к хранилищу. Изменения забираются и применяются под блокировкой
+     * хранилища, поэтому при параллельной фиксации нескольких изменений их порядок сохраняется.
+     * Записи накапливаются в блоке до его заполнения, фиксация на диске выполняется методом flush
+     * @see ICollectionListener#changesCommitted()
+     */
+    @Override
+    public void changesCommitted() {
+        synchronized (this) {
+            List<Change> changes;
+            synchronized (this.PENDING) {
+                if (this.PENDING.isEmpty())
+                    return;
+                changes = new ArrayList<>(this.PENDING);
+                this.PENDING.clear();
+            }
+            try {
+                for (Change change : changes) {
+                    if (change.TYPE == SegmentStore.TYPE_SAVE)
+                        this.save(change.ID, change.PAYLOAD);
+                    else if (change.TYPE == SegmentStore.TYPE_REMOVE)
+                        this.remove(change.ID);
+                    else
+                        this.clear();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось записать изменения в хранилище\n", e);
+            }
+        }
+    }
+
+    /**
+     * Ожидание фонового объединения, запись несжатого блока и закрытие хранилища
+     */
+    @Override
+    public void close() throws IOException {
+        this.COMPACTOR.shutdown();
+        try {
+            while (!this.COMPACTOR.awaitTermination(1, TimeUnit.MINUTES));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            this.flush();
+            this.channel.close();
+            for (Segment segment : this.SEGMENTS.values())
+                segment.closeReader();
+            this.DEFLATER.end();
+        }
+        if (this.compact_error != null)
+            throw new IOException("Не удалось объединить сегменты\n", this.compact_error);
+    }
+
+    /**
+     * Объединение одного сегмента: живые записи и нужные записи удаления переписываются в активный сегмент
+     * @param segment - закрытый сегмент
+     */
+    private void compact(Segment segment) throws IOException {
+        // Параллельная очистка могла удалить сегмент после выбора кандидатов или во время чтения
+        if (!this.isCurrent(segment))
+            return;
+        List<Object[]> records = new ArrayList<>();
+        try {
+            SegmentStore.scan(segment, (type, position, offset, payload) ->
+                    records.add(new Object[] {type, position, offset, payload}), false);
+        } catch (IOException e) {
+            if (!this.isCurrent(segment))
+                return;
+            throw e;
+        }
+
+        synchronized (this) {
+            if (this.SEGMENTS.get(segment.number) != segment)
+                return;
+            boolean has_older = this.SEGMENTS.firstKey() < segment.number;
+            for (Object[] record : records) {
+                byte type = (byte) record[0];
+                ByteBuffer payload = (ByteBuffer) record[3];
+                // Запись очистки не переносится: при очистке все более старые сегменты удаляются
+                if (type == SegmentStore.TYPE_CLEAR)
+                    continue;
+                long id = payload.getLong(0);
+                Entry entry = this.INDEX.get(id);
+                if (type == SegmentStore.TYPE_SAVE) {
+                    if (entry != null && entry.segment == segment && entry.block == (long) record[1] &&
+                            entry.offset == (int) record[2]) {
+                        byte[] bytes = new byte[payload.remaining()];
+                        payload.get(bytes);
+                        this.index(id, this.append(SegmentStore.TYPE_SAVE, bytes));
+                    }
+                }
+                // Удаление нужно, только пока в более старых сегментах может остаться запись элемента
+                else if (type == SegmentStore.TYPE_REMOVE && has_older && entry == null)
+                    this.append(SegmentStore.TYPE_REMOVE, SegmentStore.idPayload(id));
+            }
+            // Последний выданный id хранится в заголовках блоков, поэтому в активном сегменте должен остаться
+            // хотя бы один блок, даже если переносить нечего
+            if (this.block_position == 0)
+                this.writeBlock(true);
+            // Перенесенные записи фиксируются на диске до удаления сегмента
+            this.flush();
+            this.delete(segment);
+        }
+    }
+
+    /**
+     * Проверка того, что сегмент не удален
+     * @param segment - сегмент
+     * @return true, если сегмент остается в хранилище
+     */
+    private synchronized boolean isCurrent(Segment segment) {
+        return this.SEGMENTS.get(segment.number) == segment;
+    }
+
+    /**
+     * Добавление изменения коллекции в очередь. Вызывается под блокировкой записи коллекции,
+     * поэтому не ждет блокировки хранилища, которую может удерживать фоновое объединение
+     * @param change - изменение коллекции
+     */
+    private void buffer(Change change) {
+        synchronized (this.PENDING) {
+            this.PENDING.add(change);
+        }
+    }
+
+    /**
+     * Запуск фонового объединения, если оно еще не запланировано
+     */
+    private void scheduleCompaction() {
+        if (!this.COMPACTING.compareAndSet(false, true))
+            return;
+        try {
+            this.COMPACTOR.execute(() -> {
+                try {
+                    this.compact();
+                    this.compact_error = null;
+                } catch (IOException e) {
+                    this.compact_error = e;
+                } finally {
+                    this.COMPACTING.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Хранилище закрыто
+            this.COMPACTING.set(false);
+        }
+    }
+
+    /**
+     * Добавление записи сохранения элемента. Вызывается с блокировкой хранилища
+     * @param id - id элемента
+     * @param payload - закодированный элемент
+     */
+    private void save(long id, byte[] payload) throws IOException {
+        this.last_id = Math.max(this.last_id, id);
+        this.index(id, this.append(SegmentStore.TYPE_SAVE, payload));
+    }
+
+    /**
+     * Добавление записи в несжатый блок. Вызывается с блокировкой хранилища
+     * @param type - тип записи
+     * @param payload - данные записи
+     * @return положение записи
+     */
+    private Entry append(byte type, byte[] payload) throws IOException {
+        int size = SegmentStore.RECORD_HEADER + payload.length;
+        if (this.block.position() > 0 && this.block.remaining() < size)
+            this.writeBlock();
+        if (this.block.capacity() < size)
+            this.block = SegmentStore.buffer(size);
+        Entry entry = new Entry(this.active, this.block_position, this.block.position(), size);
+        this.block.put(type).putInt(payload.length).put(payload);
+        this.active.total += size;
+        return entry;
+    }
+
+    /**
+     * Сжатие и запись несжатого блока в активный сегмент, закрытие заполненного сегмента.
+     * Вызывается с блокировкой хранилища
+     */
+    private void writeBlock() throws IOException {
+        this.writeBlock(false);
+    }
+
+    /**
+     * Сжатие и запись несжатого блока в активный сегмент, закрытие заполненного сегмента.
+     * Вызывается с блокировкой хранилища
+     * @param empty - true, если блок записывается и без записей, только с последним выданным id
+     */
+    private void writeBlock(boolean empty) throws IOException {
+        if (this.block.position() == 0 && !empty)
+            return;
+        int raw_length = this.block.position();
+        this.DEFLATER.reset();
+        this.DEFLATER.setInput(this.block.array(), 0, raw_length);
+        this.DEFLATER.finish();
+        byte[] compressed = new byte[raw_length + raw_length / 1000 + 64];
+        int length = 0;
+        while (!this.DEFLATER.finished()) {
+            if (length == compressed.length)
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            length += this.DEFLATER.deflate(compressed, length, compressed.length - length);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(SegmentStore.buffer(Long.BYTES).putLong(0, this.last_id));
+        crc.update(compressed, 0, length);
+        ByteBuffer data = SegmentStore.buffer(SegmentStore.BLOCK_HEADER + length);
+        data.putInt(length).putInt(raw_length).putInt((int) crc.getValue()).putLong(this.last_id)
+                .put(compressed, 0, length).flip();
+        long position = this.block_position;
+        while (data.hasRemaining())
+            position += this.channel.write(data, position);
+
+        this.block = SegmentStore.buffer(SegmentStore.BLOCK_SIZE);
+        this.block_position = position;
+        if (position >= this.SEGMENT_SIZE) {
+            this.channel.force(false);
+            this.channel.close();
+            this.roll(this.active.number + 1);
+            this.scheduleCompaction();
+        }
+    }
+
+    /**
+     * Создание нового активного сегмента
+     * @param number - номер сегмента
+     */
+    private void roll(int number) throws IOException {
+        Segment segment = new Segment(number, this.DIR.resolve("segment-" + number + ".seg"));
+        this.channel = FileChannel.open(segment.PATH, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.SEGMENTS.put(number, segment);
+        this.active = segment;
+        this.block_position = 0;
+    }
+
+    /**
+     * Удаление сегмента. Вызывается с блокировкой хранилища
+     * @param segment - закрытый сегмент без живых записей
+     */
+    private void delete(Segment segment) throws IOException {
+        segment.closeReader();
+        Files.deleteIfExists(segment.PATH);
+        this.SEGMENTS.remove(segment.number);
+        if (this.cached_entry != null && this.cached_entry.segment == segment)
+            this.cached_entry = null;
+    }
+
+    /**
+     * Получение несжатого блока записи. Вызывается с блокировкой хранилища
+     * @param entry - положение записи
+     * @return блок с порядком байт хранилища
+     */
+    private ByteBuffer block(Entry entry) throws IOException {
+        if (entry.segment == this.active && entry.block == this.block_position)
+            return this.block.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (this.cached_entry != null && this.cached_entry.segment == entry.segment &&
+                this.cached_entry.block == entry.block)
+            return this.cached_block;
+        FileChannel reader = entry.segment == this.active ? this.channel : entry.segment.reader();
+        this.cached_block = SegmentStore.readBlock(reader, entry.block);
+        this.cached_entry = entry;
+        return this.cached_block;
+    }
+
+    /**
+     * Добавление положения записи в индекс с учетом живых данных сегментов
+     * @param id - id элемента
+     * @param entry - положение записи
+     */
+    private void index(long id, Entry entry) {
+        Entry old = this.INDEX.put(id, entry);
+        if (old != null)
+            old.segment.live -= old.size;
+        entry.segment.live += entry.size;
+    }
+
+    /**
+     * Удаление элемента из индекса с учетом живых данных сегментов
+     * @param id - id элемента
+     */
+    private void unindex(long id) {
+        Entry old = this.INDEX.remove(id);
+        if (old != null)
+            old.segment.live -= old.size;
+    }
+
+    /**
+     * Удаление всех элементов из индекса
+     */
+    private void unindexAll() {
+        this.INDEX.clear();
+        this.SEGMENTS.values().forEach(segment -> segment.live = 0);
+    }
+
+    /**
+     * Чтение и распаковка блока
+     * @param channel - канал чтения сегмента
+     * @param position - позиция блока
+     * @return несжатый блок
+     */
+    private static ByteBuffer readBlock(FileChannel channel, long position) throws IOException {
+        ByteBuffer header = SegmentStore.header(channel, position);
+        int length = header.getInt(0);
+        int raw_length = header.getInt(Integer.BYTES);
+        if (length < 0 || raw_length < 0 || position + SegmentStore.BLOCK_HEADER + length > channel.size())
+            throw new IOException("Блок сегмента поврежден\n");
+        ByteBuffer compressed = ByteBuffer.allocate(length);
+        SegmentStore.readFully(channel, compressed, position + SegmentStore.BLOCK_HEADER);
+        CRC32 crc = new CRC32();
+        crc.update(header.slice(3 * Integer.BYTES, Long.BYTES));
+        crc.update(compressed.array());
+        if ((int) crc.getValue() != header.getInt(2 * Integer.BYTES))
+            throw new IOException("Блок сегмента поврежден\n");
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed.array());
+            byte[] raw = new byte[raw_length];
+            int read = 0;
+            while (read < raw_length && !inflater.finished()) {
+                int count = inflater.inflate(raw, read, raw_length - read);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    break;
+                read += count;
+            }
+            if (read != raw_length)
+                throw new IOException("Блок сегмента поврежден\n");
+            return ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+        } catch (DataFormatException e) {
+            throw new IOException("Блок сегмента поврежден\n", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Обход записей сегмента
+     * @param segment - сегмент
+     * @param visitor - обработчик записей
+     * @param truncate_tail - true, если поврежденный конец сегмента допустим и отбрасывается
+     * @return позиция конца последнего целого блока
+     */
+    private static long scan(Segment segment, RecordVisitor visitor, boolean truncate_tail) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment.PATH, StandardOpenOption.READ)) {
+            long position = 0;
+            while (position < channel.size()) {
+                ByteBuffer block;
+                try {
+                    block = SegmentStore.readBlock(channel, position);
+                } catch (IOException e) {
+                    if (truncate_tail)
+                        return position;
+                    throw new IOException("Сегмент " + segment.PATH + " поврежден\n", e);
+                }
+                while (block.remaining() >= SegmentStore.RECORD_HEADER) {
+                    int offset = block.position();
+                    byte type = block.get();
+                    int length = block.getInt();
+                    ByteBuffer payload = block.slice(block.position(), length).order(ByteOrder.LITTLE_ENDIAN);
+                    block.position(block.position() + length);
+                    visitor.visit(type, position, offset, payload);
+                }
+                ByteBuffer header = SegmentStore.header(channel, position);
+                segment.last_id = Math.max(segment.last_id, header.getLong(3 * Integer.BYTES));
+                position += SegmentStore.BLOCK_HEADER + header.getInt(0);
+            }
+            return position;
+        }
+    }
+
+    /**
+     * Чтение заголовка блока
+     * @param channel - канал чтения сегмента
+     * @param position - позиция блока
+     * @return заголовок блока с порядком байт хранилища
+     */
+    private static ByteBuffer header(FileChannel channel, long position) throws IOException {
+        ByteBuffer header = SegmentStore.buffer(SegmentStore.BLOCK_HEADER);
+        SegmentStore.readFully(channel, header, position);
+        return header;
+    }
+
+    /**
+     * Чтение буфера целиком с заданной позиции канала
+     * @param channel - канал чтения
+     * @param buffer - буфер
+     * @param position - позиция канала
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new IOException("Неожиданный конец сегмента\n");
+        }
+    }
+
+    /**
+     * Получение данных записи удаления
+     * @param id - id элемента
+     * @return данные записи
+     */
+    private static byte[] idPayload(long id) {
+        return SegmentStore.buffer(Long.BYTES).putLong(id).array();
+    }
+
+    /**
+     * Выделение буфера с порядком байт хранилища
+     * @param size - размер буфера в байтах
+     * @return буфер
+     */
+    private static ByteBuffer buffer(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Класс сегмента хранилища
+     * @author Антропов Никита
+     * @version 1.0
+     */
+    private static final class Segment {
+        /** Поле number - номер сегмента */
+        private final int number;
+        /** Поле PATH - путь до файла сегмента */
+        private final Path PATH;
+        /** Поле total - объем всех записей сегмента в байтах без сжатия */
+        private long total = 0;
+        /** Поле live - объем живых записей сегмента в байтах без сжатия */
+        private long live = 0;
+        /** Поле last_id - наибольший последний выданный id в заголовках блоков сегмента */
+        private long last_id = 0;
+        /** Поле reader - канал чтения закрытого сегмента */
+        private FileChannel reader;
+
+        /**
+         * Конструктор класса
+         * @param number - номер сегмента
+         * @param path - путь до файла сегмента
+         */
+        private Segment(int number, Path path) {
+            this.number = number;
+            this.PATH = path;
+        }
+
+        /**
+         * Получение канала чтения с открытием при первом обращении
+         * @return канал чтения
+         */
+        private FileChannel reader() throws IOException {
+            if (this.reader == null)
+                this.reader = FileChannel.open(this.PATH, StandardOpenOption.READ);
+            return this.reader;
+        }
+
+        /**
+         * Закрытие канала чтения
+         */
+        private void closeReader() throws IOException {
+            if (this.reader != null)
+                this.reader.close();
+            this.reader = null;
+        }
+    }
+
+    /**
+     * Класс положения записи элемента
+     * @author Антропов Никита
+     * @version 1.0
+     */
+    private static final class Entry {
+        /** Поле segment - сегмент записи */
+        private final Segment segment;
+        /** Поле block - позиция блока в сегменте */
+        private final long block;
+        /** Поле offset - смещение записи в несжатом блоке */
+        private final int offset;
+        /** Поле size - размер записи с заголовком в байтах */
+        private final int size;
+
+        /**
+         * Конструктор класса
+         * @param segment - сегмент записи
+         * @param block - позиция блока в сегменте
+         * @param offset - смещение записи в несжатом блоке
+         * @param size - размер записи с заголовком в байтах
+         */
+        private Entry(Segment segment, long block, int offset, int size) {
+            this.segment = segment;
+            this.block = block;
+            this.offset = offset;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Класс изменения коллекции, еще не примененного к хранилищу
+     * @author Антропов Никита
+     * @version 1.0
+     */
+    private static final class Change {
+        /** Поле TYPE - тип записи */
+        private final byte TYPE;
+        /** Поле ID - id элемента */
+        private final long ID;
+        /** Поле PAYLOAD - закодированный элемент для записи сохранения, иначе null */
+        private final byte[] PAYLOAD;
+
+        /**
+         * Конструктор класса
+         * @param type - тип записи
+         * @param id - id элемента
+         * @param payload - закодированный элемент для записи сохранения, иначе null
+         */
+        private Change(byte type, long id, byte[] payload) {
+            this.TYPE = type;
+            this.ID = id;
+            this.PAYLOAD = payload;
+        }
+    }
+
+    /**
+     * Интерфейс обработчика записей сегмента
+     * @author Антропов Никита
+     * @version 1.0
+     */
+    private interface RecordVisitor {
+        /**
+         * Обработка записи
+         * @param type - тип записи
+         * @param block - позиция блока в сегменте
+         * @param offset - смещение записи в несжатом блоке
+         * @param payload - данные записи
+         */
+        void visit(byte type, long block, int offset, ByteBuffer payload) throws IOException;
+    }
+}
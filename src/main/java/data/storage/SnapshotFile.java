@@ -0,0 +1,311 @@
+package data.storage;
+
+import data.collection.CollectionSnapshot;
+import data.collection.DataCollection;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+
+/**
+ * Класс двоичного снимка коллекции данных.
+ * Формат файла: заголовок (сигнатура, версия формата, последний выданный id, количество строк,
+ * количество строк таблицы строк, размер колонки номеров паспортов, время последнего обновления и сохранения),
+ * колонки примитивных значений в порядке {@link PersonColumns.Column} и колонка байт номеров паспортов,
+ * выровненные по 8 байт, и таблица строк.
+ * Колонки загружаются отображением файла в память без разбора записей. Файл записывается во временный файл
+ * и атомарно заменяет прежний снимок, поэтому сбой во время записи не повреждает прежний снимок,
+ * а отображенные в память колонки прежнего снимка остаются доступны читателям
+ * @author Антропов Никита
+ * @version 1.0
+ */
+public final class SnapshotFile {
+    /** Поле MAGIC - сигнатура файла снимка */
+    private static final int MAGIC = 0x5052534E;
+    /** Поле FORMAT_VERSION - версия формата файла */
+    private static final int FORMAT_VERSION = 2;
+    /** Поле ALIGNMENT - выравнивание начала колонок в байтах */
+    private static final int ALIGNMENT = 8;
+    /** Поле TABLE_BLOCK_SIZE - размер блока записи таблицы строк в байтах */
+    private static final int TABLE_BLOCK_SIZE = 64 * 1024;
+
+    /** Поле LAST_ID - последний выданный id на момент сохранения */
+    private final long LAST_ID;
+    /** Поле UPDATE_TIME - время и дата последнего обновления коллекции */
+    private final String UPDATE_TIME;
+    /** Поле SAVE_TIME - время и дата сохранения снимка */
+    private final String SAVE_TIME;
+    /** Поле COLUMNS - колонки снимка, отображенные в память */
+    private final PersonColumns COLUMNS;
+
+    /**
+     * Конструктор класса
+     * @param last_id - последний выданный id
+     * @param update_time - время и дата последнего обновления коллекции
+     * @param save_time - время и дата сохранения снимка
+     * @param columns - колонки снимка
+     */
+    private SnapshotFile(long last_id, String update_time, String save_time, PersonColumns columns) {
+        this.LAST_ID = last_id;
+        this.UPDATE_TIME = update_time;
+        this.SAVE_TIME = save_time;
+        this.COLUMNS = columns;
+    }
+
+    /**
+     * Сохранение коллекции в файл снимка с изменением времени последнего сохранения коллекции
+     * @param collection - коллекция данных
+     * @param path - путь до файла снимка
+     */
+    public static void save(DataCollection collection, Path path) throws IOException {
+        LocalDateTime time = LocalDateTime.now();
+        SnapshotFile.write(collection.snapshot(), DataCollection.formatTime(time), path);
+        collection.setSaveTime(time);
+    }
+
+    /**
+     * Загрузка коллекции из файла снимка
+     * @see ColdStartLoader#load(Path)
+     * @param path - путь до файла снимка
+     * @return новая коллекция данных с элементами снимка
+     */
+    public static DataCollection load(Path path) throws IOException {
+        return ColdStartLoader.load(path).getCollection();
+    }
+
+    /**
+     * Запись снимка коллекции во временный файл и атомарная замена им файла снимка
+     * @param snapshot - снимок коллекции
+     * @param save_time - время и дата сохранения в виде строки
+     * @param path - путь до файла снимка
+     */
+    public static void write(CollectionSnapshot snapshot, String save_time, Path path) throws IOException {
+        SnapshotFile.write(PersonColumns.of(snapshot), snapshot.getLastId(), snapshot.getUpdateTime(), save_time, path);
+    }
+
+    /**
+     * Запись колонок во временный файл и атомарная замена им файла снимка
+     * @param columns - колонки с элементами коллекции
+     * @param last_id - последний выданный id
+     * @param update_time - время и дата последнего обновления коллекции в виде строки
+     * @param save_time - время и дата сохранения в виде строки
+     * @param path - путь до файла снимка
+     */
+    static void write(PersonColumns columns, long last_id, String update_time, String save_time, Path path)
+            throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            SnapshotFile.writeTo(columns, last_id, update_time, save_time, temp);
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Запись колонок в новый файл
+     * @param columns - колонки с элементами коллекции
+     * @param last_id - последний выданный id
+     * @param update_time - время и дата последнего обновления коллекции в виде строки
+     * @param save_time - время и дата сохранения в виде строки
+     * @param path - путь до записываемого файла
+     */
+    private static void writeTo(PersonColumns columns, long last_id, String update_time, String save_time, Path path)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            byte[] update_bytes = update_time.getBytes(StandardCharsets.UTF_8);
+            byte[] save_bytes = save_time.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer passports = columns.passports();
+            ByteBuffer header = SnapshotFile.buffer(7 * Integer.BYTES + Long.BYTES +
+                    update_bytes.length + save_bytes.length);
+            header.putInt(SnapshotFile.MAGIC).putInt(SnapshotFile.FORMAT_VERSION).putLong(last_id)
+                    .putInt(columns.size()).putInt(columns.strings().size()).putInt(passports.remaining())
+                    .putInt(update_bytes.length).put(update_bytes).putInt(save_bytes.length).put(save_bytes);
+            SnapshotFile.writeFully(channel, header.flip());
+            SnapshotFile.align(channel);
+
+            for (PersonColumns.Column column : PersonColumns.Column.values()) {
+                SnapshotFile.writeFully(channel, columns.column(column));
+                SnapshotFile.align(channel);
+            }
+            SnapshotFile.writeFully(channel, passports);
+            SnapshotFile.align(channel);
+
+            // Таблица строк записывается блоками, а не отдельной записью на каждую строку
+            ByteBuffer table = SnapshotFile.buffer(SnapshotFile.TABLE_BLOCK_SIZE);
+            for (String str : columns.strings()) {
+                byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+                if (table.remaining() < Integer.BYTES + bytes.length) {
+                    SnapshotFile.writeFully(channel, table.flip());
+                    table = SnapshotFile.buffer(Math.max(SnapshotFile.TABLE_BLOCK_SIZE, Integer.BYTES + bytes.length));
+                }
+                table.putInt(bytes.length).put(bytes);
+            }
+            SnapshotFile.writeFully(channel, table.flip());
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Открытие файла снимка: разбор заголовка и отображение колонок в память.
+     * Размеры разделов из заголовка проверяются по размеру файла до отображения
+     * @param path - путь до файла снимка
+     * @return открытый снимок
+     */
+    public static SnapshotFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long file_size = channel.size();
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    Math.min(channel.size(), 4096)).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.remaining() < 2 * Integer.BYTES || header.getInt() != SnapshotFile.MAGIC)
+                throw new IOException("Файл " + path + " не является снимком коллекции\n");
+            int format_version = header.getInt();
+            if (format_version != SnapshotFile.FORMAT_VERSION)
+                throw new IOException("Версия формата снимка " + format_version + " не поддерживается\n");
+            if (header.remaining() < Long.BYTES + 3 * Integer.BYTES)
+                throw new IOException("Файл снимка поврежден\n");
+            long last_id = header.getLong();
+            int rows = header.getInt();
+            int string_count = header.getInt();
+            int passport_bytes = header.getInt();
+            if (rows < 0 || rows > PersonColumns.MAX_ROWS || string_count < 0 || passport_bytes < 0)
+                throw new IOException("Файл снимка поврежден\n");
+            String update_time = SnapshotFile.readString(header);
+            String save_time = SnapshotFile.readString(header);
+
+            // Колонки отображаются в память каждая отдельно, без копирования в кучу
+            long position = SnapshotFile.aligned(header.position());
+            EnumMap<PersonColumns.Column, ByteBuffer> columns = new EnumMap<>(PersonColumns.Column.class);
+            for (PersonColumns.Column column : PersonColumns.Column.values()) {
+                long length = (long) rows * column.width;
+                SnapshotFile.checkSection(position, length, file_size);
+                columns.put(column, channel.map(FileChannel.MapMode.READ_ONLY, position, length)
+                        .order(ByteOrder.LITTLE_ENDIAN));
+                position = SnapshotFile.aligned(position + length);
+            }
+            SnapshotFile.checkSection(position, passport_bytes, file_size);
+            ByteBuffer passports = channel.map(FileChannel.MapMode.READ_ONLY, position, passport_bytes);
+            position = SnapshotFile.aligned(position + passport_bytes);
+
+            SnapshotFile.checkSection(position, 0, file_size);
+            ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, position, file_size - position)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            List<String> strings = new ArrayList<>(string_count);
+            for (int i = 0; i < string_count; i++)
+                strings.add(SnapshotFile.readString(table));
+
+            return new SnapshotFile(last_id, update_time, save_time, new PersonColumns(columns, passports, strings,
+                    rows));
+        }
+    }
+
+    /**
+     * Получение последнего выданного id на момент сохранения
+     * @see SnapshotFile#LAST_ID
+     * @return последний выданный id
+     */
+    public long getLastId() { return this.LAST_ID; }
+
+    /**
+     * Получение времени и даты последнего обновления коллекции
+     * @see SnapshotFile#UPDATE_TIME
+     * @return время и дата в виде строки
+     */
+    public String getUpdateTime() { return this.UPDATE_TIME; }
+
+    /**
+     * Получение времени и даты сохранения снимка
+     * @see SnapshotFile#SAVE_TIME
+     * @return время и дата в виде строки
+     */
+    public String getSaveTime() { return this.SAVE_TIME; }
+
+    /**
+     * Получение колонок снимка
+     * @see SnapshotFile#COLUMNS
+     * @return колонки снимка, отображенные в память
+     */
+    public PersonColumns getColumns() { return this.COLUMNS; }
+
+    /**
+     * Чтение строки в формате {длина, байты UTF-8}
+     * @param buffer - буфер чтения
+     * @return прочитанная строка
+     */
+    private static String readString(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < Integer.BYTES)
+            throw new IOException("Файл снимка поврежден\n");
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining())
+            throw new IOException("Файл снимка поврежден\n");
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Проверка того, что раздел файла целиком находится внутри файла
+     * @param position - позиция начала раздела
+     * @param length - размер раздела в байтах
+     * @param file_size - размер файла в байтах
+     */
+    private static void checkSection(long position, long length, long file_size) throws IOException {
+        if (position > file_size || length > file_size - position)
+            throw new IOException("Файл снимка поврежден\n");
+    }
+
+    /**
+     * Выделение буфера записи с порядком байт формата
+     * @param size - размер буфера в байтах
+     * @return буфер записи
+     */
+    private static ByteBuffer buffer(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Запись буфера в канал целиком
+     * @param channel - канал записи
+     * @param buffer - буфер
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    /**
+     * Дополнение файла нулями до границы выравнивания
+     * @param channel - канал записи
+     */
+    private static void align(FileChannel channel) throws IOException {
+        long position = channel.position();
+        long padding = SnapshotFile.aligned(position) - position;
+        if (padding > 0)
+            SnapshotFile.writeFully(channel, ByteBuffer.allocate((int) padding));
+    }
+
+    /**
+     * Получение ближайшей границы выравнивания
+     * @param position - позиция в файле
+     * @return позиция, кратная выравниванию
+     */
+    private static long aligned(long position) {
+        return (position + SnapshotFile.ALIGNMENT - 1) / SnapshotFile.ALIGNMENT * SnapshotFile.ALIGNMENT;
+    }
+}
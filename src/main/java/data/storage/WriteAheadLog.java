@@ -0,0 +1,334 @@
+package data.storage;
+
+import data.collection.ICollectionListener;
+import data.collection.IPersonCollection;
+import data.struct.Person;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Класс журнала предзаписи изменений коллекции данных с групповой фиксацией.
+ * Изменения добавляются в буфер журнала под блокировкой коллекции, а запись на диск выполняется
+ * после снятия блокировки: один поток записывает и фиксирует на диске накопленные записи
+ * нескольких клиентов, остальные дожидаются окончания его фиксации.
+ * Формат записи: длина, тип, данные, контрольная сумма CRC32 типа и данных
+ * @author Антропов Никита
+ * @version 1.0
+ */
+public final class WriteAheadLog implements ICollectionListener, Closeable {
+    /** Поле TYPE_SAVE - тип записи добавления или замены элемента */
+    private static final byte TYPE_SAVE = 1;
+    /** Поле TYPE_REMOVE - тип записи удаления элементов */
+    private static final byte TYPE_REMOVE = 2;
+    /** Поле TYPE_CLEAR - тип записи удаления всех элементов */
+    private static final byte TYPE_CLEAR = 3;
+    /** Поле INITIAL_BUFFER_SIZE - начальный размер буфера записей в байтах */
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    /** Поле PATH - путь до файла журнала */
+    private final Path PATH;
+    /** Поле channel - канал записи в файл журнала */
+    private FileChannel channel;
+    /** Поле pending - буфер записей, еще не записанных в файл */
+    private ByteBuffer pending;
+    /** Поле appended - номер последней добавленной записи */
+    private long appended;
+    /** Поле written - количество байт журнала, включая записи в буфере */
+    private long written;
+    /** Поле durable - номер последней записи, зафиксированной на диске */
+    private volatile long durable;
+    /** Поле FLUSH_LOCK - блокировка записи буфера на диск */
+    private final Object FLUSH_LOCK;
+    /** Поле TICKET - номер последней записи, добавленной текущим потоком */
+    private final ThreadLocal<long[]> TICKET;
+
+    /**
+     * Конструктор класса
+     * @param path - путь до файла журнала
+     * @param channel - канал записи, установленный в конец последней целой записи
+     */
+    private WriteAheadLog(Path path, FileChannel channel) throws IOException {
+        this.PATH = path;
+        this.channel = channel;
+        this.pending = WriteAheadLog.buffer(WriteAheadLog.INITIAL_BUFFER_SIZE);
+        this.appended = 0;
+        this.written = channel.position();
+        this.durable = 0;
+        this.FLUSH_LOCK = new Object();
+        this.TICKET = ThreadLocal.withInitial(() -> new long[1]);
+    }
+
+    /**
+     * Открытие журнала для добавления записей. Поврежденный конец журнала (например, после сбоя
+     * во время записи) отбрасывается
+     * @param path - путь до файла журнала
+     * @return журнал
+     */
+    public static WriteAheadLog open(Path path) throws IOException {
+        long valid_end = WriteAheadLog.scan(path, null);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        channel.truncate(valid_end);
+        channel.position(valid_end);
+        return new WriteAheadLog(path, channel);
+    }
+
+    /**
+     * Повторное применение журнала к коллекции, загруженной из последнего снимка.
+     * Записи журнала полностью задают состояние затронутых элементов, поэтому повторное применение
+     * записей, уже вошедших в снимок, не меняет результат
+     * @param path - путь до файла журнала
+     * @param collection - коллекция данных
+     * @return количество примененных записей
+     */
+    public static long replay(Path path, IPersonCollection collection) throws IOException {
+        long[] count = new long[1];
+        List<Person> saved = new ArrayList<>();
+        WriteAheadLog.scan(path, (type, payload) -> {
+            count[0]++;
+            if (type == WriteAheadLog.TYPE_SAVE) {
+                // Подряд идущие добавления применяются к коллекции одним вызовом
+                saved.add(PersonCodec.decode(payload));
+                return;
+            }
+            collection.loadElements(saved);
+            saved.clear();
+            if (type == WriteAheadLog.TYPE_REMOVE) {
+                while (payload.hasRemaining()) {
+                    try {
+                        collection.removeElement(payload.getLong());
+                    } catch (NoSuchElementException ignored) {
+                        // Элемент уже удален в снимке
+                    }
+                }
+            }
+            else if (type == WriteAheadLog.TYPE_CLEAR)
+                collection.clearElement();
+        });
+        collection.loadElements(saved);
+        return count[0];
+    }
+
+    /**
+     * @see ICollectionListener#elementSaved(Person)
+     */
+    @Override
+    public void elementSaved(Person person) {
+        byte[] payload = PersonCodec.encode(person);
+        this.append(WriteAheadLog.TYPE_SAVE, payload.length, buffer -> buffer.put(payload));
+    }
+
+    /**
+     * @see ICollectionListener#elementsRemoved(long[])
+     */
+    @Override
+    public void elementsRemoved(long[] ids) {
+        this.append(WriteAheadLog.TYPE_REMOVE, ids.length * Long.BYTES, buffer -> {
+            for (long id : ids)
+                buffer.putLong(id);
+        });
+    }
+
+    /**
+     * @see ICollectionListener#collectionCleared()
+     */
+    @Override
+    public void collectionCleared() {
+        this.append(WriteAheadLog.TYPE_CLEAR, 0, buffer -> {});
+    }
+
+    /**
+     * Фиксация на диске всех записей, добавленных текущим потоком
+     * @see ICollectionListener#changesCommitted()
+     */
+    @Override
+    public void changesCommitted() {
+        long[] ticket = this.TICKET.get();
+        if (ticket[0] == 0)
+            return;
+        try {
+            this.sync(ticket[0]);
+            ticket[0] = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать журнал изменений\n", e);
+        }
+    }
+
+    /**
+     * Получение позиции конца журнала. Все записи до этой позиции применены к коллекции,
+     * поэтому после сохранения снимка, снятого позже, их можно отбросить
+     * @see WriteAheadLog#checkpoint(long)
+     * @return позиция конца журнала в байтах
+     */
+    public synchronized long mark() {
+        return this.written;
+    }
+
+    /**
+     * Отбрасывание записей журнала до заданной позиции после сохранения снимка коллекции.
+     * Оставшиеся записи переписываются в новый файл, который атомарно заменяет журнал
+     * @param mark - позиция, полученная до снятия сохраненного снимка
+     */
+    public void checkpoint(long mark) throws IOException {
+        synchronized (this.FLUSH_LOCK) {
+            synchronized (this) {
+                this.flush();
+                long length = this.channel.size() - mark;
+                ByteBuffer tail = ByteBuffer.allocate((int) length);
+                while (tail.hasRemaining() && this.channel.read(tail, mark + tail.position()) >= 0);
+
+                Path temp = this.PATH.resolveSibling(this.PATH.getFileName() + ".tmp");
+                try (FileChannel temp_channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    tail.flip();
+                    while (tail.hasRemaining())
+                        temp_channel.write(tail);
+                    temp_channel.force(true);
+                }
+                this.channel.close();
+                Files.move(temp, this.PATH, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                this.channel = FileChannel.open(this.PATH, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                this.channel.position(this.channel.size());
+                this.written = this.channel.size();
+            }
+        }
+    }
+
+    /**
+     * Запись буфера и закрытие журнала
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this.FLUSH_LOCK) {
+            synchronized (this) {
+                this.flush();
+                this.channel.close();
+            }
+        }
+    }
+
+    /**
+     * Добавление записи в буфер журнала
+     * @param type - тип записи
+     * @param length - размер данных записи в байтах
+     * @param payload - запись данных в буфер
+     */
+    private synchronized void append(byte type, int length, Consumer<ByteBuffer> payload) {
+        int size = Integer.BYTES + 1 + length + Integer.BYTES;
+        if (this.pending.remaining() < size) {
+            ByteBuffer larger = WriteAheadLog.buffer(Math.max(this.pending.capacity() * 2,
+                    this.pending.position() + size));
+            this.pending = larger.put(this.pending.flip());
+        }
+
+        int start = this.pending.position();
+        this.pending.putInt(1 + length).put(type);
+        payload.accept(this.pending);
+        CRC32 crc = new CRC32();
+        crc.update(this.pending.duplicate().position(start + Integer.BYTES).limit(this.pending.position()));
+        this.pending.putInt((int) crc.getValue());
+
+        this.written += size;
+        this.TICKET.get()[0] = ++this.appended;
+    }
+
+    /**
+     * Фиксация на диске записей до заданной включительно. Если записи уже зафиксированы
+     * другим потоком, повторная запись не выполняется
+     * @param ticket - номер записи
+     */
+    private void sync(long ticket) throws IOException {
+        if (this.durable >= ticket)
+            return;
+        synchronized (this.FLUSH_LOCK) {
+            // Пока поток ожидал блокировку, его записи могли быть зафиксированы вместе с чужими
+            if (this.durable >= ticket)
+                return;
+            long batch_end;
+            synchronized (this) {
+                batch_end = this.flush();
+            }
+            this.channel.force(false);
+            this.durable = batch_end;
+        }
+    }
+
+    /**
+     * Запись буфера в файл без фиксации на диске. Вызывается с блокировкой объекта журнала
+     * @return номер последней записанной записи
+     */
+    private long flush() throws IOException {
+        this.pending.flip();
+        while (this.pending.hasRemaining())
+            this.channel.write(this.pending);
+        this.pending.clear();
+        return this.appended;
+    }
+
+    /**
+     * Обход целых записей журнала
+     * @param path - путь до файла журнала
+     * @param visitor - обработчик записей, null - только проверка записей
+     * @return позиция конца последней целой записи
+     */
+    private static long scan(Path path, RecordVisitor visitor) throws IOException {
+        if (!Files.exists(path))
+            return 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            while (data.remaining() >= Integer.BYTES) {
+                int start = data.position();
+                int length = data.getInt();
+                if (length < 1 || data.remaining() < length + Integer.BYTES)
+                    return start;
+                ByteBuffer record = data.slice(data.position(), length).order(ByteOrder.LITTLE_ENDIAN);
+                CRC32 crc = new CRC32();
+                crc.update(record.duplicate());
+                data.position(data.position() + length);
+                if ((int) crc.getValue() != data.getInt())
+                    return start;
+                if (visitor != null)
+                    visitor.visit(record.get(), record.slice().order(ByteOrder.LITTLE_ENDIAN));
+            }
+            return data.position();
+        }
+    }
+
+    /**
+     * Выделение буфера записей с порядком байт журнала
+     * @param size - размер буфера в байтах
+     * @return буфер записей
+     */
+    private static ByteBuffer buffer(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Интерфейс обработчика записей журнала
+     * @author Антропов Никита
+     * @version 1.0
+     */
+    private interface RecordVisitor {
+        /**
+         * Обработка записи
+         * @param type - тип записи
+         * @param payload - данные записи
+         */
+        void visit(byte type, ByteBuffer payload);
+    }
+}
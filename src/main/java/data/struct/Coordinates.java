@@ -11,9 +11,11 @@ import java.util.Locale;
  */
 final class Coordinates {
     /** Поле X - положение по оси X */
-    private final Float X;
+    private final float X;
     /** Поле Y - положение по оси Y */
-    private final Float Y;
+    private final float Y;
+    /** Поле DISTANCE - дистанция от начала координат, вычисленная при создании объекта */
+    private final double DISTANCE;
 
     /**
      * Конструктор класса
@@ -22,6 +24,7 @@ final class Coordinates {
     private Coordinates(Builder builder) {
         this.X = builder.x;
         this.Y = builder.y;
+        this.DISTANCE = Math.sqrt(this.Y*this.Y + this.X*this.X);
     }
 
     /**
@@ -31,9 +34,9 @@ final class Coordinates {
      */
     public static class Builder {
         /** Поле y - положение по оси X */
-        private final Float x;
+        private final float x;
         /** Поле y - положение по оси Y */
-        private final Float y;
+        private final float y;
 
         /**
          * Конструктор класса
@@ -75,18 +78,18 @@ final class Coordinates {
      * @see Coordinates#X
      * @return значение поля x
      */
-    public Float getX() { return this.X; }
+    public float getX() { return this.X; }
 
     /**
      * Получение значения поля y
      * @see Coordinates#Y
      * @return значение поля y
      */
-    public Float getY() { return this.Y; }
+    public float getY() { return this.Y; }
 
     /**
      * Получение дистанции от начала координат
      * @return дистанция от начала координат
      */
-    public Double getDistance() { return Math.sqrt(this.Y*this.Y + this.X*this.X); }
+    public double getDistance() { return this.DISTANCE; }
 }
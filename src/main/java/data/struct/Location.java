@@ -12,10 +12,14 @@ import java.util.Locale;
 final class Location {
     /** Поле NAME - имя человека */
     private final String NAME;
+    /** Поле NAME_CODE - код имени в словаре названий местоположений */
+    private final int NAME_CODE;
     /** Поле Y - положение по оси Y */
-    private final Double Y;
+    private final double Y;
     /** Поле x - положение по оси X */
     private final long x;
+    /** Поле DISTANCE - дистанция от начала координат, вычисленная при создании объекта */
+    private final double DISTANCE;
 
     /**
      * Конструктор класса
@@ -23,8 +27,10 @@ final class Location {
      */
     private Location(Builder builder) {
         this.NAME = builder.name;
+        this.NAME_CODE = builder.name_code;
         this.Y = builder.y;
         this.x = builder.x;
+        this.DISTANCE = Math.sqrt(this.Y*this.Y + (double) this.x*this.x);
     }
 
     /**
@@ -35,8 +41,10 @@ final class Location {
     public static class Builder {
         /** Поле name - имя человека */
         private final String name;
+        /** Поле name_code - код имени в словаре названий местоположений */
+        private final int name_code;
         /** Поле y - положение по оси Y */
-        private final Double y;
+        private final double y;
         /** Поле x - положение по оси X */
         private long x;
 
@@ -50,7 +58,9 @@ final class Location {
                 throw new NullPointerException("Поле Имя не может быть пустым\n");
             if (y == null)
                 throw new NullPointerException("Поле Y не может быть пустым\n");
-            this.name = name;
+            // Повторяющиеся названия хранятся в словаре один раз
+            this.name = StringDictionary.LOCATION_NAMES.intern(name);
+            this.name_code = StringDictionary.LOCATION_NAMES.encode(this.name);
             this.y = y;
             this.x = 0;
         }
@@ -96,7 +106,7 @@ final class Location {
      * @see Location#Y
      * @return значение поля y
      */
-    public Double getY() { return this.Y; }
+    public double getY() { return this.Y; }
 
     /**
      * Получение значения поля name
@@ -105,9 +115,16 @@ final class Location {
      */
     public String getName() { return this.NAME; }
 
+    /**
+     * Получение кода имени в словаре названий местоположений
+     * @see StringDictionary#LOCATION_NAMES
+     * @return код имени
+     */
+    public int getNameCode() { return this.NAME_CODE; }
+
     /**
      * Получение дистанции от начала координат
      * @return дистанция от начала координат
      */
-    public Double getDistance() { return Math.sqrt(this.Y*this.Y + this.x*this.x); }
+    public double getDistance() { return this.DISTANCE; }
 }
@@ -16,12 +16,14 @@ public final class Person implements Comparable<Person> {
     private long id;
     /** Поле name - имя человека */
     private final String NAME;
+    /** Поле NAME_CODE - код имени в словаре имен */
+    private final int NAME_CODE;
     /** Поле coordinates - координаты человека */
     private final Coordinates COORDINATES;
     /** Поле creation_time - дата создания записи */
     private final LocalDate CREATION_DATE;
     /** Поле height - рост человека */
-    private final Integer HEIGHT;
+    private final int HEIGHT;
     /** Поле passport_id - номер паспорта человека */
     private final String PASSPORT_ID;
     /** Поле eye_color - цвет глаз */
@@ -30,6 +32,10 @@ public final class Person implements Comparable<Person> {
     private final EHairColor HAIR_COLOR;
     /** Поле location - местоположение человека */
     private final Location LOCATION;
+    /** Поле COORD_DISTANCE - дистанция поля Coordinates, вычисленная при создании объекта */
+    private final double COORD_DISTANCE;
+    /** Поле LOC_DISTANCE - дистанция поля Location, вычисленная при создании объекта */
+    private final double LOC_DISTANCE;
 
     /**
      * Конструктор класса
@@ -37,6 +43,7 @@ public final class Person implements Comparable<Person> {
      */
     private Person(Builder builder) {
         this.NAME = builder.name;
+        this.NAME_CODE = builder.name_code;
         this.COORDINATES = builder.coordinates;
         this.CREATION_DATE = builder.creation_date;
         this.HEIGHT = builder.height;
@@ -44,6 +51,8 @@ public final class Person implements Comparable<Person> {
         this.EYE_COLOR = builder.eye_color;
         this.HAIR_COLOR = builder.hair_color;
         this.LOCATION = builder.location;
+        this.COORD_DISTANCE = this.COORDINATES == null ? Double.NaN : this.COORDINATES.getDistance();
+        this.LOC_DISTANCE = this.LOCATION == null ? Double.NaN : this.LOCATION.getDistance();
     }
 
     /**
@@ -65,10 +74,12 @@ public final class Person implements Comparable<Person> {
 
         /** Поле name - имя человека */
         private final String name;
+        /** Поле name_code - код имени в словаре имен */
+        private final int name_code;
         /** Поле coordinates - координаты человека */
         private Coordinates coordinates;
         /** Поле creation_time - дата создания записи */
-        private final LocalDate creation_date;
+        private LocalDate creation_date;
         /** Поле height - рост человека */
         private final Integer height;
         /** Поле passport_id - номер паспорта человека */
@@ -98,7 +109,9 @@ public final class Person implements Comparable<Person> {
                 throw new NullPointerException("Поле Рост не может быть пустым\n");
             if (height <= 0)
                 throw new IllegalArgumentException("Значение поля Рост должно быть больше 0\n");
-            this.name = name;
+            // Повторяющиеся имена хранятся в словаре один раз
+            this.name = StringDictionary.PERSON_NAMES.intern(name);
+            this.name_code = StringDictionary.PERSON_NAMES.encode(this.name);
             this.passport_id = passport_id;
             this.height = height;
             this.creation_date = LocalDate.now();
@@ -116,6 +129,30 @@ public final class Person implements Comparable<Person> {
             return this;
         }
 
+        /**
+         * Задание значения поля creation_date при восстановлении сохраненной записи
+         * @see Builder#creation_date
+         * @param creation_date - дата создания записи
+         * @return ссылка на объект строителя
+         */
+        public Builder CreationDate(LocalDate creation_date) throws NullPointerException {
+            if (creation_date == null)
+                throw new NullPointerException("Поле Дата Создания не может быть пустым\n");
+            this.creation_date = creation_date;
+            return this;
+        }
+
+        /**
+         * Задание значения поля eye_color
+         * @see Builder#eye_color
+         * @param eye_color - цвет глаз человека, null - без цвета
+         * @return ссылка на объект строителя
+         */
+        public Builder EyeColor(EEyeColor eye_color) {
+            this.eye_color = eye_color;
+            return this;
+        }
+
         /**
          * Задание значения поля eye_color
          * @see Builder#eye_color
@@ -130,6 +167,17 @@ public final class Person implements Comparable<Person> {
             return this;
         }
 
+        /**
+         * Задание значения поля hair_color
+         * @see Builder#hair_color
+         * @param hair_color - цвет волос человека, null - без цвета
+         * @return ссылка на объект строителя
+         */
+        public Builder HairColor(EHairColor hair_color) {
+            this.hair_color = hair_color;
+            return this;
+        }
+
         /**
          * Задание значения поля hair_color
          * @see Builder#hair_color
@@ -177,7 +225,7 @@ public final class Person implements Comparable<Person> {
 
         return "Данные человека[id=" + this.id + ", имя=" + this.NAME + ", " +
                 this.COORDINATES.toString() + ", дата_создания=" + date_str + ", рост=" +
-                this.HEIGHT.toString() + ", номер_паспорта=" + this.PASSPORT_ID +
+                this.HEIGHT + ", номер_паспорта=" + this.PASSPORT_ID +
                 ", цвет_глаз=" + eye_str + ", цвет_волос=" + hair_str + ", " +
                 location_str + "]";
     }
@@ -227,6 +275,13 @@ public final class Person implements Comparable<Person> {
      */
     public String getName() { return this.NAME; }
 
+    /**
+     * Получение кода имени в словаре имен
+     * @see StringDictionary#PERSON_NAMES
+     * @return код имени
+     */
+    public int getNameCode() { return this.NAME_CODE; }
+
     /**
      * Получение значения поля coordinates
      * @see Person#COORDINATES
@@ -246,7 +301,7 @@ public final class Person implements Comparable<Person> {
      * @see Person#HEIGHT
      * @return значение поля height
      */
-    public Integer getHeight() { return this.HEIGHT;}
+    public int getHeight() { return this.HEIGHT;}
 
     /**
      * Получение значения поля passport_id
@@ -290,17 +345,73 @@ public final class Person implements Comparable<Person> {
      */
     public Location getLocation() { return this.LOCATION; }
 
+    /**
+     * Получение положения по оси X поля Coordinates
+     * @see Coordinates#getX()
+     * @return положение по оси X
+     */
+    public float getCoordX() { return this.COORDINATES.getX(); }
+
+    /**
+     * Получение положения по оси Y поля Coordinates
+     * @see Coordinates#getY()
+     * @return положение по оси Y
+     */
+    public float getCoordY() { return this.COORDINATES.getY(); }
+
+    /**
+     * Получение имени поля Location
+     * @see Location#getName()
+     * @return имя местоположения
+     */
+    public String getLocName() { return this.LOCATION.getName(); }
+
+    /**
+     * Получение кода имени поля Location в словаре названий местоположений
+     * @see Location#getNameCode()
+     * @return код имени местоположения
+     */
+    public int getLocNameCode() { return this.LOCATION.getNameCode(); }
+
+    /**
+     * Получение положения по оси X поля Location
+     * @see Location#getX()
+     * @return положение по оси X
+     */
+    public long getLocX() { return this.LOCATION.getX(); }
+
+    /**
+     * Получение положения по оси Y поля Location
+     * @see Location#getY()
+     * @return положение по оси Y
+     */
+    public double getLocY() { return this.LOCATION.getY(); }
+
+    /**
+     * Проверка наличия поля Coordinates
+     * @see Person#COORDINATES
+     * @return true, если поле Coordinates задано
+     */
+    public boolean hasCoordinates() { return this.COORDINATES != null; }
+
+    /**
+     * Проверка наличия поля Location
+     * @see Person#LOCATION
+     * @return true, если поле Location задано
+     */
+    public boolean hasLocation() { return this.LOCATION != null; }
+
     /**
      * Получение дистанции поля Coordinates
      * @see Coordinates#getDistance()
-     * @return дистанция от начала координат
+     * @return дистанция от начала координат, NaN - если поле Coordinates не задано
      */
-    public Double getCoordDistance() { return this.COORDINATES.getDistance(); }
+    public double getCoordDistance() { return this.COORD_DISTANCE; }
 
     /**
      * Получение дистанции поля Location
      * @see Location#getDistance()
-     * @return дистанция от начала координат
+     * @return дистанция от начала координат, NaN - если поле Location не задано
      */
-    public Double getLocDistance() { return this.LOCATION.getDistance(); }
+    public double getLocDistance() { return this.LOC_DISTANCE; }
 }
@@ -0,0 +1,229 @@
+package data.struct;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Класс словаря повторяющихся строк. Каждая строка хранится один раз и получает целочисленный код,
+ * по которому элементы можно сравнивать и группировать без сравнения строк.
+ * Словарь ссылается на строки слабыми ссылками: строка и ее код остаются в словаре, пока экземпляр строки,
+ * выданный методом intern, достижим из любого объекта, например из Person, Location или построителя.
+ * Поэтому код не может быть удален, пока его держит хотя бы один объект, а равные строки таких объектов
+ * всегда имеют равные коды. Коды удаленных при сжатии строк выдаются новым строкам повторно, поэтому
+ * размер таблицы кодов ограничен наибольшим числом одновременно достижимых строк, а не числом всех
+ * строк, когда-либо добавленных в словарь. Поиск кода выполняется без блокировок, добавление и сжатие
+ * синхронизированы
+ * @author Антропов Никита
+ * @version 1.0
+ */
+public final class StringDictionary {
+    /** Поле MAX_CODES - наибольшее количество кодов, ограничено размером массива */
+    private static final int MAX_CODES = Integer.MAX_VALUE - 8;
+    /** Поле PERSON_NAMES - словарь имен людей */
+    public static final StringDictionary PERSON_NAMES = new StringDictionary();
+    /** Поле LOCATION_NAMES - словарь названий местоположений */
+    public static final StringDictionary LOCATION_NAMES = new StringDictionary();
+
+    /** Поле ENTRIES - записи словаря, ключом служит строка записи */
+    private final ConcurrentHashMap<Object, Entry> ENTRIES;
+    /** Поле QUEUE - очередь записей, строки которых стали недостижимы */
+    private final ReferenceQueue<String> QUEUE;
+    /** Поле codes - записи словаря по их кодам, null - удаленная при сжатии запись */
+    private volatile Entry[] codes;
+    /** Поле next_code - наименьший код, еще ни разу не выданный */
+    private int next_code;
+    /** Поле free - коды строк, удаленных при сжатии, для повторной выдачи */
+    private int[] free;
+    /** Поле free_count - количество кодов в free */
+    private int free_count;
+
+    /**
+     * Конструктор класса
+     */
+    public StringDictionary() {
+        this.ENTRIES = new ConcurrentHashMap<>();
+        this.QUEUE = new ReferenceQueue<>();
+        this.codes = new Entry[16];
+        this.next_code = 0;
+        this.free = new int[16];
+        this.free_count = 0;
+    }
+
+    /**
+     * Получение экземпляра строки, хранимого словарем, с добавлением строки в словарь, если ее там нет.
+     * Пока полученный экземпляр достижим, код строки действителен
+     * @param str - строка
+     * @return экземпляр строки из словаря
+     */
+    public String intern(String str) throws NullPointerException {
+        if (str == null)
+            throw new NullPointerException("Строка словаря не может быть пустой\n");
+        Entry entry = this.ENTRIES.get(new Probe(str));
+        String interned = entry != null ? entry.get() : null;
+        return interned != null ? interned : this.insert(str).get();
+    }
+
+    /**
+     * Получение кода строки с добавлением строки в словарь, если ее там нет.
+     * Код остается действительным, пока достижим экземпляр строки из словаря, поэтому построители
+     * сначала получают экземпляр методом intern и затем кодируют его
+     * @see StringDictionary#intern(String)
+     * @param str - строка
+     * @return код строки
+     */
+    public int encode(String str) throws NullPointerException {
+        if (str == null)
+            throw new NullPointerException("Строка словаря не может быть пустой\n");
+        Entry entry = this.ENTRIES.get(new Probe(str));
+        return entry != null && !entry.refersTo(null) ? entry.CODE : this.insert(str).CODE;
+    }
+
+    /**
+     * Получение строки по коду
+     * @param code - код строки
+     * @return строка словаря
+     */
+    public String decode(int code) throws NoSuchElementException {
+        Entry[] current = this.codes;
+        Entry entry = code >= 0 && code < current.length ? current[code] : null;
+        String str = entry != null ? entry.get() : null;
+        if (str == null)
+            throw new NoSuchElementException("Строки с кодом " + code + " нет в словаре\n");
+        return str;
+    }
+
+    /**
+     * Получение количества строк словаря, включая недостижимые строки, еще не удаленные сжатием
+     * @return количество строк
+     */
+    public int size() {
+        return this.ENTRIES.size();
+    }
+
+    /**
+     * Сжатие словаря: удаление строк, экземпляры которых больше не достижимы ни из одного объекта.
+     * Коды оставшихся строк не меняются, коды удаленных строк выдаются новым строкам: код удаленной строки
+     * ни у одного объекта не остался, так как объект с кодом держит и экземпляр строки.
+     * Выполняется также при каждом добавлении новой строки
+     * @return количество удаленных строк
+     */
+    public synchronized int compact() {
+        Entry[] current = null;
+        int removed = 0;
+        for (Reference<? extends String> reference = this.QUEUE.poll(); reference != null;
+             reference = this.QUEUE.poll()) {
+            Entry entry = (Entry) reference;
+            this.ENTRIES.remove(entry, entry);
+            if (current == null)
+                current = this.codes.clone();
+            current[entry.CODE] = null;
+            if (this.free_count == this.free.length)
+                this.free = Arrays.copyOf(this.free, this.free.length * 2);
+            this.free[this.free_count++] = entry.CODE;
+            removed++;
+        }
+        if (current != null)
+            this.codes = current;
+        return removed;
+    }
+
+    /**
+     * Добавление новой строки в словарь. Строка получает код удаленной строки или следующий новый код
+     * @param str - строка
+     * @return запись строки
+     */
+    private synchronized Entry insert(String str) throws IllegalStateException {
+        this.compact();
+        // Повторная проверка: строку мог добавить другой поток
+        Entry entry = this.ENTRIES.get(new Probe(str));
+        if (entry != null && !entry.refersTo(null))
+            return entry;
+
+        Entry[] current = this.codes;
+        int code;
+        if (this.free_count > 0) {
+            code = this.free[--this.free_count];
+        } else {
+            if (this.next_code == StringDictionary.MAX_CODES)
+                throw new IllegalStateException("Словарь строк переполнен: достижимых строк больше " +
+                        StringDictionary.MAX_CODES + "\n");
+            code = this.next_code++;
+            if (code == current.length)
+                current = Arrays.copyOf(current, (int) Math.min(2L * current.length,
+                        StringDictionary.MAX_CODES));
+        }
+        Entry created = new Entry(str, code, this.QUEUE);
+        current[created.CODE] = created;
+        // Запись volatile-поля публикует запись до кода, чтобы decode всегда находил выданный код
+        this.codes = current;
+        // Запись с недостижимой строкой не равна новой и удаляется из таблицы при сжатии
+        this.ENTRIES.put(created, created);
+        return created;
+    }
+
+    /**
+     * Класс записи словаря: слабая ссылка на строку с ее кодом.
+     * Записи равны, если равны их строки, записи с недостижимыми строками равны только себе
+     * @author Антропов Никита
+     * @version 1.0
+     */
+    private static final class Entry extends WeakReference<String> {
+        /** Поле CODE - код строки */
+        private final int CODE;
+        /** Поле HASH - хеш-код строки */
+        private final int HASH;
+
+        /**
+         * Конструктор класса
+         * @param str - строка
+         * @param code - код строки
+         * @param queue - очередь записей с недостижимыми строками
+         */
+        private Entry(String str, int code, ReferenceQueue<String> queue) {
+            super(str, queue);
+            this.CODE = code;
+            this.HASH = str.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object)
+                return true;
+            if (!(object instanceof Entry))
+                return false;
+            String str = this.get();
+            return str != null && str.equals(((Entry) object).get());
+        }
+
+        @Override
+        public int hashCode() { return this.HASH; }
+    }
+
+    /**
+     * Класс ключа поиска записи по строке без создания слабой ссылки
+     * @author Антропов Никита
+     * @version 1.0
+     */
+    private static final class Probe {
+        /** Поле STR - искомая строка */
+        private final String STR;
+
+        /**
+         * Конструктор класса
+         * @param str - искомая строка
+         */
+        private Probe(String str) { this.STR = str; }
+
+        @Override
+        public boolean equals(Object object) {
+            return object instanceof Entry && this.STR.equals(((Entry) object).get());
+        }
+
+        @Override
+        public int hashCode() { return this.STR.hashCode(); }
+    }
+}
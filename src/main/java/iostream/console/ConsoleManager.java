@@ -16,7 +16,7 @@ import java.util.regex.Pattern;
 public final class ConsoleManager implements IMangerIO {
 
     /** Поле console - единственный экземпляр данного класса */
-    private static ConsoleManager console;
+    private static volatile ConsoleManager console;
     /** Поле buffer - буфер чтения из потока ввода */
     private final BufferedReader buffer;
 
@@ -33,8 +33,12 @@ public final class ConsoleManager implements IMangerIO {
      * @return ссылку на объект класса
      */
     public static ConsoleManager getInstance() {
-        if (ConsoleManager.console == null)
-            ConsoleManager.console = new ConsoleManager();
+        if (ConsoleManager.console == null) {
+            synchronized (ConsoleManager.class) {
+                if (ConsoleManager.console == null)
+                    ConsoleManager.console = new ConsoleManager();
+            }
+        }
         return ConsoleManager.console;
     }
 
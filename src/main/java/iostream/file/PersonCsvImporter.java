@@ -0,0 +1,221 @@
+package iostream.file;
+
+import data.collection.DataCollection;
+import data.struct.Person;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+
+/**
+ * Класс параллельного импорта объектов Person из CSV-файла.
+ * Файл отображается в память и делится на блоки по границам строк, блоки разбираются параллельно,
+ * объекты создаются через Person.Builder с его проверками, затем все элементы добавляются в коллекцию
+ * одним изменением. Строки с ошибками пропускаются и попадают в отчет.
+ * Формат строки: name,passport_id,height,x,y,eye_color,hair_color,location_name,location_y,location_x.
+ * Цвета задаются названиями, как при вводе с консоли. Пустые цвета и пустое поле location_name означают
+ * отсутствие значения, значения с запятыми берутся в кавычки
+ * @author Антропов Никита
+ * @version 1.0
+ */
+public final class PersonCsvImporter {
+    /** Поле CHUNK_SIZE - примерный размер блока разбора в байтах */
+    private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+    /** Поле FIELD_COUNT - количество полей в строке */
+    private static final int FIELD_COUNT = 10;
+
+    /**
+     * Конструктор класса
+     */
+    private PersonCsvImporter() {}
+
+    /**
+     * Класс результата импорта
+     * @author Антропов Никита
+     * @version 1.0
+     */
+    public static final class Result {
+        /** Поле IMPORTED - количество добавленных элементов */
+        private final int IMPORTED;
+        /** Поле ERRORS - ошибки разбора строк */
+        private final List<String> ERRORS;
+
+        /**
+         * Конструктор класса
+         * @param imported - количество добавленных элементов
+         * @param errors - ошибки разбора строк
+         */
+        private Result(int imported, List<String> errors) {
+            this.IMPORTED = imported;
+            this.ERRORS = Collections.unmodifiableList(errors);
+        }
+
+        /**
+         * Получение количества добавленных элементов
+         * @see Result#IMPORTED
+         * @return количество добавленных элементов
+         */
+        public int getImported() { return this.IMPORTED; }
+
+        /**
+         * Получение ошибок разбора строк
+         * @see Result#ERRORS
+         * @return ошибки в виде строк с номерами строк файла
+         */
+        public List<String> getErrors() { return this.ERRORS; }
+    }
+
+    /**
+     * Класс результата разбора одного блока
+     * @author Антропов Никита
+     * @version 1.0
+     */
+    private static final class Chunk {
+        /** Поле persons - созданные элементы */
+        private final List<Person> persons = new ArrayList<>();
+        /** Поле error_lines - номера строк с ошибками внутри блока */
+        private final List<Integer> error_lines = new ArrayList<>();
+        /** Поле error_messages - сообщения об ошибках */
+        private final List<String> error_messages = new ArrayList<>();
+        /** Поле line_count - количество строк блока */
+        private int line_count = 0;
+    }
+
+    /**
+     * Импорт элементов из CSV-файла в коллекцию
+     * @param path - путь до файла
+     * @param collection - коллекция данных
+     * @param has_header - true, если первая строка файла содержит названия полей
+     * @return результат импорта
+     */
+    public static Result importFile(Path path, DataCollection collection, boolean has_header) throws IOException {
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        // Границы блоков сдвигаются до ближайшего конца строки
+        List<Integer> bounds = new ArrayList<>();
+        bounds.add(0);
+        int limit = data.limit();
+        for (int position = PersonCsvImporter.CHUNK_SIZE; position < limit; position += PersonCsvImporter.CHUNK_SIZE) {
+            while (position < limit && data.get(position - 1) != '\n')
+                position++;
+            if (position < limit)
+                bounds.add(position);
+        }
+        bounds.add(limit);
+
+        Chunk[] chunks = IntStream.range(0, bounds.size() - 1).parallel()
+                .mapToObj(i -> PersonCsvImporter.parseChunk(data.slice(bounds.get(i), bounds.get(i + 1) -
+                        bounds.get(i)), has_header && i == 0))
+                .toArray(Chunk[]::new);
+
+        List<Person> persons = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        int line_offset = 0;
+        for (Chunk chunk : chunks) {
+            persons.addAll(chunk.persons);
+            for (int i = 0; i < chunk.error_lines.size(); i++)
+                errors.add("Строка " + (line_offset + chunk.error_lines.get(i)) + ": " + chunk.error_messages.get(i));
+            line_offset += chunk.line_count;
+        }
+        collection.addElements(persons);
+        return new Result(persons.size(), errors);
+    }
+
+    /**
+     * Разбор блока строк
+     * @param data - байты блока, начинающегося с начала строки
+     * @param skip_first - true, если первую строку нужно пропустить
+     * @return результат разбора блока
+     */
+    private static Chunk parseChunk(ByteBuffer data, boolean skip_first) {
+        Chunk chunk = new Chunk();
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        String text = new String(bytes, StandardCharsets.UTF_8);
+
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            if (end < 0)
+                end = text.length();
+            String line = text.substring(start, end > start && text.charAt(end - 1) == '\r' ? end - 1 : end);
+            chunk.line_count++;
+            start = end + 1;
+            if (line.isBlank() || (skip_first && chunk.line_count == 1))
+                continue;
+            try {
+                chunk.persons.add(PersonCsvImporter.parseLine(line));
+            } catch (IllegalArgumentException | NullPointerException | NoSuchElementException e) {
+                chunk.error_lines.add(chunk.line_count);
+                chunk.error_messages.add(e.getMessage() == null ? e.toString() : e.getMessage().strip());
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Создание объекта Person по строке файла
+     * @param line - строка файла
+     * @return ссылка на новый объект Person без id
+     */
+    private static Person parseLine(String line) throws IllegalArgumentException, NullPointerException,
+            NoSuchElementException {
+        List<String> fields = PersonCsvImporter.split(line);
+        if (fields.size() != PersonCsvImporter.FIELD_COUNT)
+            throw new IllegalArgumentException("Ожидалось " + PersonCsvImporter.FIELD_COUNT + " полей, получено " +
+                    fields.size());
+
+        Person.Builder builder = new Person.Builder(fields.get(0), fields.get(1), Integer.valueOf(fields.get(2)))
+                .Coordinates(Float.valueOf(fields.get(3)), Float.valueOf(fields.get(4)))
+                .EyeColor(fields.get(5))
+                .HairColor(fields.get(6));
+        if (!fields.get(7).isEmpty())
+            builder.Location(fields.get(7), Double.valueOf(fields.get(8)), Long.parseLong(fields.get(9)));
+        return builder.build();
+    }
+
+    /**
+     * Разделение строки на поля с учетом кавычек
+     * @param line - строка файла
+     * @return поля строки
+     */
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>(PersonCsvImporter.FIELD_COUNT);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                }
+                else if (c == '"')
+                    quoted = false;
+                else
+                    field.append(c);
+            }
+            else if (c == '"')
+                quoted = true;
+            else if (c == ',') {
+                fields.add(field.toString().strip());
+                field.setLength(0);
+            }
+            else
+                field.append(c);
+        }
+        fields.add(field.toString().strip());
+        return fields;
+    }
+}
@@ -0,0 +1,81 @@
+package command;
+
+import data.collection.DataCollection;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Тесты асинхронного выполнения команд
+ * @author Антропов Никита
+ * @version 1.0
+ */
+class AsyncCommandExecutorTest {
+    @Test
+    void collectionsHaveSeparateWriterQueues() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> executed = new CopyOnWriteArrayList<>();
+        CommandInvoker.getInstance().register("^async_write[ ]*", new ICommand() {
+            @Override
+            public boolean checkArg(int arg_count) { return arg_count == 1; }
+
+            @Override
+            public void execute(String arg) {
+                if (arg.startsWith("block")) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                executed.add(arg);
+            }
+
+            @Override
+            public String getInfo() { return "async_write arg - тестовая изменяющая команда"; }
+
+            @Override
+            public boolean changesCollection() { return true; }
+        });
+
+        // Изменяющая команда, которая не только изменяет коллекцию, как выполнение скрипта
+        CommandInvoker.getInstance().register("^async_script[ ]*", new ICommand() {
+            @Override
+            public boolean checkArg(int arg_count) { return arg_count == 1; }
+
+            @Override
+            public void execute(String arg) { executed.add(arg); }
+
+            @Override
+            public String getInfo() { return "async_script arg - тестовая команда скрипта"; }
+
+            @Override
+            public boolean isMutating() { return true; }
+        });
+
+        DataCollection first = new DataCollection();
+        DataCollection second = new DataCollection();
+        try (AsyncCommandExecutor executor = new AsyncCommandExecutor(2)) {
+            CompletableFuture<Void> blocked = executor.executeCommand(new String[] {"async_write", "block"}, first);
+            CompletableFuture<Void> queued = executor.executeCommand(new String[] {"async_write", "after"}, first);
+            // Скрипт над коллекцией выполняется в ее очереди, а не параллельно с ней
+            CompletableFuture<Void> script = executor.executeCommand(new String[] {"async_script", "script"}, first);
+            // Команда над другой коллекцией не ждет очередь первой коллекции
+            executor.executeCommand(new String[] {"async_write", "other"}, second).get(10, TimeUnit.SECONDS);
+            assertFalse(blocked.isDone());
+            assertFalse(queued.isDone());
+            executor.executeCommand(new String[] {"async_script", "no-collection"}, null).get(10, TimeUnit.SECONDS);
+            assertFalse(script.isDone());
+            release.countDown();
+            script.get(10, TimeUnit.SECONDS);
+        }
+        assertEquals(List.of("other", "no-collection", "block", "after", "script"), executed);
+    }
+}
@@ -0,0 +1,88 @@
+package command;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты истории команд и журнала аудита
+ * @author Антропов Никита
+ * @version 1.0
+ */
+class CommandHistoryTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void renderShowsOnlyEntriesOfCurrentLap() throws InterruptedException {
+        CommandHistory history = new CommandHistory("test", 4);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 10_000; i++)
+                    history.push("t" + thread + "-" + i);
+            }));
+        }
+        threads.forEach(Thread::start);
+        // Вывод во время записи не содержит больше команд, чем вмещает буфер
+        while (threads.stream().anyMatch(Thread::isAlive))
+            assertTrue(history.getHistory().lines().count() <= history.getCapacity());
+        for (Thread thread : threads)
+            thread.join();
+
+        history.pushAll(List.of("a", "b", "c", "d", "e", "f"));
+        assertEquals("c\nd\ne\nf\n", history.getHistory());
+        history.push("g");
+        assertEquals("d\ne\nf\ng\n", history.getHistory());
+    }
+
+    @Test
+    void auditDropsEntriesAfterClose() throws IOException {
+        Path path = this.dir.resolve("audit.log");
+        HistoryAuditLog audit = HistoryAuditLog.open(path, 16);
+        CommandHistory history = new CommandHistory("test", 4);
+        history.setAudit(audit);
+        history.push("help");
+        history.pushAll(List.of("history", "stats"));
+        audit.close();
+        history.push("exit");
+
+        assertEquals(1, audit.getDropped());
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(2).endsWith("\ttest\tstats"));
+    }
+
+    @Test
+    void auditCountsEveryEntryRacingWithClose() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            Path path = this.dir.resolve("audit-" + round + ".log");
+            HistoryAuditLog audit = HistoryAuditLog.open(path, 1024);
+            int per_thread = 2000;
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                threads.add(new Thread(() -> {
+                    for (int i = 0; i < per_thread; i++)
+                        audit.append("test", "command");
+                }));
+            }
+            threads.forEach(Thread::start);
+            audit.close();
+            for (Thread thread : threads)
+                thread.join();
+            // Каждая команда либо записана, либо учтена как отброшенная
+            assertEquals(4L * per_thread, Files.readAllLines(path, StandardCharsets.UTF_8).size() +
+                    audit.getDropped());
+        }
+    }
+}
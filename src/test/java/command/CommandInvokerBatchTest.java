@@ -0,0 +1,75 @@
+package command;
+
+import command.commands.ExecuteScript;
+import command.commands.Exit;
+import data.collection.DataCollection;
+import data.struct.Person;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Тесты выполнения группы команд
+ * @author Антропов Никита
+ * @version 1.0
+ */
+class CommandInvokerBatchTest {
+    /**
+     * Команда добавления элемента с заданным именем в коллекцию
+     */
+    private static final class AddCommand implements ICommand {
+        /** Поле COLLECTION - коллекция, в которую добавляются элементы */
+        private final DataCollection COLLECTION;
+
+        /**
+         * Конструктор класса
+         * @param collection - коллекция, в которую добавляются элементы
+         */
+        private AddCommand(DataCollection collection) {
+            this.COLLECTION = collection;
+        }
+
+        @Override
+        public boolean checkArg(int arg_count) { return arg_count == 1; }
+
+        @Override
+        public void execute(String arg) {
+            if (arg.isBlank())
+                throw new IllegalArgumentException("Имя не может быть пустым\n");
+            this.COLLECTION.addElement(new Person.Builder(arg, "passport-" + arg, 180).build());
+        }
+
+        @Override
+        public String getInfo() { return "batch_add name - добавление элемента"; }
+
+        @Override
+        public boolean changesCollection() { return true; }
+    }
+
+    @Test
+    void batchRunsOnlyCollectionCommands() {
+        DataCollection collection = new DataCollection();
+        CommandInvoker invoker = CommandInvoker.getInstance();
+        invoker.register("^batch_add[ ]*", new AddCommand(collection));
+        Exit.getInstance();
+        ExecuteScript.getInstance();
+
+        List<CommandInvoker.Result> results = invoker.executeBatch(List.of(
+                new String[] {"batch_add", "first"},
+                new String[] {"exit"},
+                new String[] {"execute_script", "script.txt"},
+                new String[] {"batch_add"},
+                new String[] {"missing"},
+                new String[] {"batch_add", " "},
+                new String[] {"batch_add", "second"}), collection);
+
+        assertEquals(List.of(CommandInvoker.Result.EStatus.SUCCESS, CommandInvoker.Result.EStatus.NOT_BATCHABLE,
+                CommandInvoker.Result.EStatus.NOT_BATCHABLE, CommandInvoker.Result.EStatus.WRONG_ARGUMENTS,
+                CommandInvoker.Result.EStatus.UNKNOWN_COMMAND, CommandInvoker.Result.EStatus.FAILED,
+                CommandInvoker.Result.EStatus.SUCCESS),
+                results.stream().map(CommandInvoker.Result::getStatus).toList());
+        assertEquals(2, collection.snapshot().size());
+    }
+}
@@ -0,0 +1,88 @@
+package data.collection;
+
+import data.struct.Person;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Тесты уведомления слушателей изменений коллекции
+ * @author Антропов Никита
+ * @version 1.0
+ */
+class DataCollectionListenerTest {
+    /**
+     * Класс слушателя, записывающего полученные уведомления
+     * @author Антропов Никита
+     * @version 1.0
+     */
+    private static class RecordingListener implements ICollectionListener {
+        /** Поле events - полученные уведомления */
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void elementSaved(Person person) { this.events.add("saved " + person.getId()); }
+
+        @Override
+        public void elementsRemoved(long[] ids) { this.events.add("removed " + ids.length); }
+
+        @Override
+        public void collectionCleared() { this.events.add("cleared"); }
+
+        @Override
+        public void changesCommitted() { this.events.add("committed"); }
+    }
+
+    @Test
+    void listenerFailureNotifiesOthersAndMakesCollectionReadOnly() {
+        DataCollection collection = new DataCollection();
+        UncheckedIOException failure = new UncheckedIOException(new IOException("disk full"));
+        RecordingListener before = new RecordingListener();
+        RecordingListener after = new RecordingListener();
+        collection.addListener(before);
+        collection.addListener(new RecordingListener() {
+            @Override
+            public void elementSaved(Person person) { throw failure; }
+        });
+        collection.addListener(after);
+
+        UncheckedIOException thrown = assertThrows(UncheckedIOException.class, () -> collection.addElement(
+                new Person.Builder("name", "passport", 180).build()));
+        assertSame(failure, thrown);
+        assertEquals(List.of("saved 1", "committed"), before.events);
+        assertEquals(List.of("saved 1", "committed"), after.events);
+
+        // Изменение уже применено в памяти и доступно для чтения, но новые изменения отклоняются
+        assertEquals(1, collection.snapshot().size());
+        IllegalStateException rejected = assertThrows(IllegalStateException.class, collection::clearElement);
+        assertSame(failure, rejected.getCause());
+        assertThrows(IllegalStateException.class, () -> collection.batch(() -> {}));
+        assertEquals(1, collection.findById(1).getId());
+        assertEquals(List.of("saved 1", "committed"), after.events);
+    }
+
+    @Test
+    void commitFailureIsReportedAfterAllListeners() {
+        DataCollection collection = new DataCollection();
+        RecordingListener after = new RecordingListener();
+        collection.addListener(new RecordingListener() {
+            @Override
+            public void changesCommitted() { throw new IllegalStateException("flush failed"); }
+        });
+        collection.addListener(after);
+
+        assertThrows(IllegalStateException.class, () -> collection.batch(() -> {
+            collection.addElement(new Person.Builder("first", "passport-1", 180).build());
+            collection.addElement(new Person.Builder("second", "passport-2", 170).build());
+        }));
+        assertEquals(List.of("saved 1", "saved 2", "committed"), after.events);
+        assertThrows(IllegalStateException.class, () -> collection.removeElement(1));
+    }
+}
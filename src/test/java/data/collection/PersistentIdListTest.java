@@ -0,0 +1,80 @@
+package data.collection;
+
+import data.struct.Person;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты списка элементов с разделяемой структурой
+ * @author Антропов Никита
+ * @version 1.0
+ */
+class PersistentIdListTest {
+
+    /**
+     * Создание элемента с заданным id
+     * @param id - id элемента
+     * @return элемент
+     */
+    private static Person person(long id) {
+        Person person = new Person.Builder("Иван", "P" + id, 170).Coordinates(1f, 2f).build();
+        person.Id(id);
+        return person;
+    }
+
+    @Test
+    void matchesSortedMapUnderRandomChanges() {
+        Random random = new Random(7);
+        PersistentIdList list = new PersistentIdList();
+        TreeMap<Long, Person> expected = new TreeMap<>();
+        List<List<Person>> snapshots = new ArrayList<>();
+        List<List<Person>> snapshot_contents = new ArrayList<>();
+
+        for (int step = 0; step < 20000; step++) {
+            long id = 1 + random.nextInt(3000);
+            if (random.nextInt(3) == 0)
+                assertEquals(expected.remove(id) != null, list.remove(PersistentIdListTest.person(id)));
+            else {
+                Person person = PersistentIdListTest.person(id);
+                assertEquals(expected.putIfAbsent(id, person) == null, list.add(person));
+            }
+            if (step % 997 == 0) {
+                snapshots.add(list.freeze());
+                snapshot_contents.add(new ArrayList<>(expected.values()));
+            }
+        }
+
+        assertEquals(expected.size(), list.size());
+        assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(list));
+        List<Person> last = list.freeze();
+        for (int i = 0; i < last.size(); i++)
+            assertEquals(new ArrayList<>(expected.values()).get(i), last.get(i));
+        // Снимки не меняются при последующих изменениях списка
+        for (int i = 0; i < snapshots.size(); i++)
+            assertEquals(snapshot_contents.get(i), new ArrayList<>(snapshots.get(i)));
+    }
+
+    @Test
+    void sortedAppendFillsChunksAndKeepsSnapshots() {
+        PersistentIdList list = new PersistentIdList();
+        List<Person> first = new ArrayList<>();
+        for (long id = 1; id <= 1000; id++)
+            first.add(PersistentIdListTest.person(id));
+        list.addSorted(first);
+        List<Person> snapshot = list.freeze();
+
+        list.clear();
+        assertTrue(list.isEmpty());
+        assertEquals(1000, snapshot.size());
+        assertEquals(1000, snapshot.get(999).getId());
+        assertFalse(list.iterator().hasNext());
+    }
+}
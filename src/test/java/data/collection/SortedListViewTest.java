@@ -0,0 +1,56 @@
+package data.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты представления отсортированного списка в виде SortedSet
+ * @author Антропов Никита
+ * @version 1.0
+ */
+class SortedListViewTest {
+    @Test
+    void rangeViewsMatchTreeSet() {
+        List<Integer> list = new ArrayList<>();
+        for (int i = 0; i < 50; i += 2)
+            list.add(i);
+        for (Comparator<Integer> comparator : Arrays.asList(null,
+                Comparator.<Integer>naturalOrder())) {
+            SortedSet<Integer> view = new SortedListView<>(list, comparator);
+            TreeSet<Integer> tree = new TreeSet<>(comparator);
+            tree.addAll(view);
+            assertEquals(tree, view);
+            for (int from = -1; from <= 50; from++) {
+                assertEquals(tree.tailSet(from), view.tailSet(from));
+                assertEquals(tree.headSet(from), view.headSet(from));
+                assertEquals(tree.contains(from), view.contains(from));
+                for (int to = from; to <= 51; to += 3)
+                    assertEquals(new ArrayList<>(tree.subSet(from, to)), new ArrayList<>(view.subSet(from, to)));
+            }
+            assertEquals(10, view.subSet(10, 20).first());
+            assertEquals(18, view.subSet(10, 20).last());
+            assertThrows(IllegalArgumentException.class, () -> view.subSet(20, 10));
+        }
+    }
+
+    @Test
+    void emptyViewHasNoFirstOrLast() {
+        SortedSet<Integer> view = new SortedListView<>(List.of(1, 2, 3), null).subSet(5, 9);
+        assertTrue(view.isEmpty());
+        assertFalse(view.contains(1));
+        assertThrows(NoSuchElementException.class, view::first);
+        assertThrows(NoSuchElementException.class, view::last);
+    }
+}
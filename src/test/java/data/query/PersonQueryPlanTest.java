@@ -0,0 +1,107 @@
+package data.query;
+
+import data.collection.DataCollection;
+import data.struct.EEyeColor;
+import data.struct.EHairColor;
+import data.struct.Person;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты выбора индекса для выражений фильтра: результат с индексом должен совпадать с полным перебором
+ * @author Антропов Никита
+ * @version 1.0
+ */
+class PersonQueryPlanTest {
+    /** Поле NAMES - имена элементов, в том числе на границах диапазонов начала имени */
+    private static final String[] NAMES = {"Ив", "Ива", "Иван", "Ивz", "Иг", "Иа", "И", "Ив\uFFFF", "Ив\uFFFFа",
+            "\uFFFF", "\uFFFFа", "a", "ab", "b"};
+
+    /**
+     * Создание коллекции со случайными элементами, часть которых без полей Coordinates и Location
+     * @return коллекция
+     */
+    private static DataCollection collection() {
+        Random random = new Random(25);
+        DataCollection collection = new DataCollection();
+        for (int i = 0; i < 2000; i++) {
+            Person.Builder builder = new Person.Builder(PersonQueryPlanTest.NAMES[random.nextInt(
+                    PersonQueryPlanTest.NAMES.length)], "passport-" + i, 160 + random.nextInt(31))
+                    .CreationDate(LocalDate.of(2024, 1, 1).plusDays(random.nextInt(60)));
+            if (random.nextInt(4) != 0)
+                builder.Coordinates((float) random.nextInt(4), (float) random.nextInt(4));
+            if (random.nextInt(3) != 0)
+                builder.Location("location", (double) random.nextInt(5), random.nextInt(5));
+            if (random.nextBoolean())
+                builder.HairColor(EHairColor.values()[random.nextInt(EHairColor.values().length)]);
+            if (random.nextBoolean())
+                builder.EyeColor(EEyeColor.values()[random.nextInt(EEyeColor.values().length)]);
+            collection.addElement(builder.build());
+        }
+        return collection;
+    }
+
+    /**
+     * Сравнение результата фильтра с полным перебором коллекции
+     * @param collection - коллекция
+     * @param expression - выражение фильтра
+     */
+    private static void assertMatchesScan(DataCollection collection, String expression) {
+        PersonQuery query = PersonQuery.compile(expression);
+        List<Long> expected = new ArrayList<>();
+        for (Person person : collection.snapshot()) {
+            if (query.test(person))
+                expected.add(person.getId());
+        }
+        List<Long> actual = collection.filter(query).stream().map(Person::getId).collect(Collectors.toList());
+        assertEquals(expected, actual, expression);
+    }
+
+    @Test
+    void namePrefixBoundsMatchFullScan() {
+        DataCollection collection = PersonQueryPlanTest.collection();
+        for (String expression : new String[] {"name ^= \"Ив\"", "name = \"Ив\"", "name ^= \"И\"",
+                "name ^= \"Ив\uFFFF\"", "name ^= \"\uFFFF\"", "name = \"\uFFFF\"", "name ^= \"a\" and height > 170",
+                "name ^= \"Ив\" and name ^= \"Ива\"", "name ^= \"Ивz\"", "name ^= \"c\"", "name != \"Ив\""})
+            PersonQueryPlanTest.assertMatchesScan(collection, expression);
+    }
+
+    @Test
+    void exclusiveRangesMatchFullScan() {
+        DataCollection collection = PersonQueryPlanTest.collection();
+        for (String expression : new String[] {"height > 170", "height < 170", "height > 170 and height < 180",
+                "height >= 170 and height <= 170", "height > 170.5", "height < 160.5", "height > 190",
+                "height < 160", "height > 180 and height < 170", "height > 159.9 and height < 160.1",
+                "creation_date > 2024-01-10 and creation_date < 2024-01-20", "creation_date > 2024-03-01",
+                "coordinates > 2", "coordinates < 2", "coordinates > 2 and coordinates < 3",
+                "location > 3 and location < 5", "location < 1", "location > 0",
+                "height > 170 and hair_color = " + EHairColor.BLACK})
+            PersonQueryPlanTest.assertMatchesScan(collection, expression);
+    }
+
+    @Test
+    void absentCoordinatesAndLocationMatchFullScan() {
+        DataCollection collection = PersonQueryPlanTest.collection();
+        int without_coordinates = 0;
+        int without_location = 0;
+        for (Person person : collection.snapshot()) {
+            without_coordinates += person.getCoordinates() == null ? 1 : 0;
+            without_location += person.getLocation() == null ? 1 : 0;
+        }
+        assertTrue(without_coordinates > 0);
+        assertTrue(without_location > 0);
+        for (String expression : new String[] {"coordinates >= 0", "coordinates <= 0", "coordinates = 0",
+                "coordinates != 0", "not (coordinates >= 0)", "coordinates < 100", "location >= 0",
+                "location <= 0", "location = 0", "location != 0", "not (location < 100)",
+                "location < 100 and coordinates < 100", "location >= 0 or coordinates >= 0"})
+            PersonQueryPlanTest.assertMatchesScan(collection, expression);
+    }
+}
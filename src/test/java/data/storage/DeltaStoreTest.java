@@ -0,0 +1,134 @@
+package data.storage;
+
+import data.collection.DataCollection;
+import data.struct.Person;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты хранилища из базового снимка и файлов изменений
+ * @author Антропов Никита
+ * @version 1.0
+ */
+class DeltaStoreTest {
+    @TempDir
+    Path dir;
+
+    /**
+     * Создание элемента по номеру
+     * @param seed - номер элемента
+     * @return новый элемент
+     */
+    private static Person person(int seed) {
+        return new Person.Builder("name-" + seed % 11, "passport-" + seed, 100 + seed % 90)
+                .Coordinates((float) (seed % 7), (float) (seed % 3)).build();
+    }
+
+    /**
+     * Получение строк элементов коллекции в порядке id
+     * @param collection - коллекция данных
+     * @return строки элементов
+     */
+    private static List<String> strings(DataCollection collection) {
+        List<String> result = new ArrayList<>();
+        collection.forEach(person -> result.add(person.toString()));
+        return result;
+    }
+
+    /**
+     * Получение имен файлов каталога хранилища
+     * @param dir - каталог хранилища
+     * @param prefix - начало имени файла
+     * @return отсортированные имена файлов
+     */
+    private static List<String> files(Path dir, String prefix) throws IOException {
+        try (Stream<Path> paths = Files.list(dir)) {
+            return paths.map(path -> path.getFileName().toString()).filter(name -> name.startsWith(prefix))
+                    .sorted().toList();
+        }
+    }
+
+    /**
+     * Случайное изменение коллекции
+     * @param random - генератор случайных чисел
+     * @param collection - коллекция данных
+     */
+    private static void mutate(Random random, DataCollection collection) {
+        int seed = random.nextInt(10_000);
+        long id = 1 + random.nextInt((int) Math.max(collection.getLastId(), 1));
+        try {
+            if (seed % 3 == 0)
+                collection.updateElement(DeltaStoreTest.person(seed), id);
+            else if (seed % 5 == 0)
+                collection.removeElement(id);
+            else
+                collection.addElement(DeltaStoreTest.person(seed));
+        } catch (RuntimeException ignored) {
+            // Элемента с выбранным id уже нет
+        }
+    }
+
+    @Test
+    void loadRestoresBaseAndDeltas() throws IOException {
+        Random random = new Random(14);
+        DataCollection collection = new DataCollection();
+        try (DeltaStore store = DeltaStore.open(this.dir, 100)) {
+            collection.addListener(store);
+            for (int i = 0; i < 50; i++)
+                collection.addElement(DeltaStoreTest.person(i));
+            store.save(collection);
+            for (int i = 0; i < 30; i++)
+                DeltaStoreTest.mutate(random, collection);
+            store.save(collection);
+            collection.clearElement();
+            for (int i = 0; i < 10; i++)
+                collection.addElement(DeltaStoreTest.person(i));
+            store.save(collection);
+            collection.removeElement(collection.getLastId());
+            store.save(collection);
+            // Без изменений файл не записывается
+            store.save(collection);
+        }
+        assertEquals(List.of("base-1.bin"), DeltaStoreTest.files(this.dir, "base"));
+        assertEquals(List.of("delta-2.bin", "delta-3.bin", "delta-4.bin"), DeltaStoreTest.files(this.dir, "delta"));
+
+        DataCollection restored = DeltaStore.load(this.dir);
+        assertEquals(DeltaStoreTest.strings(collection), DeltaStoreTest.strings(restored));
+        assertEquals(collection.getLastId(), restored.getLastId());
+    }
+
+    @Test
+    void savesDuringCompactionKeepDeltaCount() throws IOException, InterruptedException {
+        Random random = new Random(41);
+        DataCollection collection = new DataCollection();
+        try (DeltaStore store = DeltaStore.open(this.dir, 1)) {
+            collection.addListener(store);
+            for (int i = 0; i < 300; i++) {
+                DeltaStoreTest.mutate(random, collection);
+                store.save(collection);
+            }
+            // Объединение завершается и не перезапускается, когда объединять нечего
+            for (int attempt = 0; attempt < 500 && store.getDeltaCount() > 0; attempt++)
+                Thread.sleep(10);
+            assertEquals(0, store.getDeltaCount());
+            assertTrue(DeltaStoreTest.files(this.dir, "delta").isEmpty());
+        }
+        assertEquals(1, DeltaStoreTest.files(this.dir, "base").size());
+        assertEquals(DeltaStoreTest.strings(collection), DeltaStoreTest.strings(DeltaStore.load(this.dir)));
+
+        try (DeltaStore store = DeltaStore.open(this.dir, 1)) {
+            assertEquals(0, store.getDeltaCount());
+        }
+    }
+}
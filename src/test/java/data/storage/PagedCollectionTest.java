@@ -0,0 +1,171 @@
+package data.storage;
+
+import data.collection.DataCollection;
+import data.collection.IPersonCollection;
+import data.comparator.ComparatorInvoker;
+import data.query.PersonQuery;
+import data.struct.EEyeColor;
+import data.struct.EHairColor;
+import data.struct.Person;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Тесты коллекции данных поверх файла снимка
+ * @author Антропов Никита
+ * @version 1.0
+ */
+class PagedCollectionTest {
+    @TempDir
+    Path dir;
+
+    /**
+     * Создание элемента по номеру
+     * @param seed - номер элемента
+     * @return новый элемент
+     */
+    private static Person person(int seed) {
+        Person.Builder builder = new Person.Builder("name-" + seed % 13, "passport-" + seed, 100 + seed % 97)
+                .Coordinates((float) (seed % 17), (float) (seed % 5));
+        if (seed % 4 != 0)
+            builder.HairColor(EHairColor.values()[seed % EHairColor.values().length]);
+        if (seed % 5 != 0)
+            builder.EyeColor(EEyeColor.values()[seed % EEyeColor.values().length]);
+        if (seed % 3 == 0)
+            builder.Location("location-" + seed % 7, (double) seed, seed);
+        return builder.build();
+    }
+
+    /**
+     * Получение строк элементов в порядке обхода
+     * @param iterator - итератор по элементам
+     * @return строки элементов
+     */
+    private static List<String> strings(Iterator<Person> iterator) {
+        List<String> result = new ArrayList<>();
+        iterator.forEachRemaining(person -> result.add(person.toString()));
+        return result;
+    }
+
+    /**
+     * Сравнение коллекции с коллекцией в памяти по всем операциям чтения
+     * @param expected - коллекция в памяти
+     * @param actual - коллекция поверх файла снимка
+     */
+    private static void assertSameContent(DataCollection expected, IPersonCollection actual) {
+        assertEquals(PagedCollectionTest.strings(expected.iterator()), PagedCollectionTest.strings(actual.iterator()));
+        assertEquals(expected.sumOfHeight(), actual.sumOfHeight());
+        assertEquals(expected.getLastId(), actual.getLastId());
+        assertEquals(PagedCollectionTest.strings(expected.getFieldDescendingByEyeColor()),
+                PagedCollectionTest.strings(actual.getFieldDescendingByEyeColor()));
+        for (EHairColor color : EHairColor.values())
+            assertEquals(PagedCollectionTest.strings(expected.filterByHairColor(color.toString())),
+                    PagedCollectionTest.strings(actual.filterByHairColor(color.toString())));
+        PersonQuery query = PersonQuery.compile("height >= 150 and hair_color = " + EHairColor.BLACK +
+                " or name ^= \"name-1\"");
+        assertEquals(PagedCollectionTest.strings(expected.filter(query).iterator()),
+                PagedCollectionTest.strings(actual.filter(query).iterator()));
+        Comparator<Person> height = ComparatorInvoker.getInstance().getComparator("height");
+        Person max = expected.getMaxElement(height);
+        assertEquals(max == null ? null : max.getHeight(),
+                actual.getMaxElement(height) == null ? null : actual.getMaxElement(height).getHeight());
+        for (Person person : expected)
+            assertEquals(person.toString(), actual.findById(person.getId()).toString());
+    }
+
+    /**
+     * Применение случайных изменений к обеим коллекциям
+     * @param random - генератор случайных чисел
+     * @param expected - коллекция в памяти
+     * @param actual - коллекция поверх файла снимка
+     * @param steps - количество изменений
+     */
+    private static void mutate(Random random, DataCollection expected, IPersonCollection actual, int steps) {
+        Comparator<Person> height = ComparatorInvoker.getInstance().getComparator("height");
+        for (int step = 0; step < steps; step++) {
+            int seed = random.nextInt(100_000);
+            int operation = random.nextInt(100);
+            long id = 1 + random.nextInt((int) Math.max(1, expected.getLastId()));
+            if (operation < 50) {
+                expected.addElement(PagedCollectionTest.person(seed));
+                actual.addElement(PagedCollectionTest.person(seed));
+            } else if (operation < 70) {
+                try {
+                    expected.updateElement(PagedCollectionTest.person(seed), id);
+                } catch (NoSuchElementException e) {
+                    assertThrows(NoSuchElementException.class,
+                            () -> actual.updateElement(PagedCollectionTest.person(seed), id));
+                    continue;
+                }
+                actual.updateElement(PagedCollectionTest.person(seed), id);
+            } else if (operation < 90) {
+                try {
+                    expected.removeElement(id);
+                } catch (NoSuchElementException e) {
+                    assertThrows(NoSuchElementException.class, () -> actual.removeElement(id));
+                    continue;
+                }
+                actual.removeElement(id);
+            } else if (operation < 95) {
+                expected.addMaxElement(PagedCollectionTest.person(seed), height);
+                actual.addMaxElement(PagedCollectionTest.person(seed), height);
+            } else if (operation < 99) {
+                Person bound = PagedCollectionTest.person(seed % 20);
+                expected.removeLowerElement(bound, height);
+                actual.removeLowerElement(bound, height);
+            } else {
+                expected.clearElement();
+                actual.clearElement();
+            }
+        }
+    }
+
+    @Test
+    void matchesDataCollectionAcrossMerges() throws IOException {
+        Random random = new Random(15);
+        Path path = this.dir.resolve("collection.bin");
+        DataCollection expected = new DataCollection();
+        for (int i = 0; i < 500; i++)
+            expected.addElement(PagedCollectionTest.person(i));
+        SnapshotFile.save(expected, path);
+
+        try (PagedCollection actual = PagedCollection.open(path, 4096, 50, null)) {
+            PagedCollectionTest.assertSameContent(expected, actual);
+            for (int round = 0; round < 10; round++) {
+                PagedCollectionTest.mutate(random, expected, actual, 200);
+                PagedCollectionTest.assertSameContent(expected, actual);
+                actual.merge();
+                PagedCollectionTest.assertSameContent(expected, actual);
+            }
+            assertEquals(expected.snapshot().size(), actual.size());
+        }
+    }
+
+    @Test
+    void logRestoresChangesNotMergedIntoSnapshot() throws IOException {
+        Random random = new Random(7);
+        Path path = this.dir.resolve("collection.bin");
+        Path log = this.dir.resolve("collection.wal");
+        DataCollection expected = new DataCollection();
+        try (PagedCollection actual = PagedCollection.open(path, 0, 1_000_000, log)) {
+            PagedCollectionTest.mutate(random, expected, actual, 300);
+            actual.merge();
+            PagedCollectionTest.mutate(random, expected, actual, 300);
+        }
+        try (PagedCollection reopened = PagedCollection.open(path, 0, 1_000_000, log)) {
+            PagedCollectionTest.assertSameContent(expected, reopened);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package data.storage;
+
+import data.collection.DataCollection;
+import data.struct.Person;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Тесты журнального хранилища из сжатых сегментов
+ * @author Антропов Никита
+ * @version 1.0
+ */
+class SegmentStoreTest {
+    @TempDir
+    Path dir;
+
+    /**
+     * Создание элемента с заданным id
+     * @param id - id элемента
+     * @return новый элемент
+     */
+    private static Person person(long id) {
+        Person person = new Person.Builder("name-" + id, "passport-" + id, 150 + (int) (id % 50))
+                .Coordinates(1f, 2f).build();
+        person.Id(id);
+        return person;
+    }
+
+    @Test
+    void openDropsTornTailOfLastSegment() throws IOException {
+        Path segment = this.dir.resolve("segment-0.seg");
+        long first_block;
+        try (SegmentStore store = SegmentStore.open(this.dir)) {
+            for (long id = 1; id <= 10; id++)
+                store.put(SegmentStoreTest.person(id));
+            store.flush();
+            first_block = Files.size(segment);
+            for (long id = 11; id <= 20; id++)
+                store.put(SegmentStoreTest.person(id));
+        }
+
+        // Сбой во время записи второго блока: остается только его часть
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(segment) - 5);
+        }
+        try (SegmentStore store = SegmentStore.open(this.dir)) {
+            assertEquals(first_block, Files.size(segment));
+            List<Person> persons = store.readAll();
+            assertEquals(10, persons.size());
+            for (int i = 0; i < persons.size(); i++)
+                assertEquals(SegmentStoreTest.person(i + 1).toString(), persons.get(i).toString());
+            // Новые блоки следуют за последним целым блоком
+            store.put(SegmentStoreTest.person(21));
+        }
+        try (SegmentStore store = SegmentStore.open(this.dir)) {
+            assertEquals(11, store.size());
+            assertEquals("name-21", store.get(21).getName());
+        }
+    }
+
+    @Test
+    void listenerAppliesChangesAfterCommit() throws IOException {
+        DataCollection collection = new DataCollection();
+        try (SegmentStore store = SegmentStore.open(this.dir, 4096)) {
+            collection.addListener(store);
+            collection.batch(() -> {
+                for (int i = 0; i < 200; i++)
+                    collection.addElement(new Person.Builder("name-" + i, "passport-" + i, 100 + i).build());
+                collection.removeElement(1);
+            });
+            collection.clearElement();
+            collection.addElement(new Person.Builder("last", "passport-last", 190).build());
+            collection.addElement(new Person.Builder("next", "passport-next", 180).build());
+            collection.removeElement(201);
+            assertEquals(1, store.size());
+        }
+        try (SegmentStore store = SegmentStore.open(this.dir, 4096)) {
+            List<Person> persons = store.readAll();
+            assertEquals(1, persons.size());
+            assertEquals(202, persons.get(0).getId());
+        }
+    }
+
+    @Test
+    void lastIdSurvivesRemovalAndReload() throws IOException {
+        DataCollection collection = new DataCollection();
+        try (SegmentStore store = SegmentStore.open(this.dir, 4096)) {
+            collection.addListener(store);
+            for (int i = 0; i < 100; i++)
+                collection.addElement(new Person.Builder("name-" + i, "passport-" + i, 100 + i).build());
+            // Удаляются самые новые элементы, наибольший оставшийся id меньше последнего выданного
+            for (long id = 51; id <= 100; id++)
+                collection.removeElement(id);
+            store.compact();
+            assertEquals(100, store.getLastId());
+        }
+
+        ColdStartLoader.Report report;
+        try (SegmentStore store = SegmentStore.open(this.dir, 4096)) {
+            assertEquals(100, store.getLastId());
+            report = ColdStartLoader.load(store);
+        }
+        DataCollection restored = report.getCollection();
+        assertEquals(50, restored.snapshot().size());
+        assertEquals(100, restored.getLastId());
+        restored.addElement(new Person.Builder("next", "passport-next", 180).build());
+        assertEquals(101, restored.getLastId());
+
+        // После очистки хранилища последний выданный id сохраняется
+        try (SegmentStore store = SegmentStore.open(this.dir, 4096)) {
+            store.clear();
+        }
+        try (SegmentStore store = SegmentStore.open(this.dir, 4096)) {
+            assertEquals(0, store.size());
+            assertEquals(100, store.getLastId());
+        }
+    }
+}
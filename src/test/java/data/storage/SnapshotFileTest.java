@@ -0,0 +1,69 @@
+package data.storage;
+
+import data.collection.DataCollection;
+import data.struct.Person;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Тесты двоичного снимка коллекции
+ * @author Антропов Никита
+ * @version 1.0
+ */
+class SnapshotFileTest {
+    @TempDir
+    Path dir;
+
+    /**
+     * Создание коллекции с заданным количеством элементов
+     * @param count - количество элементов
+     * @return коллекция данных
+     */
+    private static DataCollection collection(int count) {
+        DataCollection collection = new DataCollection();
+        for (int i = 0; i < count; i++)
+            collection.addElement(new Person.Builder("name-" + i % 10, "паспорт-" + i, 100 + i)
+                    .Location("location-" + i % 3, 1.5, i).build());
+        return collection;
+    }
+
+    @Test
+    void savedSnapshotReplacesPreviousAndReopens() throws IOException {
+        Path path = this.dir.resolve("collection.bin");
+        SnapshotFile.save(SnapshotFileTest.collection(10), path);
+        SnapshotFile previous = SnapshotFile.open(path);
+        SnapshotFile.save(SnapshotFileTest.collection(2000), path);
+
+        // Колонки прежнего снимка остаются отображены на прежний файл
+        assertEquals(10, previous.getColumns().size());
+        assertEquals("паспорт-9", previous.getColumns().getPassportId(9));
+        SnapshotFile reopened = SnapshotFile.open(path);
+        assertEquals(2000, reopened.getColumns().size());
+        assertEquals("паспорт-1999", reopened.getColumns().getPassportId(1999));
+        assertEquals("location-1", reopened.getColumns().get(1999).getLocName());
+        assertFalse(Files.exists(this.dir.resolve("collection.bin.tmp")));
+    }
+
+    @Test
+    void truncatedSnapshotIsRejected() throws IOException {
+        Path path = this.dir.resolve("collection.bin");
+        SnapshotFile.save(SnapshotFileTest.collection(500), path);
+        long size = Files.size(path);
+        for (long length : new long[] {size / 2, 64, 12}) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(length);
+            }
+            assertThrows(IOException.class, () -> SnapshotFile.open(path));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package data.storage;
+
+import data.collection.DataCollection;
+import data.struct.Person;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Тесты журнала предзаписи изменений
+ * @author Антропов Никита
+ * @version 1.0
+ */
+class WriteAheadLogTest {
+    @TempDir
+    Path dir;
+
+    /**
+     * Запись журнала изменений коллекции
+     * @param path - путь до файла журнала
+     * @return размер журнала после каждого из трех изменений
+     */
+    private static long[] writeLog(Path path) throws IOException {
+        long[] sizes = new long[3];
+        DataCollection collection = new DataCollection();
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            collection.addListener(log);
+            collection.addElement(new Person.Builder("first", "passport-1", 180).build());
+            sizes[0] = Files.size(path);
+            collection.addElement(new Person.Builder("second", "passport-2", 170).build());
+            sizes[1] = Files.size(path);
+            collection.removeElement(1);
+            sizes[2] = Files.size(path);
+        }
+        return sizes;
+    }
+
+    @Test
+    void replayStopsAtTornTail() throws IOException {
+        Path path = this.dir.resolve("collection.wal");
+        long[] sizes = WriteAheadLogTest.writeLog(path);
+
+        // Сбой во время записи последней записи: остается только ее часть
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(sizes[2] - 3);
+        }
+        DataCollection restored = new DataCollection();
+        assertEquals(2, WriteAheadLog.replay(path, restored));
+        assertNotNull(restored.findById(1));
+        assertNotNull(restored.findById(2));
+        assertEquals(2, restored.getLastId());
+
+        // Открытие журнала отбрасывает поврежденный конец, новые записи следуют за последней целой записью
+        try (WriteAheadLog log = WriteAheadLog.open(path)) {
+            assertEquals(sizes[1], Files.size(path));
+            restored.addListener(log);
+            restored.clearElement();
+        }
+        DataCollection reopened = new DataCollection();
+        assertEquals(3, WriteAheadLog.replay(path, reopened));
+        assertEquals(0, reopened.snapshot().size());
+    }
+
+    @Test
+    void replayStopsAtCorruptedRecord() throws IOException {
+        Path path = this.dir.resolve("collection.wal");
+        long[] sizes = WriteAheadLogTest.writeLog(path);
+
+        // Изменение байта данных второй записи нарушает ее контрольную сумму
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer data = ByteBuffer.allocate(1);
+            channel.read(data, sizes[0] + Integer.BYTES + 2);
+            data.put(0, (byte) (data.get(0) ^ 0xFF)).rewind();
+            channel.write(data, sizes[0] + Integer.BYTES + 2);
+        }
+        DataCollection restored = new DataCollection();
+        assertEquals(1, WriteAheadLog.replay(path, restored));
+        assertNotNull(restored.findById(1));
+        assertThrows(NoSuchElementException.class, () -> restored.findById(2));
+    }
+}
@@ -0,0 +1,81 @@
+package data.struct;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты словаря повторяющихся строк
+ * @author Антропов Никита
+ * @version 1.0
+ */
+class StringDictionaryTest {
+    @Test
+    void compactionKeepsCodesOfReachableStrings() throws Exception {
+        StringDictionary dictionary = new StringDictionary();
+        String held = dictionary.intern(new String("held"));
+        int held_code = dictionary.encode(held);
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<?> compactor = executor.submit(() -> {
+                while (running.get())
+                    dictionary.compact();
+            });
+            List<Future<?>> builders = new ArrayList<>();
+            for (int thread = 0; thread < 2; thread++)
+                builders.add(executor.submit(() -> {
+                    for (int i = 0; i < 200_000; i++) {
+                        String interned = dictionary.intern("name-" + (i % 1000));
+                        int code = dictionary.encode(interned);
+                        assertSame(interned, dictionary.decode(code));
+                    }
+                    return null;
+                }));
+            for (Future<?> builder : builders)
+                builder.get(1, TimeUnit.MINUTES);
+            running.set(false);
+            compactor.get(1, TimeUnit.MINUTES);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(held_code, dictionary.encode(new String("held")));
+        assertSame(held, dictionary.decode(held_code));
+    }
+
+    @Test
+    void compactionRemovesUnreachableStrings() throws Exception {
+        StringDictionary dictionary = new StringDictionary();
+        String held = dictionary.intern(new String("held"));
+        for (int i = 0; i < 1000; i++)
+            dictionary.intern("dropped-" + i);
+        for (int attempt = 0; attempt < 50 && dictionary.size() > 1; attempt++) {
+            System.gc();
+            Thread.sleep(10);
+            dictionary.compact();
+        }
+        assertEquals(1, dictionary.size());
+        assertSame(held, dictionary.intern(new String("held")));
+        assertTrue(dictionary.encode("dropped-0") > dictionary.encode(held));
+
+        // Коды удаленных строк выдаются повторно, таблица кодов не растет
+        List<String> reused = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String str = dictionary.intern("reused-" + i);
+            reused.add(str);
+            int code = dictionary.encode(str);
+            assertTrue(code <= 1001);
+            assertSame(str, dictionary.decode(code));
+        }
+    }
+}